@@ -0,0 +1,129 @@
+package examples.auction;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Bid path of a single auction, outside of the service layer.
+ * <p>
+ * historySize is the number of bids already placed when an iteration
+ * starts. bidAccept adds to the history, so it runs on its own auction,
+ * which is rebuilt whenever it has grown by MAX_GROWTH bids. Pages spilled
+ * from the bid history are encoded but not written, since the page store
+ * needs a running service manager.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuctionBidBenchmark
+{
+  @Param({ "0", "64", "1024", "16384" })
+  private int historySize;
+
+  private SpillAuction _auction;
+  private int _price;
+
+  private AuctionData _auctionData;
+
+  public static final int MAX_GROWTH = 64;
+
+  @Setup(Level.Iteration)
+  public void setup()
+  {
+    _auction = new SpillAuction();
+    _price = fill(_auction, historySize);
+
+    _auctionData = _auction.getAuctionDataPublic();
+  }
+
+  private static int fill(SpillAuction auction, int size)
+  {
+    int price = 1;
+
+    for (int i = 0; i < size; i++) {
+      auction.bid("user-" + (i % 16), ++price);
+    }
+
+    return price;
+  }
+
+  @Benchmark
+  public boolean bidAccept(AcceptState state)
+  {
+    state._accepted++;
+
+    return state._auction.bid("bidder", ++state._price);
+  }
+
+  @Benchmark
+  public boolean bidReject()
+  {
+    return _auction.bid("bidder", 1);
+  }
+
+  @Benchmark
+  public AuctionData auctionDataSnapshot()
+  {
+    return _auction.getAuctionDataPublic();
+  }
+
+  @Benchmark
+  public WebAuction webAuction()
+  {
+    return WebAuction.of(_auctionData);
+  }
+
+  /**
+   * Auction for bidAccept, kept within MAX_GROWTH bids of historySize. The
+   * rebuild runs in the invocation setup, outside the measured call.
+   */
+  @State(Scope.Thread)
+  public static class AcceptState
+  {
+    private SpillAuction _auction;
+    private int _price;
+    private int _accepted;
+
+    @Setup(Level.Invocation)
+    public void bound(AuctionBidBenchmark benchmark)
+    {
+      if (_auction == null || MAX_GROWTH <= _accepted) {
+        _auction = new SpillAuction();
+        _price = fill(_auction, benchmark.historySize);
+        _accepted = 0;
+      }
+    }
+  }
+
+  static class SpillAuction extends AuctionImpl
+  {
+    private byte[] _page;
+
+    SpillAuction()
+    {
+      super("bench-auction",
+            new AuctionDataInit("bench-owner", "book", 1),
+            ZonedDateTime.now().plusDays(1));
+    }
+
+    @Override
+    void spillBids(int index, BidLog bids)
+    {
+      _page = bids.encode();
+
+      onBidsSpilled(index);
+    }
+  }
+}
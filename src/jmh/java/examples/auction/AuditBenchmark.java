@@ -0,0 +1,93 @@
+package examples.auction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of the records AuditServiceImpl writes for every bid: building the
+ * record, encoding it, formatting it for the log and appending it to the
+ * journal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuditBenchmark
+{
+  private static final int FLUSH_INTERVAL = 1024;
+
+  private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+  private final DataOutputStream _out = new DataOutputStream(_bytes);
+
+  private File _file;
+  private AuditJournal _journal;
+  private int _appended;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    _file = File.createTempFile("audit-bench", ".journal");
+
+    _journal = new AuditJournal(_file, Long.MAX_VALUE);
+    _journal.open();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException
+  {
+    _journal.close();
+
+    _file.delete();
+  }
+
+  private AuditRecord bidRecord()
+  {
+    return new AuditRecord(AuditRecord.Type.BID_ACCEPT,
+                           System.currentTimeMillis(),
+                           "Y2hWfEXNAAA",
+                           null,
+                           "aGfmXKFNAAA",
+                           1234,
+                           null);
+  }
+
+  @Benchmark
+  public int encode() throws IOException
+  {
+    _bytes.reset();
+
+    bidRecord().writeBody(_out);
+
+    return _bytes.size();
+  }
+
+  @Benchmark
+  public String format()
+  {
+    return bidRecord().toString();
+  }
+
+  /**
+   * Append as done per message, with the flush AuditServiceImpl does
+   * after each batch amortized over FLUSH_INTERVAL records.
+   */
+  @Benchmark
+  public void append() throws IOException
+  {
+    _journal.append(bidRecord());
+
+    if (++_appended % FLUSH_INTERVAL == 0)
+      _journal.flush();
+  }
+}
@@ -0,0 +1,147 @@
+package examples.auction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static io.baratine.web.Web.*;
+
+/**
+ * End to end /user/bidAuction: HTTP, the user session, the auction asset
+ * and its audit and event calls, in one process.
+ * <p>
+ * Auctions close 15 seconds after they're created, so every iteration
+ * bids on a new auction and iterations are kept shorter than that. The
+ * server is started once per fork and exits with the fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BidAuctionWebBenchmark
+{
+  private static final String URL = "http://localhost:8080";
+
+  private static final MediaType JSON
+    = MediaType.parse("application/json; charset=utf-8");
+  private static final MediaType FORM
+    = MediaType.parse("application/x-www-form-urlencoded");
+
+  private static final String OWNER_SESSION = "bench-owner";
+  private static final String BIDDER_SESSION = "bench-bidder";
+
+  private OkHttpClient _client;
+
+  private String _auctionId;
+  private int _price;
+
+  @Setup(Level.Trial)
+  public void startServer() throws Exception
+  {
+    System.setProperty("auction.audit.journal",
+                       File.createTempFile("audit-bench", ".journal")
+                           .getPath());
+
+    include(AuctionAdminSessionImpl.class);
+    include(AuctionUserSessionImpl.class);
+    include(AuctionUpdateHubImpl.class);
+    include(AuctionEventPollImpl.class);
+
+    include(AuctionSettlementVault.class);
+    include(AuditServiceImpl.class);
+    include(AuctionSuggestImpl.class);
+    include(AuctionCloseSchedulerImpl.class);
+    include(AuctionSettlementBatcherImpl.class);
+    include(SettlementRecoveryImpl.class);
+    include(PayPalImpl.class);
+
+    include(UserVault.class);
+    include(AuctionVault.class);
+    include(AuctionBidPageVault.class);
+    include(AuctionTitleIndexVault.class);
+
+    start();
+
+    _client = new OkHttpClient();
+
+    createUser(OWNER_SESSION, "owner");
+    createUser(BIDDER_SESSION, "bidder");
+  }
+
+  private void createUser(String session, String name) throws IOException
+  {
+    post("/user/createUser",
+         session,
+         RequestBody.create(JSON,
+                            "{\"user\":\"" + name + "\","
+                            + "\"password\":\"bench\",\"isAdmin\":false}"));
+
+    post("/user/login",
+         session,
+         RequestBody.create(FORM, "u=" + name + "&p=bench"));
+  }
+
+  @Setup(Level.Iteration)
+  public void createAuction() throws IOException
+  {
+    byte[] auction = post("/user/createAuction",
+                          OWNER_SESSION,
+                          RequestBody.create(FORM, "t=book&b=1"));
+
+    _auctionId = PayPalResponse.extract(auction, "id")[0];
+    _price = 1;
+  }
+
+  @Benchmark
+  public byte[] bidAuction() throws IOException
+  {
+    int price;
+
+    synchronized (this) {
+      price = ++_price;
+    }
+
+    String bid = "{\"auction\":\"" + _auctionId + "\",\"bid\":" + price + "}";
+
+    return post("/user/bidAuction",
+                BIDDER_SESSION,
+                RequestBody.create(JSON, bid));
+  }
+
+  private byte[] post(String path, String session, RequestBody body)
+    throws IOException
+  {
+    Request request = new Request.Builder()
+      .url(URL + path)
+      .header("Cookie", "JSESSIONID=" + session)
+      .post(body)
+      .build();
+
+    try (Response response = _client.newCall(request).execute()) {
+      if (! response.isSuccessful())
+        throw new IOException(path + ": " + response.code());
+
+      return response.body().bytes();
+    }
+  }
+}
@@ -0,0 +1,571 @@
+package examples.auction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import examples.auction.mock.MockPayPal;
+
+import static io.baratine.web.Web.*;
+
+/**
+ * Load generator for the /user endpoints of AuctionUserSessionImpl.
+ * <p>
+ * Creates load.users users, then load.auctions auctions, placing
+ * load.rate bids per second on the open ones for load.duration seconds.
+ * The first load.watchers users follow every auction on
+ * /user/auction-updates. Auctions close AUCTION_LIFETIME after they are
+ * created, so load.close picks the close distribution: "uniform" spreads
+ * the auctions over the run and "burst" creates them all at once for a
+ * single close wave.
+ * <p>
+ * Without load.url the services are started in process with MockPayPal
+ * as the payment backend. A remote server under test should include
+ * MockPayPal in place of PayPalImpl. Users, auctions and bids are chosen
+ * by a Random seeded with load.seed, so runs with the same options are
+ * the same workload and reports of two releases compare like for like.
+ * <p>
+ * The report has the throughput and the p50/p99/p999 latency of every
+ * endpoint, the lag from a bid request to its update on the web socket
+ * and the lag from an auction's close update to its settle update.
+ */
+public class LoadGenerator
+{
+  private final static Logger log
+    = Logger.getLogger(LoadGenerator.class.getName());
+
+  public static final long AUCTION_LIFETIME = TimeUnit.SECONDS.toMillis(15);
+
+  private static final long TICK_MS = 10;
+
+  private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+  private static final MediaType JSON
+    = MediaType.parse("application/json; charset=utf-8");
+  private static final MediaType FORM
+    = MediaType.parse("application/x-www-form-urlencoded");
+  private static final MediaType TEXT
+    = MediaType.parse("text/plain; charset=utf-8");
+
+  private final String _url;
+  private final int _users;
+  private final int _auctions;
+  private final int _watchers;
+  private final int _rate;
+  private final long _duration;
+  private final String _close;
+  private final long _seed;
+
+  private final Random _random;
+
+  private OkHttpClient _client;
+
+  private final ScheduledExecutorService _scheduler
+    = Executors.newScheduledThreadPool(2);
+
+  private final List<LoadAuction> _open = new CopyOnWriteArrayList<>();
+
+  private final Map<String,Long> _bidTimes = new ConcurrentHashMap<>();
+  private final Map<String,Long> _closeTimes = new ConcurrentHashMap<>();
+
+  private final Map<String,Endpoint> _endpoints = new ConcurrentHashMap<>();
+
+  private final LongAdder _bidsAccepted = new LongAdder();
+  private final LongAdder _bidsRejected = new LongAdder();
+
+  private final LatencyHistogram _updateLag = new LatencyHistogram();
+  private final LatencyHistogram _settleLag = new LatencyHistogram();
+
+  private final LongAdder _wsErrors = new LongAdder();
+
+  private final AtomicInteger _inFlight = new AtomicInteger();
+
+  private double _bidCredit;
+
+  public LoadGenerator()
+  {
+    _url = System.getProperty("load.url", "");
+    _users = Integer.getInteger("load.users", 100);
+    _auctions = Integer.getInteger("load.auctions", 20);
+    _watchers = Math.min(Integer.getInteger("load.watchers", 10), _users);
+    _rate = Integer.getInteger("load.rate", 200);
+    _duration = TimeUnit.SECONDS.toMillis(Long.getLong("load.duration", 60));
+    _close = System.getProperty("load.close", "uniform");
+    _seed = Long.getLong("load.seed", 1);
+
+    _random = new Random(_seed);
+
+    if (_users < 2 || _auctions < 1)
+      throw new IllegalArgumentException(
+        "load.users must be at least 2 and load.auctions at least 1");
+
+    if (! "uniform".equals(_close) && ! "burst".equals(_close))
+      throw new IllegalArgumentException(
+        "load.close must be uniform or burst: " + _close);
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    LoadGenerator load = new LoadGenerator();
+
+    try {
+      load.run();
+
+      load.report(System.out);
+    } finally {
+      System.exit(0);
+    }
+  }
+
+  public void run() throws Exception
+  {
+    if (_url.isEmpty())
+      startServer();
+
+    String url = _url.isEmpty() ? "http://localhost:8080" : _url;
+
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(1024);
+    dispatcher.setMaxRequestsPerHost(1024);
+
+    _client = new OkHttpClient.Builder()
+      .dispatcher(dispatcher)
+      .readTimeout(30, TimeUnit.SECONDS)
+      .build();
+
+    for (int i = 0; i < _users; i++) {
+      createUser(url, i);
+    }
+
+    for (int i = 0; i < _watchers; i++) {
+      watch(url, i);
+    }
+
+    long start = System.currentTimeMillis();
+
+    for (int i = 0; i < _auctions; i++) {
+      int auction = i;
+
+      _scheduler.schedule(() -> createAuction(url, auction),
+                          createDelay(i),
+                          TimeUnit.MILLISECONDS);
+    }
+
+    _scheduler.scheduleAtFixedRate(() -> tick(url),
+                                   TICK_MS,
+                                   TICK_MS,
+                                   TimeUnit.MILLISECONDS);
+
+    Thread.sleep(_duration);
+
+    _scheduler.shutdownNow();
+
+    long drainEnd = System.currentTimeMillis() + AUCTION_LIFETIME * 2;
+
+    while (_inFlight.get() > 0 && System.currentTimeMillis() < drainEnd) {
+      Thread.sleep(100);
+    }
+
+    // let the last closes settle
+    Thread.sleep(Math.max(0, start + _duration + AUCTION_LIFETIME
+                             - System.currentTimeMillis()));
+  }
+
+  private void startServer() throws Exception
+  {
+    System.setProperty("auction.audit.journal",
+                       File.createTempFile("audit-load", ".journal")
+                           .getPath());
+
+    include(AuctionAdminSessionImpl.class);
+    include(AuctionUserSessionImpl.class);
+    include(AuctionUpdateHubImpl.class);
+    include(AuctionEventPollImpl.class);
+
+    include(AuctionSettlementVault.class);
+    include(AuditServiceImpl.class);
+    include(AuctionSuggestImpl.class);
+    include(AuctionCloseSchedulerImpl.class);
+    include(AuctionSettlementBatcherImpl.class);
+    include(SettlementRecoveryImpl.class);
+    include(MockPayPal.class);
+
+    include(UserVault.class);
+    include(AuctionVault.class);
+    include(AuctionBidPageVault.class);
+    include(AuctionTitleIndexVault.class);
+
+    start();
+  }
+
+  /**
+   * Creation time of an auction relative to the start, leaving every
+   * auction its full lifetime within the run.
+   */
+  private long createDelay(int auction)
+  {
+    if ("burst".equals(_close))
+      return 0;
+
+    long spread = Math.max(0, _duration - AUCTION_LIFETIME);
+
+    return spread * auction / _auctions;
+  }
+
+  private static String session(int user)
+  {
+    return "load-" + user;
+  }
+
+  private void createUser(String url, int user) throws IOException
+  {
+    String name = "user-" + user;
+
+    call(url, "createUser", user,
+         RequestBody.create(JSON,
+                            "{\"user\":\"" + name + "\","
+                            + "\"password\":\"load\",\"isAdmin\":false}"));
+
+    call(url, "login", user,
+         RequestBody.create(FORM, "u=" + name + "&p=load"));
+  }
+
+  private void watch(String url, int user)
+  {
+    Request request = new Request.Builder()
+      .url(url.replaceFirst("^http", "ws") + "/user/auction-updates")
+      .header("Cookie", "JSESSIONID=" + session(user))
+      .build();
+
+    _client.newWebSocket(request, new UpdateListener());
+  }
+
+  private void createAuction(String url, int auction)
+  {
+    try {
+      int owner = auction % _users;
+
+      byte[] response
+        = call(url, "createAuction", owner,
+               RequestBody.create(FORM, "t=item+" + auction + "&b=1"));
+
+      String id = PayPalResponse.extract(response, "id")[0];
+
+      for (int i = 0; i < _watchers; i++) {
+        call(url, "addAuctionListener", i, RequestBody.create(TEXT, id));
+      }
+
+      long closeTime = System.currentTimeMillis() + AUCTION_LIFETIME;
+
+      _open.add(new LoadAuction(id, owner, closeTime));
+    } catch (Exception e) {
+      log.log(Level.WARNING, e.toString(), e);
+    }
+  }
+
+  /**
+   * Places the bids due in this tick. Bidders and auctions are chosen by
+   * the seeded random, and the bid is one to three above the last one
+   * sent, so some bids race and get rejected.
+   */
+  private void tick(String url)
+  {
+    long now = System.currentTimeMillis();
+
+    _open.removeIf(a -> a._closeTime <= now);
+
+    _bidCredit += _rate * TICK_MS / 1000.0;
+
+    while (_bidCredit >= 1) {
+      _bidCredit -= 1;
+
+      if (_open.isEmpty())
+        continue;
+
+      LoadAuction auction = _open.get(_random.nextInt(_open.size()));
+
+      int user = _random.nextInt(_users);
+
+      if (user == auction._owner)
+        user = (user + 1) % _users;
+
+      int bid = auction._price.addAndGet(1 + _random.nextInt(3));
+
+      bid(url, auction._id, user, bid);
+    }
+  }
+
+  private void bid(String url, String auctionId, int user, int bid)
+  {
+    String body = "{\"auction\":\"" + auctionId + "\",\"bid\":" + bid + "}";
+
+    Endpoint endpoint = endpoint("bidAuction");
+
+    long start = System.nanoTime();
+
+    _bidTimes.put(auctionId + ':' + bid, start);
+
+    _inFlight.incrementAndGet();
+
+    newCall(url, "bidAuction", user, RequestBody.create(JSON, body))
+      .enqueue(new Callback() {
+        @Override
+        public void onFailure(Call call, IOException e)
+        {
+          _inFlight.decrementAndGet();
+
+          endpoint._errors.increment();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException
+        {
+          _inFlight.decrementAndGet();
+
+          try (Response r = response) {
+            if (! r.isSuccessful()) {
+              endpoint._errors.increment();
+
+              return;
+            }
+
+            endpoint._latency.recordSince(start);
+
+            if ("true".equals(r.body().string().trim()))
+              _bidsAccepted.increment();
+            else
+              _bidsRejected.increment();
+          }
+        }
+      });
+  }
+
+  private Call newCall(String url, String path, int user, RequestBody body)
+  {
+    Request request = new Request.Builder()
+      .url(url + "/user/" + path)
+      .header("Cookie", "JSESSIONID=" + session(user))
+      .post(body)
+      .build();
+
+    return _client.newCall(request);
+  }
+
+  private byte[] call(String url, String path, int user, RequestBody body)
+    throws IOException
+  {
+    Endpoint endpoint = endpoint(path);
+
+    long start = System.nanoTime();
+
+    try (Response response = newCall(url, path, user, body).execute()) {
+      if (! response.isSuccessful()) {
+        endpoint._errors.increment();
+
+        throw new IOException(path + ": " + response.code());
+      }
+
+      byte[] data = response.body().bytes();
+
+      endpoint._latency.recordSince(start);
+
+      return data;
+    }
+  }
+
+  private Endpoint endpoint(String name)
+  {
+    return _endpoints.computeIfAbsent(name, k -> new Endpoint());
+  }
+
+  /**
+   * Handles an update frame, a single auction or an array of coalesced
+   * auctions.
+   */
+  private void onFrame(String frame)
+  {
+    long now = System.nanoTime();
+
+    byte[] data = frame.getBytes();
+
+    if (! frame.startsWith("[")) {
+      onUpdate(PayPalResponse.extract(data, "id", "bid", "state"), now);
+
+      return;
+    }
+
+    for (int i = 0; ; i++) {
+      String[] values = PayPalResponse.extract(data,
+                                               i + ".id",
+                                               i + ".bid",
+                                               i + ".state");
+
+      if (values[0] == null)
+        return;
+
+      onUpdate(values, now);
+    }
+  }
+
+  private void onUpdate(String[] values, long now)
+  {
+    String id = values[0];
+    String state = values[2];
+
+    if (id == null || state == null)
+      return;
+
+    if ("OPEN".equals(state)) {
+      Long sent = _bidTimes.get(id + ':' + values[1]);
+
+      if (sent != null)
+        _updateLag.record(now - sent);
+    }
+    else if ("CLOSED".equals(state)) {
+      _closeTimes.putIfAbsent(id, now);
+    }
+    else if ("SETTLED".equals(state)) {
+      Long closed = _closeTimes.remove(id);
+
+      if (closed != null)
+        _settleLag.record(now - closed);
+    }
+  }
+
+  public void report(PrintStream out)
+  {
+    double seconds = _duration / 1000.0;
+
+    out.println(String.format(
+      "load: users=%1$d auctions=%2$d watchers=%3$d rate=%4$d/s"
+      + " duration=%5$.0fs close=%6$s seed=%7$d",
+      _users, _auctions, _watchers, _rate, seconds, _close, _seed));
+
+    out.println();
+
+    out.println(String.format("%1$-20s %2$8s %3$7s %4$9s %5$9s %6$9s %7$9s",
+                              "endpoint", "count", "errors", "rate/s",
+                              "p50 ms", "p99 ms", "p999 ms"));
+
+    List<String> names = new ArrayList<>(_endpoints.keySet());
+    names.sort(null);
+
+    for (String name : names) {
+      Endpoint endpoint = _endpoints.get(name);
+
+      LatencyHistogram latency = endpoint._latency;
+
+      out.println(String.format("%1$-20s %2$8d %3$7d %4$9.1f %5$s",
+                                name,
+                                latency.getCount(),
+                                endpoint._errors.sum(),
+                                latency.getCount() / seconds,
+                                quantiles(latency)));
+    }
+
+    out.println();
+
+    out.println(String.format("bids: accepted=%1$d rejected=%2$d",
+                              _bidsAccepted.sum(),
+                              _bidsRejected.sum()));
+
+    out.println();
+
+    out.println(String.format("%1$-20s %2$8s %3$7s %4$9s %5$9s %6$9s %7$9s",
+                              "web socket", "count", "errors", "",
+                              "p50 ms", "p99 ms", "p999 ms"));
+
+    out.println(String.format("%1$-20s %2$8d %3$7d %4$9s %5$s",
+                              "bid update lag",
+                              _updateLag.getCount(),
+                              _wsErrors.sum(),
+                              "",
+                              quantiles(_updateLag)));
+
+    out.println(String.format("%1$-20s %2$8d %3$7s %4$9s %5$s",
+                              "close to settle",
+                              _settleLag.getCount(),
+                              "",
+                              "",
+                              quantiles(_settleLag)));
+  }
+
+  private static String quantiles(LatencyHistogram histogram)
+  {
+    long[] values = histogram.quantiles(QUANTILES);
+
+    StringBuilder sb = new StringBuilder();
+
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0)
+        sb.append(' ');
+
+      sb.append(String.format("%1$9.2f", values[i] / 1e6));
+    }
+
+    return sb.toString();
+  }
+
+  private class UpdateListener extends WebSocketListener
+  {
+    @Override
+    public void onMessage(WebSocket webSocket, String text)
+    {
+      onFrame(text);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response)
+    {
+      _wsErrors.increment();
+
+      log.log(Level.FINE, t.toString(), t);
+    }
+  }
+
+  private static class Endpoint
+  {
+    private final LatencyHistogram _latency = new LatencyHistogram();
+    private final LongAdder _errors = new LongAdder();
+  }
+
+  private static class LoadAuction
+  {
+    private final String _id;
+    private final int _owner;
+    private final long _closeTime;
+
+    private final AtomicInteger _price = new AtomicInteger(1);
+
+    LoadAuction(String id, int owner, long closeTime)
+    {
+      _id = id;
+      _owner = owner;
+      _closeTime = closeTime;
+    }
+  }
+}
@@ -1,21 +1,24 @@
 package examples.auction;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
-import io.baratine.event.Events;
 import io.baratine.service.OnDestroy;
 import io.baratine.service.OnInit;
 import io.baratine.service.Result;
 import io.baratine.service.Service;
+import io.baratine.service.ServiceRef;
 import io.baratine.service.Services;
+import io.baratine.timer.Timers;
 import io.baratine.vault.Id;
 import io.baratine.web.Body;
 import io.baratine.web.Get;
@@ -31,6 +34,15 @@ public class AbstractAuctionSession implements AuctionSession
   private final static Logger log
     = Logger.getLogger(AbstractAuctionSession.class.getName());
 
+  /**
+   * Minimum time between update frames on the auction-updates socket, in
+   * milliseconds.
+   */
+  public static final long UPDATE_INTERVAL
+    = Long.getLong("auction.updates.interval", 100);
+
+  public static final int UPDATE_FRAME_SIZE = 64;
+
   @Id
   protected String _id;
 
@@ -46,13 +58,22 @@ public class AbstractAuctionSession implements AuctionSession
   @Service("/User")
   private UserAbstractVault<User> _users;
   @Inject
-  @Service("event:")
-  private Events _events;
+  @Service("/AuctionUpdateHub")
+  private AuctionUpdateHub _updateHub;
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private HashSet<String> _listenedAuctions = new HashSet<>();
 
-  private HashMap<String,AuctionEventsImpl> _listenerMap = new HashMap<>();
+  private AuctionUpdateListener _updateListener;
 
   private WebAuctionUpdates _updates;
 
+  private UpdateCoalescer<Update> _pendingUpdates
+    = new UpdateCoalescer<>(UPDATE_INTERVAL, UPDATE_FRAME_SIZE);
+  private boolean _isFlushArmed;
+
   @OnInit
   public void init()
   {
@@ -142,7 +163,7 @@ public class AbstractAuctionSession implements AuctionSession
       throw new IllegalArgumentException();
     }
 
-    getAuctionService(id).get(result.then(a -> WebAuction.of(a)));
+    getAuctionService(id).getSummary(result.then(a -> WebAuction.of(a)));
   }
 
   protected Auction getAuctionService(String id)
@@ -160,6 +181,10 @@ public class AbstractAuctionSession implements AuctionSession
     _auctions.findByTitle(title, result);
   }
 
+  /**
+   * Returns the first SearchCursor.MAX_LIMIT matching auctions; see
+   * searchAuctionsPage for the ones after them.
+   */
   @Get("/searchAuctions")
   public void searchAuctions(@Query("q") String query,
                              Result<List<AuctionUserSession.WebAuction>> result)
@@ -168,20 +193,56 @@ public class AbstractAuctionSession implements AuctionSession
 
     AbstractAuctionSession.log.info(String.format("search %1$s", query));
 
-    _auctions.findAuctionDataByTitle(query, result.then(l -> asWebAuctions(l)));
+    _auctions.findSummariesByTitle(query,
+                                   SearchCursor.MAX_LIMIT,
+                                   null,
+                                   result.then(p -> toWebAuctions(p)));
+  }
+
+  private static List<WebAuction> toWebAuctions(AuctionSummaryPage page)
+  {
+    List<AuctionSummary> list = page.getAuctions();
+
+    List<WebAuction> auctions = new ArrayList<>(list.size());
+
+    for (AuctionSummary auction : list) {
+      auctions.add(WebAuction.of(auction));
+    }
+
+    return auctions;
   }
 
-  private List<AuctionUserSession.WebAuction> asWebAuctions(List<AuctionData> auctions)
+  /**
+   * Returns a page of matching auctions and the cursor of the next page,
+   * which is null on the last page.
+   */
+  @Get("/searchAuctionsPage")
+  public void searchAuctionsPage(@Query("q") String query,
+                                 @Query("limit") int limit,
+                                 @Query("cursor") String cursor,
+                                 Result<WebAuctionPage> result)
   {
-    return auctions.stream()
-                   .map(a -> WebAuction.of(a))
-                   .collect(Collectors.toList());
+    validateSession();
+
+    AbstractAuctionSession.log.info(String.format("search %1$s", query));
+
+    _auctions.findSummariesByTitle(query,
+                                   limit,
+                                   cursor,
+                                   result.then(p -> WebAuctionPage.of(p)));
   }
 
+  /**
+   * Opens the update socket. Clients that can decode the compact binary
+   * frames ask for them with "?format=binary" on the upgrade; all others,
+   * and binary clients of an older server, get JSON text frames.
+   */
   @WebSocketPath("/auction-updates")
   public void updates(RequestWeb request)
   {
-    _updates = new WebAuctionUpdates();
+    boolean isBinary = "binary".equals(request.query("format"));
+
+    _updates = new WebAuctionUpdates(isBinary);
 
     request.upgrade(_updates);
   }
@@ -191,7 +252,7 @@ public class AbstractAuctionSession implements AuctionSession
   {
     validateSession();
 
-    if (_listenerMap.containsKey(id)) {
+    if (_listenedAuctions.contains(id)) {
       result.ok(true);
 
       return;
@@ -215,24 +276,97 @@ public class AbstractAuctionSession implements AuctionSession
 
   private void addAuctionListenerImpl(String id)
   {
-    if (_listenerMap.containsKey(id))
+    if (_listenedAuctions.contains(id))
       return;
 
-    log.finer("add auction events listener for auction: " + id);
+    log.finer("add auction update listener for auction: " + id);
+
+    _updateHub.subscribe(id, _id, getUpdateListener(), Result.ignore());
+
+    _listenedAuctions.add(id);
+  }
+
+  /**
+   * The listener handed to the hub is a proxy pinned to this session, so
+   * updates are queued to the session's inbox and handled in its context
+   * instead of on the hub's thread.
+   */
+  private AuctionUpdateListener getUpdateListener()
+  {
+    if (_updateListener == null) {
+      _updateListener = ServiceRef.current()
+                                  .pin(new UpdateListener())
+                                  .as(AuctionUpdateListener.class);
+    }
+
+    return _updateListener;
+  }
+
+  /**
+   * Sends an auction update to the client. Bids are coalesced to the
+   * latest state per auction and sent at most once per UPDATE_INTERVAL,
+   * several auctions to a frame. State changes such as a close are sent
+   * at once and replace a pending bid update of the same auction.
+   */
+  public void addEvent(String auctionId, WebAuction auction, String event)
+  {
+    if (_updates == null)
+      return;
+
+    Update update = new Update(auction, event);
+
+    if (! Auction.State.OPEN.toString().equals(auction.getState())) {
+      _pendingUpdates.remove(auctionId);
+
+      _updates.send(update);
+
+      return;
+    }
+
+    long now = System.currentTimeMillis();
 
-    AuctionEventsImpl auctionListener = new AuctionEventsImpl();
+    List<Update> frame = _pendingUpdates.offer(auctionId, update, now);
 
-    _events.subscriber(id, auctionListener, (c, e) -> {});
+    if (frame != null)
+      _updates.send(frame);
+    else
+      armFlush(now);
+  }
+
+  private void armFlush(long now)
+  {
+    if (_isFlushArmed)
+      return;
+
+    _isFlushArmed = true;
 
-    auctionListener.subscribe();
+    long delay = Math.max(0, _pendingUpdates.getFlushTime() - now);
 
-    _listenerMap.put(id, auctionListener);
+    _timers.runAfter(x -> flushUpdates(),
+                     delay,
+                     TimeUnit.MILLISECONDS,
+                     Result.ignore());
   }
 
-  public void addEvent(AuctionData event)
+  private void flushUpdates()
   {
-    if (_updates != null)
-      _updates.next(WebAuction.of(event));
+    _isFlushArmed = false;
+
+    if (_updates == null) {
+      _pendingUpdates.clear();
+
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+
+    List<Update> frame = _pendingUpdates.flush(now);
+
+    if (! frame.isEmpty())
+      _updates.send(frame);
+
+    if (_pendingUpdates.size() > 0)
+      armFlush(now);
   }
 
   public void logout(Result<Boolean> result)
@@ -247,11 +381,11 @@ public class AbstractAuctionSession implements AuctionSession
 
   private void unsubscribe()
   {
-    for (AuctionEventsImpl events : _listenerMap.values()) {
-      events.unsubscribe();
+    for (String auctionId : _listenedAuctions) {
+      _updateHub.unsubscribe(auctionId, _id, Result.ignore());
     }
 
-    _listenerMap.clear();
+    _listenedAuctions.clear();
   }
 
   @OnDestroy
@@ -273,72 +407,139 @@ public class AbstractAuctionSession implements AuctionSession
            + "]@" + System.identityHashCode(this);
   }
 
-  class WebAuctionUpdates implements ServiceWebSocket<WebAuction,WebAuction>
+  /**
+   * Update socket. A frame is a single auction or, when several auctions
+   * are flushed together, an array of auctions. JSON frames arrive encoded
+   * from the AuctionUpdateHub and are shared with the other sessions.
+   * Binary frames are encoded per socket, since their auction ids and
+   * prices are relative to what the client was already sent.
+   */
+  class WebAuctionUpdates implements ServiceWebSocket<WebAuction,String>
   {
-    private WebSocket<WebAuction> _updatesSocket;
+    private final BinaryUpdateEncoder _encoder;
+
+    private WebSocket<String> _updatesSocket;
+
+    WebAuctionUpdates(boolean isBinary)
+    {
+      _encoder = isBinary ? new BinaryUpdateEncoder() : null;
+    }
 
     @Override
-    public void open(WebSocket<WebAuction> webSocket)
+    public void open(WebSocket<String> webSocket)
     {
       _updatesSocket = webSocket;
     }
 
     @Override
     public void next(WebAuction auction,
-                     WebSocket<WebAuction> webSocket)
+                     WebSocket<String> webSocket)
       throws IOException
     {
 
     }
 
-    public void next(WebAuction auction)
+    public void send(Update update)
     {
-      _updatesSocket.next(auction);
-    }
-  }
+      if (! isOpen())
+        return;
 
-  private class AuctionEventsImpl implements AuctionEvents
-  {
-    AuctionEventsImpl()
-    {
+      if (_encoder != null)
+        sendBinary(Collections.singletonList(update._auction));
+      else
+        _updatesSocket.next(update._frame);
     }
 
-    public void subscribe()
+    public void send(List<Update> updates)
     {
+      if (! isOpen())
+        return;
 
-    }
+      if (_encoder != null) {
+        List<WebAuction> auctions = new ArrayList<>(updates.size());
 
-    public void unsubscribe()
-    {
+        for (Update update : updates) {
+          auctions.add(update._auction);
+        }
+
+        sendBinary(auctions);
+
+        return;
+      }
+
+      if (updates.size() == 1) {
+        _updatesSocket.next(updates.get(0)._frame);
+
+        return;
+      }
+
+      int length = updates.size() + 1;
+
+      for (Update update : updates) {
+        length += update._frame.length();
+      }
+
+      StringBuilder frame = new StringBuilder(length);
+
+      frame.append('[');
+
+      for (int i = 0; i < updates.size(); i++) {
+        if (i > 0)
+          frame.append(',');
+
+        frame.append(updates.get(i)._frame);
+      }
 
+      frame.append(']');
+
+      _updatesSocket.next(frame.toString());
     }
 
-    @Override
-    public void onBid(AuctionData auctionData)
+    private void sendBinary(List<WebAuction> auctions)
     {
-      log.finer("on bid event for auction: " + auctionData);
+      byte[] frame = _encoder.encode(auctions);
 
-      addEvent(auctionData);
+      _updatesSocket.write(frame, 0, _encoder.length());
     }
 
-    @Override
-    public void onClose(AuctionData auctionData)
+    private boolean isOpen()
     {
-      log.finer("on close event for auction: " + auctionData);
+      if (_updatesSocket == null)
+        return false;
 
-      addEvent(auctionData);
+      if (_updatesSocket.isClosed()) {
+        // drop updates for a client that went away
+        _updatesSocket = null;
+        _pendingUpdates.clear();
+
+        return false;
+      }
+
+      return true;
     }
+  }
 
-    @Override
-    public void onSettled(AuctionData auctionData)
+  private static class Update
+  {
+    private final WebAuction _auction;
+    private final String _frame;
+
+    Update(WebAuction auction, String frame)
     {
-      addEvent(auctionData);
+      _auction = auction;
+      _frame = frame;
     }
+  }
 
+  private class UpdateListener implements AuctionUpdateListener
+  {
     @Override
-    public void onRolledBack(AuctionData auctionData)
+    public void onUpdate(String auctionId,
+                         long sequence,
+                         WebAuction auction,
+                         String frame)
     {
-      addEvent(auctionData);
+      addEvent(auctionId, auction, frame);
     }
   }
 }
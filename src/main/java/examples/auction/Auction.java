@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.List;
+
 import io.baratine.service.Api;
 import io.baratine.service.Modify;
 import io.baratine.service.Result;
@@ -21,6 +23,20 @@ public interface Auction
   void bid(AuctionBid bid, Result<Boolean> result)
     throws IllegalStateException;
 
+  /**
+   * Applies bids in order as a single call. Returns whether each bid was
+   * accepted; bids on an auction that isn't open are rejected.
+   */
+  @Modify
+  void bids(List<AuctionBid> bids, Result<List<Boolean>> result);
+
+  /**
+   * Sets the bidder's private maximum. The auction bids for the bidder,
+   * one increment over competing bids, up to the maximum.
+   */
+  @Modify
+  void proxyBid(AuctionBid maxBid, Result<Boolean> result);
+
   @Modify
   void setAuctionWinner(String user, Result<Boolean> result);
 
@@ -35,9 +51,19 @@ public interface Auction
 
   void get(Result<AuctionData> result);
 
+  void getSummary(Result<AuctionSummary> result);
+
+  void getBidHistory(int offset, int limit, Result<List<Bid>> result);
+
   @Modify
   void close(Result<Boolean> result);
 
+  /**
+   * Closes the auction if it is still open. Called by the close scheduler.
+   */
+  @Modify
+  void closeOnTimer(Result<Boolean> result);
+
   @Modify
   void refund(Result<Boolean> result);
 
@@ -59,6 +85,8 @@ public interface Auction
     String getUserId();
 
     int getBid();
+
+    long getTime();
   }
 }
 
@@ -1,9 +1,11 @@
 package examples.auction;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.baratine.service.Result;
 import io.baratine.service.Service;
+import io.baratine.service.Services;
 import io.baratine.vault.IdAsset;
 import io.baratine.vault.Vault;
 
@@ -13,10 +15,64 @@ public interface AuctionAbstractVault<X extends Auction>
 {
   void create(AuctionDataInit data, Result<IdAsset> id);
 
+  /**
+   * Derived finder: the auction with exactly this title, in any state.
+   */
   void findByTitle(String title, Result<Auction> auction);
 
-  void findAuctionDataByTitle(String title,
-                              Result<List<AuctionData>> auction);
+  /**
+   * Title search, backed by the AuctionTitleIndex instead of a scan over
+   * the auctions. Reads one page of matching ids from the index and loads
+   * the summaries of that page.
+   *
+   * @param limit  page size, capped at SearchCursor.MAX_LIMIT
+   * @param cursor continuation token from the previous page or null
+   */
+  default void findSummariesByTitle(String title,
+                                    int limit,
+                                    String cursor,
+                                    Result<AuctionSummaryPage> auction)
+  {
+    Services services = Services.current();
 
-  void findIdsByTitle(String title, Result<List<IdAsset>> auction);
+    int pageSize = SearchCursor.limit(limit);
+    SearchCursor position = SearchCursor.decode(cursor);
+
+    // one extra id tells whether there is a next page
+    int readSize = pageSize + 1;
+
+    AuctionTitleIndex.findPage(services, title, position, readSize,
+                               auction.then((ids, r) -> {
+      List<IdAsset> page = ids.subList(0, Math.min(pageSize, ids.size()));
+
+      if (page.isEmpty()) {
+        r.ok(new AuctionSummaryPage(new ArrayList<>(), null));
+
+        return;
+      }
+
+      String next = page.size() < ids.size()
+                    ? SearchCursor.encode(page.get(page.size() - 1))
+                    : null;
+
+      Result.Fork<AuctionSummary,AuctionSummaryPage> fork = r.fork();
+
+      for (IdAsset id : page) {
+        services.service(Auction.class, id.toString())
+                .getSummary(fork.branch());
+      }
+
+      fork.join(l -> new AuctionSummaryPage(l, next));
+    }));
+  }
+
+  /**
+   * Derived finder, used by the close scheduler to rebuild its schedule.
+   */
+  void findIdsByState(Auction.State state, Result<List<IdAsset>> result);
+
+  default void findIdsByTitle(String title, Result<List<IdAsset>> auction)
+  {
+    AuctionTitleIndex.find(Services.current(), title, auction);
+  }
 }
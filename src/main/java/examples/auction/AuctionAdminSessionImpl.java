@@ -9,6 +9,7 @@ import io.baratine.web.Get;
 import io.baratine.web.Path;
 import io.baratine.web.Post;
 import io.baratine.web.Query;
+import io.baratine.web.RequestWeb;
 import io.baratine.web.cors.CrossOrigin;
 
 /**
@@ -57,6 +58,18 @@ public class AuctionAdminSessionImpl extends AbstractAuctionSession
     }));
   }
 
+  /**
+   * Latency metrics in the Prometheus text format. Not session checked so
+   * a scraper can read it.
+   */
+  @Get("/metrics")
+  public void metrics(RequestWeb request)
+  {
+    request.type("text/plain; version=0.0.4; charset=utf-8");
+    request.write(Metrics.format());
+    request.ok();
+  }
+
   @Override
   @Post("/refund")
   public void refund(@Body String id, Result<Boolean> result)
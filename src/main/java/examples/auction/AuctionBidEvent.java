@@ -0,0 +1,72 @@
+package examples.auction;
+
+import java.io.Serializable;
+
+/**
+ * Compact bid event published through AuctionEvents on every accepted bid.
+ * <p>
+ * The sequence number is the auction's event sequence; subscribers that see
+ * a gap fetch a full AuctionData snapshot with Auction.get().
+ */
+public class AuctionBidEvent implements Serializable
+{
+  private String _auctionId;
+  private long _sequence;
+  private String _userId;
+  private int _bid;
+  private Auction.State _state;
+
+  public AuctionBidEvent()
+  {
+  }
+
+  public AuctionBidEvent(String auctionId,
+                         long sequence,
+                         String userId,
+                         int bid,
+                         Auction.State state)
+  {
+    _auctionId = auctionId;
+    _sequence = sequence;
+    _userId = userId;
+    _bid = bid;
+    _state = state;
+  }
+
+  public String getAuctionId()
+  {
+    return _auctionId;
+  }
+
+  public long getSequence()
+  {
+    return _sequence;
+  }
+
+  public String getUserId()
+  {
+    return _userId;
+  }
+
+  public int getBid()
+  {
+    return _bid;
+  }
+
+  public Auction.State getState()
+  {
+    return _state;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%1$s[%2$s, %3$d, %4$s, %5$d, %6$s]",
+                         getClass().getSimpleName(),
+                         _auctionId,
+                         _sequence,
+                         _userId,
+                         _bid,
+                         _state);
+  }
+}
@@ -0,0 +1,22 @@
+package examples.auction;
+
+import java.util.List;
+
+import io.baratine.service.Api;
+import io.baratine.service.Modify;
+import io.baratine.service.Result;
+import io.baratine.vault.Asset;
+
+/**
+ * Page of older bids spilled out of an auction's inline bid history.
+ * Pages are append-only: a page is written once and never modified.
+ */
+@Asset
+@Api
+public interface AuctionBidPage
+{
+  @Modify
+  void write(byte[] bids, Result<Boolean> result);
+
+  void get(Result<List<Auction.Bid>> result);
+}
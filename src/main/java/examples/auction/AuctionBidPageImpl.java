@@ -0,0 +1,70 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import io.baratine.service.Modify;
+import io.baratine.service.Result;
+import io.baratine.vault.AutoCreate;
+import io.baratine.vault.Id;
+
+/**
+ * Stored bid page. Pages are addressed by auction id and page index, so
+ * a page is created by its first write.
+ */
+@AutoCreate
+public class AuctionBidPageImpl implements AuctionBidPage
+{
+  private final static Logger log
+    = Logger.getLogger(AuctionBidPageImpl.class.getName());
+
+  @Id
+  private String _id;
+
+  private byte[] _bids;
+
+  public AuctionBidPageImpl()
+  {
+  }
+
+  @Override
+  @Modify
+  public void write(byte[] bids, Result<Boolean> result)
+  {
+    if (_bids != null) {
+      log.warning(String.format("bid page %1$s is already written", _id));
+
+      result.ok(false);
+
+      return;
+    }
+
+    _bids = bids;
+
+    result.ok(true);
+  }
+
+  @Override
+  public void get(Result<List<Auction.Bid>> result)
+  {
+    if (_bids != null) {
+      BidLog log = BidLog.decode(_bids);
+
+      result.ok(log.getBids(0, log.size()));
+    }
+    else
+      result.ok(new ArrayList<>());
+  }
+
+  @Override
+  public String toString()
+  {
+    return AuctionBidPageImpl.class.getSimpleName()
+           + "["
+           + _id
+           + ", "
+           + (_bids == null ? 0 : _bids.length)
+           + "]";
+  }
+}
@@ -0,0 +1,13 @@
+package examples.auction;
+
+import io.baratine.service.Service;
+import io.baratine.vault.Vault;
+
+/**
+ * Append-only store of spilled bid pages, keyed by auction id and page
+ * index.
+ */
+@Service("/AuctionBidPage")
+public interface AuctionBidPageVault extends Vault<String,AuctionBidPageImpl>
+{
+}
@@ -0,0 +1,11 @@
+package examples.auction;
+
+import io.baratine.service.Result;
+
+/**
+ * Closes open auctions when their close time is reached.
+ */
+public interface AuctionCloseScheduler
+{
+  void schedule(String auctionId, long closeTime, Result<Void> result);
+}
@@ -0,0 +1,168 @@
+package examples.auction;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import io.baratine.service.OnInit;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.service.Startup;
+import io.baratine.timer.Timers;
+import io.baratine.vault.IdAsset;
+
+/**
+ * Close scheduler backed by a TimingWheel.
+ * <p>
+ * Auctions are grouped into one-second close buckets, and a single timer
+ * is armed for the next bucket instead of one timer per auction. Due
+ * auctions are closed with at most MAX_CLOSING close calls in flight, so a
+ * bucket of many auctions doesn't flood the auction inboxes at once.
+ * <p>
+ * The wheel is in memory. The scheduler starts with the server and
+ * rebuilds it from the close times of the auctions that are still open.
+ */
+@Startup
+@Service("/AuctionCloseScheduler")
+public class AuctionCloseSchedulerImpl implements AuctionCloseScheduler
+{
+  private final static Logger log
+    = Logger.getLogger(AuctionCloseSchedulerImpl.class.getName());
+
+  public static final long TICK_MS = 1000;
+  public static final int WHEEL_SIZE = 64;
+  public static final int LEVELS = 4;
+
+  public static final int MAX_CLOSING = 64;
+
+  @Inject
+  private Services _manager;
+
+  @Inject
+  @Service("/Auction")
+  private AuctionVault _auctions;
+
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private TimingWheel<String> _wheel;
+
+  private long _armedTime = Long.MAX_VALUE;
+
+  private final ArrayDeque<String> _due = new ArrayDeque<>();
+  private int _closing;
+
+  @OnInit
+  public void init()
+  {
+    _wheel = new TimingWheel<>(TICK_MS,
+                               WHEEL_SIZE,
+                               LEVELS,
+                               System.currentTimeMillis());
+
+    _auctions.findIdsByState(Auction.State.OPEN, (ids, e) -> {
+      if (e != null)
+        log.log(Level.WARNING, e.toString(), e);
+      else
+        rebuild(ids);
+    });
+  }
+
+  private void rebuild(List<IdAsset> ids)
+  {
+    log.fine(String.format("rebuilding close schedule for %1$d open auctions",
+                           ids.size()));
+
+    for (IdAsset id : ids) {
+      getAuction(id.toString()).getSummary((summary, e) -> {
+        if (e != null)
+          log.log(Level.WARNING, e.toString(), e);
+        else if (summary.getState() == Auction.State.OPEN)
+          add(summary.getId(), summary.getCloseTime());
+      });
+    }
+  }
+
+  @Override
+  public void schedule(String auctionId, long closeTime, Result<Void> result)
+  {
+    add(auctionId, closeTime);
+
+    result.ok(null);
+  }
+
+  private void add(String auctionId, long closeTime)
+  {
+    _wheel.add(auctionId, closeTime);
+
+    arm();
+  }
+
+  /**
+   * Arms a timer for the next bucket unless an earlier one is armed.
+   */
+  private void arm()
+  {
+    long next = _wheel.nextExpiration();
+
+    if (next < _armedTime) {
+      _armedTime = next;
+
+      _timers.runAt(x -> onTimer(next), next, Result.ignore());
+    }
+  }
+
+  private void onTimer(long time)
+  {
+    if (time == _armedTime)
+      _armedTime = Long.MAX_VALUE;
+
+    List<String> expired = _wheel.advance(time);
+
+    if (! expired.isEmpty()) {
+      log.finer(String.format("closing %1$d auctions at %2$d",
+                              expired.size(),
+                              time));
+
+      _due.addAll(expired);
+
+      closeNext();
+    }
+
+    arm();
+  }
+
+  private void closeNext()
+  {
+    while (_closing < MAX_CLOSING && ! _due.isEmpty()) {
+      String auctionId = _due.poll();
+
+      _closing++;
+
+      getAuction(auctionId).closeOnTimer((x, e) -> {
+        _closing--;
+
+        if (e != null)
+          log.log(Level.FINE, e.toString(), e);
+
+        closeNext();
+      });
+    }
+  }
+
+  private Auction getAuction(String id)
+  {
+    return _manager.service(Auction.class, id);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _wheel + "]";
+  }
+}
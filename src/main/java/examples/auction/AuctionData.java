@@ -2,7 +2,6 @@ package examples.auction;
 
 import java.io.Serializable;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 
 import static examples.auction.Auction.State;
 
@@ -19,7 +18,7 @@ public class AuctionData implements Serializable
 
   private String ownerId;
 
-  private ArrayList<Auction.Bid> bids;
+  private BidLog bids;
 
   private AuctionImpl.BidImpl lastBid;
 
@@ -29,6 +28,8 @@ public class AuctionData implements Serializable
   private String winnerId;
   private String settlementId;
 
+  private long sequence;
+
   public AuctionData()
   {
   }
@@ -38,11 +39,12 @@ public class AuctionData implements Serializable
                      int startingBid,
                      ZonedDateTime dateToClose,
                      String ownerId,
-                     ArrayList<Auction.Bid> bids,
+                     BidLog bids,
                      AuctionImpl.BidImpl lastBid,
                      State state,
                      String winner,
-                     String settlementId)
+                     String settlementId,
+                     long sequence)
   {
     this.encodedId = encodedId;
     this.title = title;
@@ -54,6 +56,7 @@ public class AuctionData implements Serializable
     this.state = state;
     this.winnerId = winner;
     this.settlementId = settlementId;
+    this.sequence = sequence;
   }
 
   public String getEncodedId()
@@ -123,6 +126,14 @@ public class AuctionData implements Serializable
     return state;
   }
 
+  /**
+   * Event sequence of the auction at the time of the snapshot.
+   */
+  public long getSequence()
+  {
+    return sequence;
+  }
+
   @Override
   public String toString()
   {
@@ -0,0 +1,189 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import io.baratine.service.AfterBatch;
+import io.baratine.service.OnInit;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.ServiceRef;
+import io.baratine.timer.Timers;
+import io.baratine.web.Get;
+import io.baratine.web.Query;
+
+import examples.auction.AuctionSession.WebAuction;
+import examples.auction.AuctionSession.WebAuctionEvent;
+
+/**
+ * Long-poll feed of an auction's updates at
+ * /auction-events?id=auctionId&amp;after=sequence.
+ * <p>
+ * A poll answers with the list of WebAuctionEvents after the given event
+ * sequence. The updates come from the AuctionUpdateHub's replay ring, or
+ * are replaced by the current state if the missed ones are no longer kept.
+ * A poll without a sequence gets the current state. The client polls again
+ * after the last sequence it got. Unlike /user/auction-updates, a poll
+ * needs no login or session.
+ * <p>
+ * A poll with nothing to send waits for the next update, and is answered
+ * with an empty list after POLL_TICKS ticks of POLL_TICK. Updates that
+ * arrive together, e.g. a replay, are answered as one list after the
+ * service's inbox batch.
+ * <p>
+ * The polls are owned by this service: the hub's updates reach them
+ * through a listener proxy pinned to the service.
+ */
+@Service("/AuctionEventPoll")
+public class AuctionEventPollImpl
+{
+  public static final long POLL_TICK = TimeUnit.SECONDS.toMillis(5);
+  public static final int POLL_TICKS = 5;
+
+  @Inject
+  @Service("/AuctionUpdateHub")
+  private AuctionUpdateHub _updateHub;
+
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private final HashMap<String,Poll> _polls = new HashMap<>();
+
+  private final LinkedHashSet<Poll> _ready = new LinkedHashSet<>();
+
+  private long _pollCount;
+
+  @OnInit
+  public void init()
+  {
+    _timers.runEvery(x -> tick(),
+                     POLL_TICK,
+                     TimeUnit.MILLISECONDS,
+                     Result.ignore());
+  }
+
+  @Get("/auction-events")
+  public void auctionEvents(@Query("id") String auctionId,
+                            @Query("after") String after,
+                            Result<List<WebAuctionEvent>> result)
+  {
+    if (auctionId == null || auctionId.isEmpty()) {
+      result.fail(new IllegalArgumentException("missing auction id"));
+
+      return;
+    }
+
+    long sequence = parseSequence(after);
+
+    String key = "poll-" + (++_pollCount);
+
+    Poll poll = new Poll(key, auctionId, result);
+
+    _polls.put(key, poll);
+
+    // the hub delivers through a proxy bound to this service, so updates
+    // and timeouts run in this service's context
+    AuctionUpdateListener listener = ServiceRef.current()
+                                               .pin(poll)
+                                               .as(AuctionUpdateListener.class);
+
+    _updateHub.resume(auctionId, key, listener, sequence, Result.ignore());
+  }
+
+  static long parseSequence(String value)
+  {
+    if (value == null)
+      return -1;
+
+    try {
+      return Math.max(-1, Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Answers the polls that got updates in this batch.
+   */
+  @AfterBatch
+  public void afterBatch()
+  {
+    if (_ready.isEmpty())
+      return;
+
+    List<Poll> ready = new ArrayList<>(_ready);
+    _ready.clear();
+
+    for (Poll poll : ready) {
+      complete(poll);
+    }
+  }
+
+  /**
+   * Answers the polls that waited POLL_TICKS ticks without an update.
+   */
+  private void tick()
+  {
+    for (Poll poll : new ArrayList<>(_polls.values())) {
+      if (++poll._ticks >= POLL_TICKS)
+        complete(poll);
+    }
+  }
+
+  private void complete(Poll poll)
+  {
+    if (_polls.remove(poll._key) == null)
+      return;
+
+    _ready.remove(poll);
+
+    _updateHub.unsubscribe(poll._auctionId, poll._key, Result.ignore());
+
+    poll._result.ok(poll._events);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _polls.size() + "]";
+  }
+
+  private class Poll implements AuctionUpdateListener
+  {
+    private final String _key;
+    private final String _auctionId;
+    private final Result<List<WebAuctionEvent>> _result;
+
+    private final List<WebAuctionEvent> _events = new ArrayList<>();
+    private int _ticks;
+
+    Poll(String key,
+         String auctionId,
+         Result<List<WebAuctionEvent>> result)
+    {
+      _key = key;
+      _auctionId = auctionId;
+      _result = result;
+    }
+
+    @Override
+    public void onUpdate(String auctionId,
+                         long sequence,
+                         WebAuction auction,
+                         String frame)
+    {
+      if (! _polls.containsKey(_key))
+        return;
+
+      _events.add(WebAuctionEvent.of(sequence, auction));
+
+      _ready.add(this);
+    }
+  }
+}
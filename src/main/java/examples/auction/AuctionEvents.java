@@ -2,7 +2,7 @@ package examples.auction;
 
 public interface AuctionEvents
 {
-  void onBid(AuctionData auctionData);
+  void onBid(AuctionBidEvent bidEvent);
 
   void onClose(AuctionData auctionData);
 
@@ -3,6 +3,7 @@ package examples.auction;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,7 +14,6 @@ import io.baratine.service.Modify;
 import io.baratine.service.Result;
 import io.baratine.service.Service;
 import io.baratine.service.Services;
-import io.baratine.timer.Timers;
 import io.baratine.vault.Id;
 import io.baratine.vault.IdAsset;
 
@@ -22,6 +22,13 @@ public class AuctionImpl implements Auction
   private final static Logger log
     = Logger.getLogger(AuctionImpl.class.getName());
 
+  private static final LatencyHistogram BID_ACCEPTED_TIMER
+    = Metrics.timer("Auction", "bid", "accepted");
+  private static final LatencyHistogram BID_REJECTED_TIMER
+    = Metrics.timer("Auction", "bid", "rejected");
+  private static final LatencyHistogram CLOSE_TIMER
+    = Metrics.timer("Auction", "close", "closed");
+
   @Id
   private IdAsset _id;
 
@@ -34,15 +41,19 @@ public class AuctionImpl implements Auction
 
   private String _ownerId;
 
-  private ArrayList<Bid> _bids = new ArrayList<>();
+  private BidHistory _bids = new BidHistory();
 
   private BidImpl _lastBid;
 
+  private ProxyBids _proxies = new ProxyBids();
+
   private State _state = State.INIT;
 
   private String _winnerId;
   private String _settlementId;
 
+  private long _sequence;
+
   private BoundState _boundState = BoundState.UNBOUND;
 
   @Inject
@@ -57,12 +68,16 @@ public class AuctionImpl implements Auction
   private transient AuditService _audit;
 
   @Inject
-  @Service("event:")
-  private transient EventsSync _events;
+  @Service("/AuctionSuggest")
+  private transient AuctionSuggest _suggest;
 
   @Inject
-  @Service
-  private transient Timers _timers;
+  @Service("/AuctionCloseScheduler")
+  private transient AuctionCloseScheduler _closeScheduler;
+
+  @Inject
+  @Service("event:")
+  private transient EventsSync _events;
 
   private transient AuctionEvents _auctionEvents;
 
@@ -70,6 +85,25 @@ public class AuctionImpl implements Auction
   {
   }
 
+  /**
+   * Open auction outside of a vault, for the benchmarks. Calls that need
+   * the injected services aren't available on it.
+   */
+  AuctionImpl(String encodedId,
+              AuctionDataInit initData,
+              ZonedDateTime dateToClose)
+  {
+    _encodedId = encodedId;
+
+    _ownerId = initData.getUserId();
+    _title = initData.getTitle();
+    _startingBid = initData.getStartingBid();
+    _dateToClose = dateToClose;
+
+    _boundState = BoundState.BOUND;
+    _state = State.OPEN;
+  }
+
   @Override
   @Modify
   public void create(AuctionDataInit initData,
@@ -79,7 +113,7 @@ public class AuctionImpl implements Auction
     date = date.plusSeconds(15);
     ZonedDateTime closingDate = date;
 
-    _audit.auctionCreate(initData, Result.<Void>ignore());
+    _audit.auctionCreate(_id.toString(), initData, Result.<Void>ignore());
 
     _ownerId = initData.getUserId();
     _title = initData.getTitle();
@@ -90,7 +124,7 @@ public class AuctionImpl implements Auction
 
     _encodedId = _id.toString();
 
-    auctionId.ok(_id);
+    AuctionTitleIndex.add(_manager, _id, _title, auctionId.then(x -> _id));
   }
 
   public String getWinner()
@@ -135,7 +169,9 @@ public class AuctionImpl implements Auction
 
       toOpen();
 
-      startCloseTimer();
+      _suggest.put(getEncodedId(), _title, _startingBid, Result.ignore());
+
+      scheduleClose();
 
       result.ok(true);
     }
@@ -147,16 +183,18 @@ public class AuctionImpl implements Auction
     }
   }
 
-  private void startCloseTimer()
+  private void scheduleClose()
   {
-    _timers.runAt((x) -> closeOnTimer(Result.ignore()),
-                  getDateToClose().toInstant().toEpochMilli(),
-                  Result.ignore());
+    _closeScheduler.schedule(getEncodedId(),
+                             getDateToClose().toInstant().toEpochMilli(),
+                             Result.ignore());
 
-    log.finer("start timer for auction: " + getAuctionDataPublic());
+    log.finer("schedule close for auction: " + getAuctionDataPublic());
   }
 
-  void closeOnTimer(Result<Boolean> result)
+  @Override
+  @Modify
+  public void closeOnTimer(Result<Boolean> result)
   {
     if (_state == State.OPEN)
       close(result);
@@ -170,6 +208,8 @@ public class AuctionImpl implements Auction
     if (_boundState == BoundState.UNBOUND)
       throw new IllegalStateException();
 
+    long start = System.nanoTime();
+
     log.warning("close: " + this);
 
     System.out.println("AuctionImpl.close: 0");
@@ -179,13 +219,27 @@ public class AuctionImpl implements Auction
 
       toClose();
 
+      _suggest.remove(getEncodedId(), Result.ignore());
+
+      _sequence++;
+
+      _proxies.clear();
+
       getAuctionEvents().onClose(getAuctionDataPublic());
 
       System.out.println("AuctionImpl.close: 1");
 
       settle();
 
-      result.ok(true);
+      CLOSE_TIMER.recordSince(start);
+
+      if (getLastBid() == null) {
+        // without a bid there is nothing to settle or refund
+        AuctionTitleIndex.remove(_manager, _id, _title, result.then(x -> true));
+      }
+      else {
+        result.ok(true);
+      }
     }
     else {
       throw new IllegalStateException(
@@ -226,18 +280,19 @@ public class AuctionImpl implements Auction
     }
   }
 
-  private AuctionData getAuctionDataPublic()
+  AuctionData getAuctionDataPublic()
   {
     return new AuctionData(getEncodedId(),
                            _title,
                            _startingBid,
                            _dateToClose,
                            _ownerId,
-                           _bids,
+                           _bids.getRecent(),
                            _lastBid,
                            _state,
                            _winnerId,
-                           _settlementId);
+                           _settlementId,
+                           _sequence);
   }
 
   public String getEncodedId()
@@ -283,24 +338,151 @@ public class AuctionImpl implements Auction
     if (_boundState == BoundState.UNBOUND)
       throw new IllegalStateException();
 
-    _audit.auctionBid(getAuctionDataPublic(), bid, Result.<Void>ignore());
+    long start = System.nanoTime();
 
     boolean isAccepted = bid(bid.getUser(), bid.getBid());
 
     if (isAccepted) {
-      _audit.auctionBidAccept(bid, Result.ignore());
+      _audit.auctionBidAccept(getEncodedId(), bid, Result.ignore());
 
-      getAuctionEvents().onBid(getAuctionDataPublic());
+      resolveProxies();
+
+      publishBid();
+
+      BID_ACCEPTED_TIMER.recordSince(start);
 
       result.ok(true);
     }
     else {
-      _audit.auctionBidReject(bid, Result.ignore());
+      _audit.auctionBidReject(getEncodedId(), bid, Result.ignore());
+
+      BID_REJECTED_TIMER.recordSince(start);
 
       result.ok(false);
     }
   }
 
+  /**
+   * Bids from a bulk client. Each bid is audited and answered by the
+   * proxies, but the price update and the bid event are sent once for the
+   * batch with the final price, since watchers only show the latest bid.
+   */
+  @Override
+  @Modify
+  public void bids(List<AuctionBid> bids, Result<List<Boolean>> result)
+  {
+    if (_boundState == BoundState.UNBOUND)
+      throw new IllegalStateException();
+
+    ArrayList<Boolean> accepted = new ArrayList<>(bids.size());
+    boolean isChanged = false;
+
+    for (AuctionBid bid : bids) {
+      long start = System.nanoTime();
+
+      boolean isAccepted = _state == State.OPEN
+                           && bid(bid.getUser(), bid.getBid());
+
+      if (isAccepted) {
+        _audit.auctionBidAccept(getEncodedId(), bid, Result.ignore());
+
+        resolveProxies();
+
+        isChanged = true;
+
+        BID_ACCEPTED_TIMER.recordSince(start);
+      }
+      else {
+        _audit.auctionBidReject(getEncodedId(), bid, Result.ignore());
+
+        BID_REJECTED_TIMER.recordSince(start);
+      }
+
+      accepted.add(isAccepted);
+    }
+
+    if (isChanged)
+      publishBid();
+
+    result.ok(accepted);
+  }
+
+  /**
+   * Registers or raises the bidder's private maximum. The proxies answer
+   * at once, so only the resulting price change is published.
+   *
+   * @param maxBid the bidder and the maximum
+   * @param result false if the maximum is not over the current price or
+   *               the bidder's previous maximum
+   */
+  @Override
+  @Modify
+  public void proxyBid(AuctionBid maxBid, Result<Boolean> result)
+  {
+    if (_boundState == BoundState.UNBOUND)
+      throw new IllegalStateException();
+
+    if (_state != State.OPEN) {
+      throw new IllegalStateException("auction cannot be bid in " + _state);
+    }
+
+    if (! _proxies.put(maxBid.getUser(), maxBid.getBid(), getPrice())) {
+      _audit.auctionBidReject(getEncodedId(), maxBid, Result.ignore());
+
+      result.ok(false);
+
+      return;
+    }
+
+    if (resolveProxies())
+      publishBid();
+
+    result.ok(true);
+  }
+
+  /**
+   * Lets the proxies answer the current price. The proxy bids settle
+   * in a single visible bid, one increment over the runner-up.
+   *
+   * @return true if a proxy placed a bid
+   */
+  private boolean resolveProxies()
+  {
+    Bid last = getLastBid();
+
+    AuctionBid bid = _proxies.resolve(last != null ? last.getUserId() : null,
+                                      getPrice());
+
+    if (bid == null)
+      return false;
+
+    bid(bid.getUser(), bid.getBid());
+
+    _audit.auctionBidAccept(getEncodedId(), bid, Result.ignore());
+
+    return true;
+  }
+
+  private int getPrice()
+  {
+    Bid last = getLastBid();
+
+    return last != null ? last.getBid() : _startingBid;
+  }
+
+  private void publishBid()
+  {
+    Bid bid = getLastBid();
+
+    _suggest.updatePrice(getEncodedId(), bid.getBid(), Result.ignore());
+
+    getAuctionEvents().onBid(new AuctionBidEvent(getEncodedId(),
+                                                 ++_sequence,
+                                                 bid.getUserId(),
+                                                 bid.getBid(),
+                                                 _state));
+  }
+
   private AuctionEvents getAuctionEvents()
   {
     if (_auctionEvents == null)
@@ -309,7 +491,7 @@ public class AuctionImpl implements Auction
     return _auctionEvents;
   }
 
-  private boolean bid(String bidderId, int bid)
+  boolean bid(String bidderId, int bid)
     throws IllegalStateException
   {
     if (_state != State.OPEN) {
@@ -321,9 +503,15 @@ public class AuctionImpl implements Auction
     int currentPrice = last == null ? _startingBid : last.getBid();
 
     if (bid > currentPrice) {
-      BidImpl nextBid = new BidImpl(bidderId, _encodedId, bid);
+      BidImpl nextBid = new BidImpl(bidderId,
+                                    _encodedId,
+                                    bid,
+                                    System.currentTimeMillis());
 
-      _bids.add(nextBid);
+      BidLog page = _bids.add(nextBid);
+
+      if (page != null)
+        spillBids(_bids.getPageCount(), page);
 
       _lastBid = nextBid;
 
@@ -334,6 +522,102 @@ public class AuctionImpl implements Auction
     }
   }
 
+  void spillBids(int index, BidLog bids)
+  {
+    getBidPage(index).write(bids.encode(), (x, e) -> {
+      if (e != null) {
+        log.log(Level.WARNING,
+                String.format("failed to write bid page %1$d for %2$s",
+                              index,
+                              getEncodedId()),
+                e);
+
+        _bids.onSpillFailed(index);
+      }
+      else {
+        // false means an earlier attempt wrote the page; the bids are the
+        // same, since they stay inline until confirmed
+        onBidsSpilled(index);
+      }
+    });
+  }
+
+  void onBidsSpilled(int index)
+  {
+    _bids.onSpilled(index);
+  }
+
+  private AuctionBidPage getBidPage(int index)
+  {
+    return _manager.service(AuctionBidPage.class,
+                            getEncodedId() + '.' + index);
+  }
+
+  /**
+   * Returns bids in the range [offset, offset + limit), oldest first.
+   * Bids spilled out of the inline history are read from their pages.
+   */
+  @Override
+  public void getBidHistory(int offset,
+                            int limit,
+                            Result<List<Bid>> result)
+  {
+    if (offset < 0 || limit < 0) {
+      throw new IllegalArgumentException(
+        String.format("invalid bid range offset=%1$d limit=%2$d",
+                      offset,
+                      limit));
+    }
+
+    int end = (int) Math.min((long) offset + limit, _bids.size());
+
+    if (end <= offset) {
+      result.ok(new ArrayList<>());
+
+      return;
+    }
+
+    int recentOffset = _bids.getRecentOffset();
+
+    if (recentOffset <= offset) {
+      result.ok(_bids.getRecent(offset, end));
+
+      return;
+    }
+
+    List<Bid> recent = recentOffset < end
+                       ? _bids.getRecent(recentOffset, end)
+                       : new ArrayList<>();
+
+    int firstPage = offset / BidHistory.PAGE_SIZE;
+    int lastPage = (Math.min(end, recentOffset) - 1) / BidHistory.PAGE_SIZE;
+
+    Result.Fork<List<Bid>,List<Bid>> fork = result.fork();
+
+    for (int i = firstPage; i <= lastPage; i++) {
+      getBidPage(i).get(fork.branch());
+    }
+
+    fork.join(pages -> {
+      ArrayList<Bid> bids = new ArrayList<>();
+
+      int index = firstPage * BidHistory.PAGE_SIZE;
+
+      for (List<Bid> page : pages) {
+        for (Bid bid : page) {
+          if (offset <= index && index < end)
+            bids.add(bid);
+
+          index++;
+        }
+      }
+
+      bids.addAll(recent);
+
+      return bids;
+    });
+  }
+
   @Override
   @Modify
   public void setAuctionWinner(String user, Result<Boolean> result)
@@ -364,6 +648,10 @@ public class AuctionImpl implements Auction
   {
     toSettled();
 
+    _suggest.remove(getEncodedId(), Result.ignore());
+
+    _sequence++;
+
     result.ok(true);
 
     getAuctionEvents().onSettled(getAuctionDataPublic());
@@ -383,9 +671,11 @@ public class AuctionImpl implements Auction
   {
     toRolledBack();
 
+    _sequence++;
+
     getAuctionEvents().onRolledBack(getAuctionDataPublic());
 
-    result.ok(true);
+    AuctionTitleIndex.remove(_manager, _id, _title, result.then(x -> true));
   }
 
   public void toRolledBack()
@@ -404,6 +694,30 @@ public class AuctionImpl implements Auction
     result.ok(getAuctionDataPublic());
   }
 
+  @Override
+  public void getSummary(Result<AuctionSummary> result)
+  {
+    result.ok(getAuctionSummary());
+  }
+
+  private AuctionSummary getAuctionSummary()
+  {
+    Bid lastBid = getLastBid();
+
+    int price = lastBid != null ? lastBid.getBid() : _startingBid;
+
+    long closeTime = _dateToClose != null
+                     ? _dateToClose.toInstant().toEpochMilli()
+                     : 0;
+
+    return new AuctionSummary(getEncodedId(),
+                              _title,
+                              price,
+                              _state,
+                              closeTime,
+                              _sequence);
+  }
+
   @Override
   public void getSettlementId(Result<String> result)
   {
@@ -445,17 +759,19 @@ public class AuctionImpl implements Auction
     private String _auctionId;
     private String _userId;
     private int _bid;
+    private long _time;
 
     public BidImpl()
     {
 
     }
 
-    BidImpl(String userId, String auctionId, int bid)
+    BidImpl(String userId, String auctionId, int bid, long time)
     {
       _userId = userId;
       _auctionId = auctionId;
       _bid = bid;
+      _time = time;
     }
 
     @Override
@@ -476,6 +792,12 @@ public class AuctionImpl implements Auction
       return _userId;
     }
 
+    @Override
+    public long getTime()
+    {
+      return _time;
+    }
+
     @Override
     public int compareTo(Auction.Bid o)
     {
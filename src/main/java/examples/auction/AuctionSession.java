@@ -1,5 +1,6 @@
 package examples.auction;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.baratine.service.Result;
@@ -19,6 +20,11 @@ public interface AuctionSession
 
   void searchAuctions(String query, Result<List<WebAuction>> result);
 
+  void searchAuctionsPage(String query,
+                          int limit,
+                          String cursor,
+                          Result<WebAuctionPage> result);
+
   void addAuctionListener(String idAuction,
                           Result<Boolean> result);
 
@@ -62,6 +68,33 @@ public interface AuctionSession
       return webAuction;
     }
 
+    public static WebAuction of(AuctionSummary auction)
+    {
+      return new WebAuction(auction.getId(),
+                            auction.getTitle(),
+                            auction.getPrice(),
+                            auction.getState().toString());
+    }
+
+    public static WebAuction of(String id,
+                                String title,
+                                long bid,
+                                Auction.State state)
+    {
+      return new WebAuction(id, title, bid, state.toString());
+    }
+
+    /**
+     * Applies a bid event to a previously built WebAuction.
+     */
+    public static WebAuction of(WebAuction auction, AuctionBidEvent bid)
+    {
+      return new WebAuction(auction.getId(),
+                            auction.getTitle(),
+                            bid.getBid(),
+                            bid.getState().toString());
+    }
+
     public String getId()
     {
       return id;
@@ -95,6 +128,98 @@ public interface AuctionSession
     }
   }
 
+  class WebAuctionPage
+  {
+    private List<WebAuction> auctions;
+    private String cursor;
+
+    public WebAuctionPage()
+    {
+    }
+
+    private WebAuctionPage(List<WebAuction> auctions, String cursor)
+    {
+      this.auctions = auctions;
+      this.cursor = cursor;
+    }
+
+    public static WebAuctionPage of(AuctionSummaryPage page)
+    {
+      List<WebAuction> auctions = new ArrayList<>(page.getAuctions().size());
+
+      for (AuctionSummary auction : page.getAuctions()) {
+        auctions.add(WebAuction.of(auction));
+      }
+
+      return new WebAuctionPage(auctions, page.getCursor());
+    }
+
+    public List<WebAuction> getAuctions()
+    {
+      return auctions;
+    }
+
+    public String getCursor()
+    {
+      return cursor;
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.getClass().getSimpleName() + "["
+             + auctions
+             + ", "
+             + cursor
+             + ']';
+    }
+  }
+
+  /**
+   * An auction update with its event sequence number, as sent by the
+   * /auction-events long poll.
+   */
+  class WebAuctionEvent
+  {
+    private long sequence;
+    private WebAuction auction;
+
+    public WebAuctionEvent()
+    {
+    }
+
+    private WebAuctionEvent(long sequence, WebAuction auction)
+    {
+      this.sequence = sequence;
+      this.auction = auction;
+    }
+
+    public static WebAuctionEvent of(long sequence, WebAuction auction)
+    {
+      return new WebAuctionEvent(sequence, auction);
+    }
+
+    public long getSequence()
+    {
+      return sequence;
+    }
+
+    public WebAuction getAuction()
+    {
+      return auction;
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.getClass().getSimpleName() + "["
+             + sequence
+             + ", "
+             + auction
+             + ']';
+    }
+  }
+
   class UserInitData
   {
     private String user;
@@ -0,0 +1,15 @@
+package examples.auction;
+
+import io.baratine.service.Result;
+
+/**
+ * Batches the winner calls of settlements: the won-auction updates and
+ * credit card reads queued for a user in one inbox batch are made as a
+ * single User call each.
+ */
+public interface AuctionSettlementBatcher
+{
+  void addWonAuction(String userId, String auctionId, Result<Boolean> result);
+
+  void getCreditCard(String userId, Result<CreditCard> result);
+}
@@ -0,0 +1,150 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import io.baratine.service.AfterBatch;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+
+/**
+ * Settlement batcher for auction close waves.
+ * <p>
+ * Each settlement is started durably through the @Ensure
+ * AuctionSettlementVault.settle and keeps its own state machine; only its
+ * calls to the winner go through the batcher. The requests queued during
+ * one inbox batch, up to MAX_BATCH, are grouped by winner: each winner
+ * gets a single addWonAuctions call for all of its auctions and a single
+ * credit card read, whose results are handed back to every settlement.
+ * <p>
+ * Nothing here needs to survive a crash. A lost request fails the
+ * settlement's attempt, which is then resumed by the recovery scanner.
+ */
+@Service("/AuctionSettlementBatcher")
+public class AuctionSettlementBatcherImpl implements AuctionSettlementBatcher
+{
+  public static final int MAX_BATCH = 256;
+
+  @Inject
+  private Services _manager;
+
+  private LinkedHashMap<String,Winner> _pending = new LinkedHashMap<>();
+  private int _pendingCount;
+
+  @Override
+  public void addWonAuction(String userId,
+                            String auctionId,
+                            Result<Boolean> result)
+  {
+    Winner winner = getWinner(userId);
+
+    winner._auctionIds.add(auctionId);
+    winner._wonResults.add(result);
+
+    afterAdd();
+  }
+
+  @Override
+  public void getCreditCard(String userId, Result<CreditCard> result)
+  {
+    getWinner(userId)._cardResults.add(result);
+
+    afterAdd();
+  }
+
+  private Winner getWinner(String userId)
+  {
+    return _pending.computeIfAbsent(userId, Winner::new);
+  }
+
+  private void afterAdd()
+  {
+    if (++_pendingCount >= MAX_BATCH)
+      flush();
+  }
+
+  @AfterBatch
+  public void afterBatch()
+  {
+    flush();
+  }
+
+  private void flush()
+  {
+    if (_pending.isEmpty())
+      return;
+
+    List<Winner> winners = new ArrayList<>(_pending.values());
+
+    _pending = new LinkedHashMap<>();
+    _pendingCount = 0;
+
+    for (Winner winner : winners) {
+      User user = getUser(winner._userId);
+
+      if (! winner._auctionIds.isEmpty())
+        addWonAuctions(user, winner);
+
+      if (! winner._cardResults.isEmpty())
+        getCreditCard(user, winner);
+    }
+  }
+
+  private void addWonAuctions(User user, Winner winner)
+  {
+    List<Result<Boolean>> results = winner._wonResults;
+
+    user.addWonAuctions(winner._auctionIds, (accepted, e) -> {
+      for (int i = 0; i < results.size(); i++) {
+        if (e != null)
+          results.get(i).fail(e);
+        else
+          results.get(i).ok(accepted.get(i));
+      }
+    });
+  }
+
+  private void getCreditCard(User user, Winner winner)
+  {
+    List<Result<CreditCard>> results = winner._cardResults;
+
+    user.getCreditCard((creditCard, e) -> {
+      for (Result<CreditCard> result : results) {
+        if (e != null)
+          result.fail(e);
+        else
+          result.ok(creditCard);
+      }
+    });
+  }
+
+  protected User getUser(String userId)
+  {
+    return _manager.service(User.class, userId);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _pendingCount + "]";
+  }
+
+  private static class Winner
+  {
+    private final String _userId;
+
+    private final ArrayList<String> _auctionIds = new ArrayList<>();
+    private final ArrayList<Result<Boolean>> _wonResults = new ArrayList<>();
+    private final ArrayList<Result<CreditCard>> _cardResults
+      = new ArrayList<>();
+
+    Winner(String userId)
+    {
+      _userId = userId;
+    }
+  }
+}
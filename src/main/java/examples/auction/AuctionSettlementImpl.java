@@ -22,6 +22,13 @@ public class AuctionSettlementImpl implements AuctionSettlement
   private final static Logger log
     = Logger.getLogger(AuctionSettlementImpl.class.getName());
 
+  private static final LatencyHistogram SETTLE_SUCCESS_TIMER
+    = Metrics.timer("AuctionSettlement", "settlePending", "success");
+  private static final LatencyHistogram SETTLE_PENDING_TIMER
+    = Metrics.timer("AuctionSettlement", "settlePending", "pending");
+  private static final LatencyHistogram SETTLE_FAIL_TIMER
+    = Metrics.timer("AuctionSettlement", "settlePending", "fail");
+
   @Id
   private IdAsset _id;
   private String _encodedId;
@@ -30,7 +37,12 @@ public class AuctionSettlementImpl implements AuctionSettlement
 
   private SettlementTransactionState _state;
 
-  private boolean _inProgress = false;
+  // copy of the overall status, queried by the recovery scanner
+  private Status _status;
+
+  // an attempt is running in this process; not persisted, since a crash
+  // ends it
+  private transient boolean _inProgress = false;
 
   @Inject
   @Service("/PayPal")
@@ -40,6 +52,11 @@ public class AuctionSettlementImpl implements AuctionSettlement
   @Service("/Audit")
   private transient AuditService _audit;
 
+  // winner calls of settlements closing together are batched per user
+  @Inject
+  @Service("/AuctionSettlementBatcher")
+  private transient AuctionSettlementBatcher _batcher;
+
   @Inject
   private transient Services _manager;
 
@@ -53,6 +70,8 @@ public class AuctionSettlementImpl implements AuctionSettlement
     _bid = data.getLastBid();
     _state = new SettlementTransactionState();
 
+    updateStatus();
+
     result.ok(_id);
   }
 
@@ -61,6 +80,12 @@ public class AuctionSettlementImpl implements AuctionSettlement
   public void settle(Auction.Bid bid,
                      Result<Status> status)
   {
+    if (_inProgress) {
+      status.ok(Status.SETTLING);
+
+      return;
+    }
+
     _bid = bid;
 
     log.finer(String.format("settle %1$s", this));
@@ -70,9 +95,21 @@ public class AuctionSettlementImpl implements AuctionSettlement
     settleImpl(status);
   }
 
+  /**
+   * Starts a settle attempt. While one is running, another attempt would
+   * repeat its user update and payment, so the call is refused with the
+   * SETTLING status and the caller retries later.
+   */
   private void settleImpl(Result<Status> status)
   {
-    if (_state.getSettleStatus() == Status.SETTLE_FAILED) {
+    if (_inProgress) {
+      log.finer(String.format("settle already in progress %1$s", this));
+
+      status.ok(Status.SETTLING);
+
+      return;
+    }
+    else if (_state.getSettleStatus() == Status.SETTLE_FAILED) {
       status.ok(_state.getSettleStatus());
 
       return;
@@ -86,9 +123,15 @@ public class AuctionSettlementImpl implements AuctionSettlement
 
   public void settlePending(Result<Status> status)
   {
+    long start = System.nanoTime();
+
     try {
       Result.Fork<Boolean,Status> fork = status.fork();
-      fork.fail((l, t, r) -> this.settleFail(r));
+      fork.fail((l, t, r) -> {
+        SETTLE_FAIL_TIMER.recordSince(start);
+
+        this.settleFail(r);
+      });
 
       updateUser(fork.branch());
       updateAuction(fork.branch());
@@ -98,9 +141,16 @@ public class AuctionSettlementImpl implements AuctionSettlement
         boolean isSuccess = l.get(0) && l.get(1) && l.get(2);
 
         if (isSuccess) {
+          SETTLE_SUCCESS_TIMER.recordSince(start);
+
           settleComplete(r);
         }
         else {
+          if (_state.getPaymentState() == PaymentTxState.PENDING)
+            SETTLE_PENDING_TIMER.recordSince(start);
+          else
+            SETTLE_FAIL_TIMER.recordSince(start);
+
           settleFail(r);
         }
       });
@@ -115,8 +165,9 @@ public class AuctionSettlementImpl implements AuctionSettlement
       status.ok(true);
     }
     else {
-      getWinner().addWonAuction(_bid.getAuctionId(),
-                                status.then(x -> afterUserUpdated(x)));
+      _batcher.addWonAuction(_bid.getUserId(),
+                             _bid.getAuctionId(),
+                             status.then(x -> afterUserUpdated(x)));
     }
   }
 
@@ -162,6 +213,12 @@ public class AuctionSettlementImpl implements AuctionSettlement
 
   public void chargeUser(Result<Boolean> status)
   {
+    if (_state.getPaymentState() == PaymentTxState.SUCCESS) {
+      status.ok(true);
+
+      return;
+    }
+
     final ValueRef<AuctionData> auctionData = new ValueRef();
     final ValueRef<CreditCard> creditCard = new ValueRef();
 
@@ -179,7 +236,7 @@ public class AuctionSettlementImpl implements AuctionSettlement
       return a != null;
     }));
 
-    getWinner().getCreditCard(fork.branch().then(c -> {
+    _batcher.getCreditCard(_bid.getUserId(), fork.branch().then(c -> {
       creditCard.set(c);
       return c != null;
     }));
@@ -234,6 +291,7 @@ public class AuctionSettlementImpl implements AuctionSettlement
     getAuction().setSettled(result.then((x, r) -> {
       _state.setAuctionStateUpdateState(AuctionUpdateState.SUCCESS);
       _state.setSettleStatus(Status.SETTLED);
+      updateStatus();
       _inProgress = false;
       r.ok(Status.SETTLED);
     }));
@@ -259,6 +317,7 @@ public class AuctionSettlementImpl implements AuctionSettlement
 
     //audit
     _state.setSettleStatus(status);
+    updateStatus();
 
     _inProgress = false;
 
@@ -286,6 +345,7 @@ public class AuctionSettlementImpl implements AuctionSettlement
     }
 
     _state.toRefund();
+    updateStatus();
 
     refundImpl(status);
   }
@@ -436,14 +496,29 @@ public class AuctionSettlementImpl implements AuctionSettlement
 
     if (result) {
       status = Status.ROLLED_BACK;
-      getAuction().setRolledBack((b, t) -> _state.setRefundStatus(Status.ROLLED_BACK));
+      getAuction().setRolledBack((b, t) -> {
+        _state.setRefundStatus(Status.ROLLED_BACK);
+        updateStatus();
+      });
     }
 
     _state.setRefundStatus(status);
+    updateStatus();
 
     return status;
   }
 
+  private void updateStatus()
+  {
+    if (! _state.isRefunding())
+      _status = _state.getSettleStatus();
+    else if (_state.getRefundStatus() == Status.NONE)
+      _status = Status.ROLLING_BACK;
+    else
+      _status = _state.getRefundStatus();
+  }
+
+  @Modify
   @Override
   public void settleResume(Result<Status> status)
   {
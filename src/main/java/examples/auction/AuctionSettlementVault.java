@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.List;
+
 import io.baratine.service.Ensure;
 import io.baratine.service.Result;
 import io.baratine.service.Service;
@@ -13,6 +15,13 @@ public interface AuctionSettlementVault
 {
   void create(AuctionData data, Result<IdAsset> result);
 
+  /**
+   * Derived finder, used by the recovery scanner to find unfinished
+   * settlements.
+   */
+  void findIdsByStatus(AuctionSettlement.Status status,
+                       Result<List<IdAsset>> result);
+
   @Ensure
   default void settle(String id,
                       Auction.Bid bid,
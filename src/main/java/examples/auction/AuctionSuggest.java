@@ -0,0 +1,21 @@
+package examples.auction;
+
+import java.util.List;
+
+import io.baratine.service.Result;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Typeahead suggestions over the titles of open auctions.
+ */
+public interface AuctionSuggest
+{
+  void put(String auctionId, String title, int price, Result<Void> result);
+
+  void updatePrice(String auctionId, int price, Result<Void> result);
+
+  void remove(String auctionId, Result<Void> result);
+
+  void suggest(String prefix, int limit, Result<List<WebAuction>> result);
+}
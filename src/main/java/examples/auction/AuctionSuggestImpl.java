@@ -0,0 +1,124 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import io.baratine.service.OnInit;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.service.Startup;
+import io.baratine.vault.IdAsset;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * In-memory suggestion index of open auctions, ranked by current price.
+ * Auctions are added when opened, re-ranked on accepted bids and removed
+ * when closed or settled.
+ * <p>
+ * The trie is in memory. The service starts with the server and loads
+ * the auctions that are still open.
+ */
+@Service("/AuctionSuggest")
+@Startup
+public class AuctionSuggestImpl implements AuctionSuggest
+{
+  private final static Logger log
+    = Logger.getLogger(AuctionSuggestImpl.class.getName());
+
+  public static final int MAX_SUGGEST = 10;
+
+  @Inject
+  private Services _manager;
+
+  @Inject
+  @Service("/Auction")
+  private AuctionVault _auctions;
+
+  private TitleTrie _trie = new TitleTrie(MAX_SUGGEST);
+
+  @OnInit
+  public void init()
+  {
+    _auctions.findIdsByState(Auction.State.OPEN, (ids, e) -> {
+      if (e != null)
+        log.log(Level.WARNING, e.toString(), e);
+      else
+        rebuild(ids);
+    });
+  }
+
+  private void rebuild(List<IdAsset> ids)
+  {
+    log.fine(String.format("loading suggestions for %1$d open auctions",
+                           ids.size()));
+
+    for (IdAsset id : ids) {
+      _manager.service(Auction.class, id.toString())
+              .getSummary((summary, e) -> {
+        if (e != null)
+          log.log(Level.WARNING, e.toString(), e);
+        else if (summary.getState() == Auction.State.OPEN)
+          _trie.put(summary.getId(), summary.getTitle(), summary.getPrice());
+      });
+    }
+  }
+
+  @Override
+  public void put(String auctionId,
+                  String title,
+                  int price,
+                  Result<Void> result)
+  {
+    _trie.put(auctionId, title, price);
+
+    result.ok(null);
+  }
+
+  @Override
+  public void updatePrice(String auctionId, int price, Result<Void> result)
+  {
+    _trie.updateScore(auctionId, price);
+
+    result.ok(null);
+  }
+
+  @Override
+  public void remove(String auctionId, Result<Void> result)
+  {
+    _trie.remove(auctionId);
+
+    result.ok(null);
+  }
+
+  @Override
+  public void suggest(String prefix,
+                      int limit,
+                      Result<List<WebAuction>> result)
+  {
+    List<TitleTrie.Entry> entries
+      = _trie.suggest(prefix, Math.min(limit, MAX_SUGGEST));
+
+    List<WebAuction> auctions = new ArrayList<>(entries.size());
+
+    for (TitleTrie.Entry entry : entries) {
+      auctions.add(WebAuction.of(entry.getId(),
+                                 entry.getTitle(),
+                                 entry.getScore(),
+                                 Auction.State.OPEN));
+    }
+
+    result.ok(auctions);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _trie.size() + "]";
+  }
+}
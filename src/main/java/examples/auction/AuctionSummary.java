@@ -0,0 +1,86 @@
+package examples.auction;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight projection of an auction for list, search and update paths.
+ * Unlike AuctionData it carries no bids, no owner and no settlement state.
+ */
+public class AuctionSummary implements Serializable
+{
+  private String id;
+  private String title;
+  private int price;
+  private Auction.State state;
+
+  //epoch millis
+  private long closeTime;
+
+  private long sequence;
+
+  public AuctionSummary()
+  {
+  }
+
+  public AuctionSummary(String id,
+                        String title,
+                        int price,
+                        Auction.State state,
+                        long closeTime,
+                        long sequence)
+  {
+    this.id = id;
+    this.title = title;
+    this.price = price;
+    this.state = state;
+    this.closeTime = closeTime;
+    this.sequence = sequence;
+  }
+
+  public String getId()
+  {
+    return id;
+  }
+
+  public String getTitle()
+  {
+    return title;
+  }
+
+  /**
+   * Last accepted bid or the starting bid.
+   */
+  public int getPrice()
+  {
+    return price;
+  }
+
+  public Auction.State getState()
+  {
+    return state;
+  }
+
+  public long getCloseTime()
+  {
+    return closeTime;
+  }
+
+  /**
+   * Event sequence of the auction at the time of the projection.
+   */
+  public long getSequence()
+  {
+    return sequence;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%1$s[%2$s, %3$s, %4$d, %5$s]",
+                         getClass().getSimpleName(),
+                         id,
+                         title,
+                         price,
+                         state);
+  }
+}
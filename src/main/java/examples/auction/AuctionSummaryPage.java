@@ -0,0 +1,46 @@
+package examples.auction;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of auction search results with the cursor of the next page.
+ */
+public class AuctionSummaryPage implements Serializable
+{
+  private List<AuctionSummary> auctions;
+
+  //null on the last page
+  private String cursor;
+
+  public AuctionSummaryPage()
+  {
+  }
+
+  public AuctionSummaryPage(List<AuctionSummary> auctions, String cursor)
+  {
+    this.auctions = auctions;
+    this.cursor = cursor;
+  }
+
+  public List<AuctionSummary> getAuctions()
+  {
+    return auctions;
+  }
+
+  public String getCursor()
+  {
+    return cursor;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "["
+           + auctions.size()
+           + ", "
+           + cursor
+           + "]";
+  }
+}
@@ -0,0 +1,281 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import io.baratine.service.Result;
+import io.baratine.service.Services;
+import io.baratine.vault.IdAsset;
+
+/**
+ * Maintains and queries the auction title index stored in the
+ * AuctionTitleIndexVault. Titles are split into letter and digit tokens
+ * and case-folded; a query matches auctions whose title contains every
+ * query token.
+ * <p>
+ * An auction is indexed on create and removed once nothing more can
+ * happen to it: when it closes without bids or when it is rolled back.
+ * Settled auctions stay searchable, since the admin page finds them by
+ * title to refund them.
+ */
+public class AuctionTitleIndex
+{
+  private static final LatencyHistogram FIND_OK_TIMER
+    = Metrics.timer("AuctionTitleIndex", "find", "ok");
+  private static final LatencyHistogram FIND_ERROR_TIMER
+    = Metrics.timer("AuctionTitleIndex", "find", "error");
+
+  private AuctionTitleIndex()
+  {
+  }
+
+  public static Set<String> tokens(String title)
+  {
+    LinkedHashSet<String> tokens = new LinkedHashSet<>();
+
+    if (title == null)
+      return tokens;
+
+    StringBuilder token = new StringBuilder();
+
+    for (int i = 0; i <= title.length(); i++) {
+      char ch = i < title.length() ? title.charAt(i) : ' ';
+
+      if (Character.isLetterOrDigit(ch)) {
+        token.append(ch);
+      }
+      else if (token.length() > 0) {
+        tokens.add(token.toString().toLowerCase(Locale.ROOT));
+
+        token.setLength(0);
+      }
+    }
+
+    return tokens;
+  }
+
+  /**
+   * Adds the auction to the posting lists of its title tokens. The result
+   * completes when all lists are written and fails if any write fails, so
+   * the auction's create reports an auction missing from the index.
+   */
+  public static void add(Services services,
+                         IdAsset auctionId,
+                         String title,
+                         Result<Void> result)
+  {
+    Set<String> tokens = tokens(title);
+
+    if (tokens.isEmpty()) {
+      result.ok(null);
+
+      return;
+    }
+
+    Result.Fork<Boolean,Void> fork = result.fork();
+
+    for (String token : tokens) {
+      getTerm(services, token).add(auctionId, fork.branch());
+    }
+
+    fork.join(x -> null);
+  }
+
+  public static void remove(Services services,
+                            IdAsset auctionId,
+                            String title,
+                            Result<Void> result)
+  {
+    Set<String> tokens = tokens(title);
+
+    if (tokens.isEmpty()) {
+      result.ok(null);
+
+      return;
+    }
+
+    Result.Fork<Boolean,Void> fork = result.fork();
+
+    for (String token : tokens) {
+      getTerm(services, token).remove(auctionId, fork.branch());
+    }
+
+    fork.join(x -> null);
+  }
+
+  /**
+   * Ids of the auctions matching all tokens of the query, in id order.
+   */
+  public static void find(Services services,
+                          String query,
+                          Result<List<IdAsset>> result)
+  {
+    result = Metrics.timed(result, FIND_OK_TIMER, FIND_ERROR_TIMER);
+
+    Set<String> tokens = tokens(query);
+
+    if (tokens.isEmpty()) {
+      result.ok(new ArrayList<>());
+
+      return;
+    }
+
+    Result.Fork<List<IdAsset>,List<IdAsset>> fork = result.fork();
+
+    for (String token : tokens) {
+      getTerm(services, token).getAuctionIds(fork.branch());
+    }
+
+    fork.join(lists -> intersect(lists));
+  }
+
+  /**
+   * One page of the ids matching all tokens of the query, in id order,
+   * continuing after the cursor. Only the page is read from the index: the
+   * smallest posting list is read from the cursor's position a chunk at a
+   * time and each chunk is checked against the other lists.
+   */
+  public static void findPage(Services services,
+                              String query,
+                              SearchCursor cursor,
+                              int limit,
+                              Result<List<IdAsset>> result)
+  {
+    result = Metrics.timed(result, FIND_OK_TIMER, FIND_ERROR_TIMER);
+
+    Set<String> tokens = tokens(query);
+
+    if (tokens.isEmpty() || limit <= 0) {
+      result.ok(new ArrayList<>());
+
+      return;
+    }
+
+    ArrayList<AuctionTitleTerm> terms = new ArrayList<>();
+
+    for (String token : tokens) {
+      terms.add(getTerm(services, token));
+    }
+
+    if (terms.size() == 1) {
+      terms.get(0).getAuctionIdsAfter(cursor.getLastId(), limit, result);
+
+      return;
+    }
+
+    Result.Fork<Integer,List<IdAsset>> fork = result.fork();
+
+    for (AuctionTitleTerm term : terms) {
+      term.getSize(fork.branch());
+    }
+
+    fork.join((sizes, r) -> {
+      int driver = 0;
+
+      for (int i = 1; i < sizes.size(); i++) {
+        if (sizes.get(i) < sizes.get(driver))
+          driver = i;
+      }
+
+      AuctionTitleTerm driverTerm = terms.remove(driver);
+
+      findPage(driverTerm,
+               terms,
+               cursor.getLastId(),
+               limit,
+               new ArrayList<>(),
+               r);
+    });
+  }
+
+  private static void findPage(AuctionTitleTerm driver,
+                               List<AuctionTitleTerm> filters,
+                               IdAsset afterId,
+                               int limit,
+                               ArrayList<IdAsset> page,
+                               Result<List<IdAsset>> result)
+  {
+    driver.getAuctionIdsAfter(afterId, limit, result.then((ids, r) -> {
+      retain(filters, ids, r.then((matches, r2) -> {
+        for (int i = 0; i < matches.size() && page.size() < limit; i++) {
+          page.add(matches.get(i));
+        }
+
+        if (limit <= page.size() || ids.size() < limit) {
+          r2.ok(page);
+        }
+        else {
+          IdAsset lastId = ids.get(ids.size() - 1);
+
+          findPage(driver, filters, lastId, limit, page, r2);
+        }
+      }));
+    }));
+  }
+
+  /**
+   * The ids contained in all the filter lists, in the given order.
+   */
+  private static void retain(List<AuctionTitleTerm> filters,
+                             List<IdAsset> ids,
+                             Result<List<IdAsset>> result)
+  {
+    if (ids.isEmpty()) {
+      result.ok(ids);
+
+      return;
+    }
+
+    Result.Fork<List<IdAsset>,List<IdAsset>> fork = result.fork();
+
+    for (AuctionTitleTerm filter : filters) {
+      filter.retain(ids, fork.branch());
+    }
+
+    fork.join(lists -> {
+      ArrayList<List<IdAsset>> all = new ArrayList<>(lists);
+      all.add(ids);
+
+      return intersect(all);
+    });
+  }
+
+  private static List<IdAsset> intersect(List<List<IdAsset>> lists)
+  {
+    ArrayList<List<IdAsset>> sorted = new ArrayList<>(lists);
+
+    sorted.sort(Comparator.comparingInt(List::size));
+
+    List<IdAsset> ids = sorted.get(0);
+
+    for (int i = 1; i < sorted.size() && ! ids.isEmpty(); i++) {
+      // IdAsset has identity equality; lists from the terms are copies
+      HashSet<Long> next = new HashSet<>();
+
+      for (IdAsset id : sorted.get(i)) {
+        next.add(id.id());
+      }
+
+      ArrayList<IdAsset> matches = new ArrayList<>();
+
+      for (IdAsset id : ids) {
+        if (next.contains(id.id()))
+          matches.add(id);
+      }
+
+      ids = matches;
+    }
+
+    return ids;
+  }
+
+  private static AuctionTitleTerm getTerm(Services services, String token)
+  {
+    return services.service(AuctionTitleTerm.class, token);
+  }
+}
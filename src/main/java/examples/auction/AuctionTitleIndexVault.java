@@ -0,0 +1,14 @@
+package examples.auction;
+
+import io.baratine.service.Service;
+import io.baratine.vault.Vault;
+
+/**
+ * Inverted index on auction titles, one AuctionTitleTerm per
+ * case-folded title token, addressed as /AuctionTitleTerm/{token}.
+ */
+@Service("/AuctionTitleTerm")
+public interface AuctionTitleIndexVault
+  extends Vault<String,AuctionTitleTermImpl>
+{
+}
@@ -0,0 +1,41 @@
+package examples.auction;
+
+import java.util.List;
+
+import io.baratine.service.Api;
+import io.baratine.service.Modify;
+import io.baratine.service.Result;
+import io.baratine.vault.Asset;
+import io.baratine.vault.IdAsset;
+
+/**
+ * Posting list of the title index: ids of the auctions whose title
+ * contains the term, in id order.
+ */
+@Asset
+@Api
+public interface AuctionTitleTerm
+{
+  @Modify
+  void add(IdAsset auctionId, Result<Boolean> result);
+
+  @Modify
+  void remove(IdAsset auctionId, Result<Boolean> result);
+
+  void getAuctionIds(Result<List<IdAsset>> result);
+
+  /**
+   * Up to limit ids following afterId in id order, or from the start if
+   * afterId is null. afterId doesn't need to be in the list.
+   */
+  void getAuctionIdsAfter(IdAsset afterId,
+                          int limit,
+                          Result<List<IdAsset>> result);
+
+  /**
+   * The given ids that are in this posting list, in the given order.
+   */
+  void retain(List<IdAsset> auctionIds, Result<List<IdAsset>> result);
+
+  void getSize(Result<Integer> result);
+}
@@ -0,0 +1,244 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import io.baratine.service.Modify;
+import io.baratine.service.Result;
+import io.baratine.vault.AutoCreate;
+import io.baratine.vault.Id;
+import io.baratine.vault.IdAsset;
+
+/**
+ * Posting list in auction id order. A removed id leaves a null slot, so
+ * the position of every other id stays put and a search page resumes
+ * after its last id without scanning the list. The slots are compacted
+ * once they are the majority of the list. If the last id of a page has
+ * been removed, the id order still gives the position to resume from.
+ * <p>
+ * Terms are created on first use, so a query for a word no title has
+ * reads an empty list.
+ */
+@AutoCreate
+public class AuctionTitleTermImpl implements AuctionTitleTerm
+{
+  static final int COMPACT_MIN = 32;
+
+  @Id
+  private String _id;
+
+  private ArrayList<IdAsset> _auctionIds = new ArrayList<>();
+  private int _removedCount;
+
+  private transient HashMap<String,Integer> _positionMap;
+
+  public AuctionTitleTermImpl()
+  {
+  }
+
+  @Override
+  @Modify
+  public void add(IdAsset auctionId, Result<Boolean> result)
+  {
+    HashMap<String,Integer> positionMap = getPositionMap();
+
+    String key = auctionId.toString();
+
+    if (positionMap.containsKey(key)) {
+      result.ok(false);
+
+      return;
+    }
+
+    int position = insertPosition(auctionId);
+
+    if (position == _auctionIds.size()) {
+      positionMap.put(key, position);
+      _auctionIds.add(auctionId);
+    }
+    else {
+      // an auction indexed out of id order shifts the later slots
+      _auctionIds.add(position, auctionId);
+      _positionMap = null;
+    }
+
+    result.ok(true);
+  }
+
+  @Override
+  @Modify
+  public void remove(IdAsset auctionId, Result<Boolean> result)
+  {
+    Integer position = getPositionMap().remove(auctionId.toString());
+
+    if (position == null) {
+      result.ok(false);
+
+      return;
+    }
+
+    _auctionIds.set(position, null);
+    _removedCount++;
+
+    if (COMPACT_MIN <= _removedCount
+        && _auctionIds.size() < 2 * _removedCount) {
+      compact();
+    }
+
+    result.ok(true);
+  }
+
+  @Override
+  public void getAuctionIds(Result<List<IdAsset>> result)
+  {
+    ArrayList<IdAsset> ids = new ArrayList<>(size());
+
+    for (IdAsset id : _auctionIds) {
+      if (id != null)
+        ids.add(id);
+    }
+
+    result.ok(ids);
+  }
+
+  @Override
+  public void getAuctionIdsAfter(IdAsset afterId,
+                                 int limit,
+                                 Result<List<IdAsset>> result)
+  {
+    int start = 0;
+
+    if (afterId != null) {
+      Integer position = getPositionMap().get(afterId.toString());
+
+      start = position != null ? position + 1 : firstAfter(afterId);
+    }
+
+    ArrayList<IdAsset> ids = new ArrayList<>();
+
+    for (int i = start; i < _auctionIds.size() && ids.size() < limit; i++) {
+      IdAsset id = _auctionIds.get(i);
+
+      if (id != null)
+        ids.add(id);
+    }
+
+    result.ok(ids);
+  }
+
+  @Override
+  public void retain(List<IdAsset> auctionIds, Result<List<IdAsset>> result)
+  {
+    HashMap<String,Integer> positionMap = getPositionMap();
+
+    ArrayList<IdAsset> ids = new ArrayList<>();
+
+    for (IdAsset id : auctionIds) {
+      if (positionMap.containsKey(id.toString()))
+        ids.add(id);
+    }
+
+    result.ok(ids);
+  }
+
+  @Override
+  public void getSize(Result<Integer> result)
+  {
+    result.ok(size());
+  }
+
+  private int size()
+  {
+    return _auctionIds.size() - _removedCount;
+  }
+
+  /**
+   * Slot for a new id: after the last id that is lower, which is the end
+   * of the list unless auctions are indexed out of order.
+   */
+  private int insertPosition(IdAsset auctionId)
+  {
+    int position = _auctionIds.size();
+
+    for (int i = position - 1; i >= 0; i--) {
+      IdAsset id = _auctionIds.get(i);
+
+      if (id == null)
+        continue;
+      else if (id.id() < auctionId.id())
+        break;
+
+      position = i;
+    }
+
+    return position;
+  }
+
+  /**
+   * Position of the first id above the given one, by a binary search that
+   * skips the removed slots.
+   */
+  private int firstAfter(IdAsset afterId)
+  {
+    int lo = 0;
+    int hi = _auctionIds.size();
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int i = mid;
+
+      while (i < hi && _auctionIds.get(i) == null) {
+        i++;
+      }
+
+      if (i == hi || afterId.id() < _auctionIds.get(i).id())
+        hi = mid;
+      else
+        lo = i + 1;
+    }
+
+    return lo;
+  }
+
+  private void compact()
+  {
+    ArrayList<IdAsset> ids = new ArrayList<>(size());
+
+    for (IdAsset id : _auctionIds) {
+      if (id != null)
+        ids.add(id);
+    }
+
+    _auctionIds = ids;
+    _removedCount = 0;
+    _positionMap = null;
+  }
+
+  private HashMap<String,Integer> getPositionMap()
+  {
+    if (_positionMap == null) {
+      _positionMap = new HashMap<>();
+
+      for (int i = 0; i < _auctionIds.size(); i++) {
+        IdAsset id = _auctionIds.get(i);
+
+        if (id != null)
+          _positionMap.put(id.toString(), i);
+      }
+    }
+
+    return _positionMap;
+  }
+
+  @Override
+  public String toString()
+  {
+    return AuctionTitleTermImpl.class.getSimpleName()
+           + "["
+           + _id
+           + ", "
+           + size()
+           + "]";
+  }
+}
@@ -0,0 +1,32 @@
+package examples.auction;
+
+import io.baratine.service.Result;
+
+/**
+ * Node-local fan-out of auction events to the web sessions watching them.
+ */
+public interface AuctionUpdateHub
+{
+  /**
+   * Adds a listener for an auction's updates. A listener is identified by
+   * its key, e.g. the session id; subscribing again replaces it.
+   */
+  void subscribe(String auctionId,
+                 String key,
+                 AuctionUpdateListener listener,
+                 Result<Boolean> result);
+
+  /**
+   * Adds a listener that resumes after the update with the given
+   * sequence. The updates since then are replayed to it first when the
+   * hub still has them; otherwise it gets the current state. A sequence of
+   * -1 asks for the current state.
+   */
+  void resume(String auctionId,
+              String key,
+              AuctionUpdateListener listener,
+              long sequence,
+              Result<Boolean> result);
+
+  void unsubscribe(String auctionId, String key, Result<Boolean> result);
+}
@@ -0,0 +1,377 @@
+package examples.auction;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import io.baratine.event.Events;
+import io.baratine.service.Cancel;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.timer.Timers;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Auction update hub.
+ * <p>
+ * The hub holds one event subscription per watched auction for the node
+ * instead of one per session. Each event is applied to the auction's last
+ * known state and encoded to JSON once, and the same frame is passed to
+ * every listener, so the cost of an event doesn't grow with the number of
+ * watchers beyond the delivery itself.
+ * <p>
+ * The last REPLAY_SIZE frames of an auction are kept in an UpdateRing, so
+ * a resuming event poll gets the updates it missed. The subscription
+ * and the ring are kept for CHANNEL_LINGER after the auction's last
+ * listener leaves, which covers a client polling again.
+ */
+@Service("/AuctionUpdateHub")
+public class AuctionUpdateHubImpl implements AuctionUpdateHub
+{
+  private final static Logger log
+    = Logger.getLogger(AuctionUpdateHubImpl.class.getName());
+
+  public static final int REPLAY_SIZE = 64;
+
+  public static final long CHANNEL_LINGER = TimeUnit.MINUTES.toMillis(1);
+
+  @Inject
+  private Services _manager;
+
+  @Inject
+  @Service("event:")
+  private Events _events;
+
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private final HashMap<String,AuctionChannel> _channels = new HashMap<>();
+
+  private final JsonBuffer _buffer = new JsonBuffer();
+
+  @Override
+  public void subscribe(String auctionId,
+                        String key,
+                        AuctionUpdateListener listener,
+                        Result<Boolean> result)
+  {
+    getChannel(auctionId).add(key, listener);
+
+    result.ok(true);
+  }
+
+  @Override
+  public void resume(String auctionId,
+                     String key,
+                     AuctionUpdateListener listener,
+                     long sequence,
+                     Result<Boolean> result)
+  {
+    AuctionChannel channel = getChannel(auctionId);
+
+    channel.add(key, listener);
+
+    channel.resume(key, listener, sequence);
+
+    result.ok(true);
+  }
+
+  private AuctionChannel getChannel(String auctionId)
+  {
+    AuctionChannel channel = _channels.get(auctionId);
+
+    if (channel == null) {
+      log.finer("subscribe auction events for auction: " + auctionId);
+
+      channel = new AuctionChannel(auctionId);
+
+      _channels.put(auctionId, channel);
+
+      channel.subscribe();
+    }
+
+    return channel;
+  }
+
+  @Override
+  public void unsubscribe(String auctionId, String key, Result<Boolean> result)
+  {
+    AuctionChannel channel = _channels.get(auctionId);
+
+    if (channel == null || channel._listeners.remove(key) == null) {
+      result.ok(false);
+
+      return;
+    }
+
+    if (channel._listeners.isEmpty()) {
+      long idle = ++channel._idleCount;
+
+      _timers.runAfter(x -> expire(auctionId, idle),
+                       CHANNEL_LINGER,
+                       TimeUnit.MILLISECONDS,
+                       Result.ignore());
+    }
+
+    result.ok(true);
+  }
+
+  /**
+   * Drops a channel that has had no listeners since the given idle count.
+   */
+  private void expire(String auctionId, long idle)
+  {
+    AuctionChannel channel = _channels.get(auctionId);
+
+    if (channel == null
+        || ! channel._listeners.isEmpty()
+        || channel._idleCount != idle) {
+      return;
+    }
+
+    log.finer("unsubscribe auction events for auction: " + auctionId);
+
+    _channels.remove(auctionId);
+
+    channel.unsubscribe();
+  }
+
+  /**
+   * Encodes an auction as the update socket's JSON, with the fields in
+   * the order the web serializer writes them.
+   */
+  String encode(WebAuction auction)
+  {
+    JsonBuffer buffer = _buffer;
+
+    buffer.reset();
+
+    buffer.appendAscii("{\"bid\":").append(auction.getBid());
+    buffer.appendAscii(",\"id\":").appendString(auction.getId());
+    buffer.appendAscii(",\"state\":").appendString(auction.getState());
+    buffer.appendAscii(",\"title\":").appendString(auction.getTitle());
+    buffer.append('}');
+
+    return buffer.toString();
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _channels.size() + "]";
+  }
+
+  private static class Update
+  {
+    private final long _sequence;
+    private final WebAuction _auction;
+    private final String _frame;
+
+    Update(long sequence, WebAuction auction, String frame)
+    {
+      _sequence = sequence;
+      _auction = auction;
+      _frame = frame;
+    }
+  }
+
+  /**
+   * Tracks the last known state of an auction and applies bid events to it.
+   * A full snapshot is requested only on subscribe or when a gap in the
+   * event sequence shows the channel fell behind.
+   */
+  private class AuctionChannel implements AuctionEvents
+  {
+    private final String _auctionId;
+
+    private final LinkedHashMap<String,AuctionUpdateListener> _listeners
+      = new LinkedHashMap<>();
+
+    private final UpdateRing<Update> _ring = new UpdateRing<>(REPLAY_SIZE);
+
+    private WebAuction _auction;
+    private long _sequence = -1;
+    private String _frame;
+
+    // listeners to resume once the first snapshot arrives
+    private HashMap<String,Long> _resumes;
+
+    private Cancel _cancel;
+    private boolean _isClosed;
+    private long _idleCount;
+
+    AuctionChannel(String auctionId)
+    {
+      _auctionId = auctionId;
+    }
+
+    void subscribe()
+    {
+      _events.subscriber(_auctionId, this, (cancel, e) -> {
+        if (e != null)
+          log.log(Level.WARNING, e.toString(), e);
+        else if (_isClosed)
+          cancel.cancel();
+        else
+          _cancel = cancel;
+      });
+
+      refresh(false);
+    }
+
+    void add(String key, AuctionUpdateListener listener)
+    {
+      _listeners.put(key, listener);
+    }
+
+    void resume(String key, AuctionUpdateListener listener, long sequence)
+    {
+      if (_auction == null) {
+        if (_resumes == null)
+          _resumes = new HashMap<>();
+
+        _resumes.put(key, sequence);
+
+        return;
+      }
+
+      if (sequence >= _sequence)
+        return;
+
+      List<Update> updates = sequence >= 0 ? _ring.since(sequence) : null;
+
+      if (updates == null) {
+        listener.onUpdate(_auctionId, _sequence, _auction, frame());
+
+        return;
+      }
+
+      for (Update update : updates) {
+        listener.onUpdate(_auctionId,
+                          update._sequence,
+                          update._auction,
+                          update._frame);
+      }
+    }
+
+    void unsubscribe()
+    {
+      _isClosed = true;
+
+      if (_cancel != null)
+        _cancel.cancel();
+    }
+
+    private void refresh(boolean isEmit)
+    {
+      _manager.service(Auction.class, _auctionId).getSummary((summary, e) -> {
+        if (e != null) {
+          log.log(Level.FINER, e.getMessage(), e);
+        }
+        else if (summary != null) {
+          onSnapshot(WebAuction.of(summary), summary.getSequence(), isEmit);
+        }
+      });
+    }
+
+    private void onSnapshot(WebAuction auction, long sequence, boolean isEmit)
+    {
+      if (_auction != null && sequence < _sequence)
+        return;
+
+      _auction = auction;
+      _sequence = sequence;
+      _frame = null;
+
+      if (isEmit)
+        publish();
+
+      if (_resumes != null) {
+        HashMap<String,Long> resumes = _resumes;
+        _resumes = null;
+
+        for (HashMap.Entry<String,Long> entry : resumes.entrySet()) {
+          AuctionUpdateListener listener = _listeners.get(entry.getKey());
+
+          if (listener != null)
+            resume(entry.getKey(), listener, entry.getValue());
+        }
+      }
+    }
+
+    /**
+     * The encoded current state, encoded on first use.
+     */
+    private String frame()
+    {
+      if (_frame == null)
+        _frame = encode(_auction);
+
+      return _frame;
+    }
+
+    private void onSnapshot(AuctionData auctionData)
+    {
+      onSnapshot(WebAuction.of(auctionData), auctionData.getSequence(), true);
+    }
+
+    private void publish()
+    {
+      if (_isClosed)
+        return;
+
+      String frame = frame();
+
+      _ring.add(_sequence, new Update(_sequence, _auction, frame));
+
+      for (AuctionUpdateListener listener : _listeners.values()) {
+        listener.onUpdate(_auctionId, _sequence, _auction, frame);
+      }
+    }
+
+    @Override
+    public void onBid(AuctionBidEvent bidEvent)
+    {
+      log.finer("on bid event for auction: " + bidEvent);
+
+      if (_auction == null || bidEvent.getSequence() > _sequence + 1) {
+        refresh(true);
+      }
+      else if (bidEvent.getSequence() == _sequence + 1) {
+        _auction = WebAuction.of(_auction, bidEvent);
+        _sequence = bidEvent.getSequence();
+        _frame = null;
+
+        publish();
+      }
+    }
+
+    @Override
+    public void onClose(AuctionData auctionData)
+    {
+      log.finer("on close event for auction: " + auctionData);
+
+      onSnapshot(auctionData);
+    }
+
+    @Override
+    public void onSettled(AuctionData auctionData)
+    {
+      onSnapshot(auctionData);
+    }
+
+    @Override
+    public void onRolledBack(AuctionData auctionData)
+    {
+      onSnapshot(auctionData);
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package examples.auction;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Receives encoded auction updates from the AuctionUpdateHub.
+ */
+public interface AuctionUpdateListener
+{
+  /**
+   * @param auctionId the updated auction
+   * @param sequence  the auction's event sequence number of the update
+   * @param auction   the updated auction, for listeners with their own
+   *                  encoding
+   * @param frame     the WebAuction encoded as JSON, shared by all
+   *                  listeners of the auction
+   */
+  void onUpdate(String auctionId,
+                long sequence,
+                WebAuction auction,
+                String frame);
+}
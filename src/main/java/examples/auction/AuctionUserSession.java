@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.List;
+
 import io.baratine.service.Result;
 
 /**
@@ -11,6 +13,12 @@ public interface AuctionUserSession extends AuctionSession
 
   void bidAuction(WebBid bid, Result<Boolean> result);
 
+  void bidBatch(WebBid[] bids, Result<List<Boolean>> result);
+
+  void proxyBid(WebBid maxBid, Result<Boolean> result);
+
+  void suggestAuctions(String prefix, Result<List<WebAuction>> result);
+
   class WebBid
   {
     private String auction;
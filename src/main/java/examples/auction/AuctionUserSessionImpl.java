@@ -1,12 +1,21 @@
 package examples.auction;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
+
 import io.baratine.service.Result;
 import io.baratine.service.Service;
 import io.baratine.web.Body;
+import io.baratine.web.Get;
 import io.baratine.web.Path;
 import io.baratine.web.Post;
+import io.baratine.web.Query;
 import io.baratine.web.cors.CrossOrigin;
 
 /**
@@ -21,6 +30,12 @@ public class AuctionUserSessionImpl extends AbstractAuctionSession
   private final static Logger log
     = Logger.getLogger(AuctionUserSessionImpl.class.getName());
 
+  public static final int MAX_BID_BATCH = 1024;
+
+  @Inject
+  @Service("/AuctionSuggest")
+  private AuctionSuggest _suggest;
+
   @Post("/createAuction")
   public void createAuction(@Body("t") String title,
                             @Body("b") int price,
@@ -54,4 +69,152 @@ public class AuctionUserSessionImpl extends AbstractAuctionSession
     getAuctionService(bid.getAuction())
       .bid(new AuctionBid(_userId, bid.getBid()), result);
   }
+
+  /**
+   * Sets a private maximum the auction bids up to for the user.
+   *
+   * @param maxBid the auction and the maximum
+   * @param result true if the maximum was accepted
+   */
+  @Post("/proxyBid")
+  public void proxyBid(@Body WebBid maxBid, Result<Boolean> result)
+  {
+    validateSession();
+
+    getAuctionService(maxBid.getAuction())
+      .proxyBid(new AuctionBid(_userId, maxBid.getBid()), result);
+  }
+
+  /**
+   * Bids on any number of auctions in one request, for bulk clients. The
+   * bids are grouped by auction and each group is sent to its auction as
+   * one call, keeping the order of the bids within an auction.
+   *
+   * @param bids   up to MAX_BID_BATCH bids
+   * @param result whether each bid was accepted, in request order. Bids
+   *               on an auction that failed the call are rejected.
+   */
+  @Post("/bidBatch")
+  public void bidBatch(@Body WebBid[] bids, Result<List<Boolean>> result)
+  {
+    validateSession();
+
+    if (bids == null || bids.length == 0) {
+      result.ok(new ArrayList<>());
+
+      return;
+    }
+
+    if (bids.length > MAX_BID_BATCH) {
+      throw new IllegalArgumentException(
+        String.format("batch of %1$d bids is over the limit of %2$d",
+                      bids.length,
+                      MAX_BID_BATCH));
+    }
+
+    LinkedHashMap<String,BidGroup> groups = new LinkedHashMap<>();
+
+    for (int i = 0; i < bids.length; i++) {
+      WebBid bid = bids[i];
+
+      // a bid without an auction is rejected
+      if (bid == null || bid.getAuction() == null)
+        continue;
+
+      BidGroup group = groups.get(bid.getAuction());
+
+      if (group == null) {
+        group = new BidGroup();
+        groups.put(bid.getAuction(), group);
+      }
+
+      group.add(i, new AuctionBid(_userId, bid.getBid()));
+    }
+
+    if (groups.isEmpty()) {
+      result.ok(toBidResults(bids.length, groups, new ArrayList<>()));
+
+      return;
+    }
+
+    Result.Fork<List<Boolean>,List<Boolean>> fork = result.fork();
+
+    for (String auctionId : groups.keySet()) {
+      getAuctionService(auctionId).bids(groups.get(auctionId).getBids(),
+                                        fork.branch());
+    }
+
+    fork.fail((accepted, fails, r) -> {
+      for (Throwable fail : fails) {
+        if (fail != null)
+          log.log(Level.FINER, fail.toString(), fail);
+      }
+
+      r.ok(toBidResults(bids.length, groups, accepted));
+    });
+
+    fork.join(accepted -> toBidResults(bids.length, groups, accepted));
+  }
+
+  private static List<Boolean> toBidResults(
+    int size,
+    LinkedHashMap<String,BidGroup> groups,
+    List<List<Boolean>> accepted)
+  {
+    Boolean[] results = new Boolean[size];
+    Arrays.fill(results, Boolean.FALSE);
+
+    int i = 0;
+
+    for (BidGroup group : groups.values()) {
+      List<Boolean> groupAccepted = accepted.get(i++);
+
+      if (groupAccepted != null)
+        group.fill(results, groupAccepted);
+    }
+
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Typeahead search over open auctions, best priced first.
+   *
+   * @param prefix start of a word in the auction title
+   * @param result up to AuctionSuggestImpl.MAX_SUGGEST matching auctions
+   */
+  @Get("/suggestAuctions")
+  public void suggestAuctions(@Query("prefix") String prefix,
+                              Result<List<WebAuction>> result)
+  {
+    validateSession();
+
+    _suggest.suggest(prefix, AuctionSuggestImpl.MAX_SUGGEST, result);
+  }
+
+  /**
+   * Bids of a batch on one auction, with their positions in the request.
+   */
+  private static class BidGroup
+  {
+    private final ArrayList<Integer> _indexes = new ArrayList<>();
+    private final ArrayList<AuctionBid> _bids = new ArrayList<>();
+
+    void add(int index, AuctionBid bid)
+    {
+      _indexes.add(index);
+      _bids.add(bid);
+    }
+
+    List<AuctionBid> getBids()
+    {
+      return _bids;
+    }
+
+    void fill(Boolean[] results, List<Boolean> accepted)
+    {
+      for (int i = 0; i < _indexes.size() && i < accepted.size(); i++) {
+        results[_indexes.get(i)] = accepted.get(i);
+      }
+    }
+  }
 }
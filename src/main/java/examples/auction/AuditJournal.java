@@ -0,0 +1,274 @@
+package examples.auction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary audit journal. Records are encoded into an in-memory
+ * batch and written with a single channel write per batch; the file is
+ * forced to disk at most once per sync interval by flush(), by the
+ * owner's timer through checkpoint(), and on close.
+ * <p>
+ * A batch that fails to write stays pending and is written again by the
+ * next flush, continuing after the bytes already written. Once the
+ * unwritten records reach MAX_PENDING, append refuses new ones.
+ * <p>
+ * The journal starts with the MAGIC int followed by the VERSION int.
+ * Opening an existing journal truncates it after the last complete
+ * record, so a record torn by a crash is not followed by new ones.
+ * The journal is not thread safe; it is owned by AuditServiceImpl.
+ */
+public class AuditJournal
+{
+  public static final int MAGIC = 0x41554a31; // "AUJ1"
+  public static final int VERSION = 1;
+
+  public static final int HEADER_SIZE = 8;
+
+  public static final int MAX_PENDING = 16 * 1024 * 1024;
+
+  private final File _file;
+  private final long _syncInterval;
+
+  private FileChannel _channel;
+
+  private final ByteArrayOutputStream _record = new ByteArrayOutputStream();
+  private final DataOutputStream _recordOut = new DataOutputStream(_record);
+
+  private final ByteArrayOutputStream _batch = new ByteArrayOutputStream();
+  private final DataOutputStream _batchOut = new DataOutputStream(_batch);
+
+  // batch whose write failed part way, written before the next batch
+  private ByteBuffer _pending;
+
+  private long _lastSync;
+  private boolean _isDirty;
+
+  public AuditJournal(File file, long syncInterval)
+  {
+    _file = file;
+    _syncInterval = syncInterval;
+  }
+
+  public File getFile()
+  {
+    return _file;
+  }
+
+  public void open() throws IOException
+  {
+    File dir = _file.getAbsoluteFile().getParentFile();
+
+    if (dir != null)
+      dir.mkdirs();
+
+    _channel = FileChannel.open(_file.toPath(),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+
+    try {
+      long end = recover();
+
+      if (end < _channel.size())
+        _channel.truncate(end);
+
+      if (end == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+
+        _channel.position(0);
+
+        while (header.hasRemaining()) {
+          _channel.write(header);
+        }
+
+        end = HEADER_SIZE;
+      }
+
+      _channel.position(end);
+      _channel.force(true);
+    } catch (IOException e) {
+      _channel.close();
+      _channel = null;
+
+      throw e;
+    }
+
+    _lastSync = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the end of the last complete record, or 0 for a journal
+   * without a complete header.
+   */
+  private long recover() throws IOException
+  {
+    long length = _channel.size();
+
+    if (length < HEADER_SIZE)
+      return 0;
+
+    InputStream is = Channels.newInputStream(_channel.position(0));
+    DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+
+    if (in.readInt() != MAGIC)
+      throw new IOException(_file + " is not an audit journal");
+
+    int version = in.readInt();
+
+    if (version != VERSION)
+      throw new IOException("unknown audit journal version " + version);
+
+    long end = HEADER_SIZE;
+
+    try {
+      while (end + 4 <= length) {
+        int recordLength = in.readInt();
+
+        if (recordLength <= 0 || length < end + 4 + recordLength)
+          break;
+
+        byte[] body = new byte[recordLength];
+        in.readFully(body);
+
+        AuditRecord.readBody(ByteBuffer.wrap(body));
+
+        end += 4 + recordLength;
+      }
+    } catch (EOFException
+             | BufferUnderflowException
+             | IllegalArgumentException e) {
+      // torn record
+    }
+
+    return end;
+  }
+
+  /**
+   * Adds a record to the current batch.
+   *
+   * @throws IOException if the journal is closed or the records that
+   * could not be written have reached MAX_PENDING
+   */
+  public void append(AuditRecord record) throws IOException
+  {
+    if (_channel == null)
+      throw new IOException(this + " is closed");
+
+    if (MAX_PENDING <= getPendingSize()) {
+      throw new IOException(this + " has " + getPendingSize()
+                            + " unwritten bytes");
+    }
+
+    _record.reset();
+
+    record.writeBody(_recordOut);
+
+    _recordOut.flush();
+
+    _batchOut.writeInt(_record.size());
+    _record.writeTo(_batchOut);
+  }
+
+  /**
+   * Number of appended bytes not yet written to the file.
+   */
+  public int getPendingSize()
+  {
+    int size = _batch.size();
+
+    if (_pending != null)
+      size += _pending.remaining();
+
+    return size;
+  }
+
+  boolean isDirty()
+  {
+    return _isDirty;
+  }
+
+  /**
+   * Writes the current batch to the journal file and forces it to disk if
+   * the sync interval has passed. If the write fails, the unwritten part
+   * stays pending for the next flush.
+   */
+  public void flush() throws IOException
+  {
+    while (_pending != null || _batch.size() > 0) {
+      if (_pending == null) {
+        _batchOut.flush();
+
+        _pending = ByteBuffer.wrap(_batch.toByteArray());
+        _batch.reset();
+      }
+
+      while (_pending.hasRemaining()) {
+        _isDirty = true;
+
+        _channel.write(_pending);
+      }
+
+      _pending = null;
+    }
+
+    long now = System.currentTimeMillis();
+
+    if (_isDirty && _syncInterval <= now - _lastSync) {
+      sync();
+    }
+  }
+
+  /**
+   * Writes and forces all appended records to disk, regardless of the
+   * sync interval.
+   */
+  public void checkpoint() throws IOException
+  {
+    flush();
+
+    if (_isDirty)
+      sync();
+  }
+
+  public void sync() throws IOException
+  {
+    _channel.force(false);
+
+    _lastSync = System.currentTimeMillis();
+    _isDirty = false;
+  }
+
+  public void close() throws IOException
+  {
+    if (_channel == null)
+      return;
+
+    try {
+      checkpoint();
+    } finally {
+      _channel.close();
+      _channel = null;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _file + "]";
+  }
+}
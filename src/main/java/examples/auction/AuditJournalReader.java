@@ -0,0 +1,410 @@
+package examples.auction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Memory-mapped reader for the audit journal written by AuditJournal.
+ * <p>
+ * Opening the reader scans the journal once and builds in-memory indexes
+ * of record offsets by auction id and by settlement id, and a sparse time
+ * index used by scan(). A truncated record at the end of the journal,
+ * e.g. from a crash during a write, ends the scan.
+ */
+public class AuditJournalReader implements Closeable
+{
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private static final int TIME_INDEX_INTERVAL = 1024;
+
+  private final File _file;
+
+  private FileChannel _channel;
+  private MappedByteBuffer[] _segments;
+
+  private int _size;
+
+  private final HashMap<String,OffsetList> _auctionIndex = new HashMap<>();
+  private final HashMap<String,OffsetList> _settlementIndex = new HashMap<>();
+
+  // offset of every TIME_INDEX_INTERVAL'th record, the max time of the
+  // records before it, and the min time of the records from it to the end
+  private final OffsetList _timeOffsets = new OffsetList();
+  private final OffsetList _timeMaxBefore = new OffsetList();
+  private long[] _timeMinAfter;
+
+  public AuditJournalReader(File file)
+  {
+    _file = file;
+  }
+
+  public File getFile()
+  {
+    return _file;
+  }
+
+  public void open() throws IOException
+  {
+    _channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ);
+
+    long length = _channel.size();
+
+    int count = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+
+    _segments = new MappedByteBuffer[count];
+
+    for (int i = 0; i < count; i++) {
+      long start = i * SEGMENT_SIZE;
+
+      _segments[i] = _channel.map(FileChannel.MapMode.READ_ONLY,
+                                  start,
+                                  Math.min(SEGMENT_SIZE, length - start));
+    }
+
+    if (length < AuditJournal.HEADER_SIZE)
+      throw new IOException("audit journal " + _file + " has no header");
+
+    ByteBuffer header = buffer(0, AuditJournal.HEADER_SIZE);
+
+    if (header.getInt() != AuditJournal.MAGIC)
+      throw new IOException(_file + " is not an audit journal");
+
+    int version = header.getInt();
+
+    if (version != AuditJournal.VERSION)
+      throw new IOException("unknown audit journal version " + version);
+
+    buildIndex(length);
+  }
+
+  private void buildIndex(long length)
+  {
+    OffsetList chunkMin = new OffsetList();
+
+    long maxTime = Long.MIN_VALUE;
+    long minTime = Long.MAX_VALUE;
+
+    long offset = AuditJournal.HEADER_SIZE;
+
+    while (offset + 4 <= length) {
+      int recordLength = buffer(offset, 4).getInt();
+
+      if (recordLength <= 0 || length < offset + 4 + recordLength)
+        break;
+
+      AuditRecord record = readRecord(offset);
+
+      if (record == null)
+        break;
+
+      if (_size % TIME_INDEX_INTERVAL == 0) {
+        if (_size > 0)
+          chunkMin.add(minTime);
+
+        _timeOffsets.add(offset);
+        _timeMaxBefore.add(maxTime);
+
+        minTime = Long.MAX_VALUE;
+      }
+
+      maxTime = Math.max(maxTime, record.getTime());
+      minTime = Math.min(minTime, record.getTime());
+
+      index(_auctionIndex, record.getAuctionId(), offset);
+      index(_settlementIndex, record.getSettlementId(), offset);
+
+      _size++;
+
+      offset += 4 + recordLength;
+    }
+
+    if (_size > 0)
+      chunkMin.add(minTime);
+
+    _timeMinAfter = new long[chunkMin.size()];
+
+    long min = Long.MAX_VALUE;
+
+    for (int i = _timeMinAfter.length - 1; i >= 0; i--) {
+      min = Math.min(min, chunkMin.get(i));
+
+      _timeMinAfter[i] = min;
+    }
+  }
+
+  private static void index(HashMap<String,OffsetList> index,
+                            String key,
+                            long offset)
+  {
+    if (key == null)
+      return;
+
+    index.computeIfAbsent(key, k -> new OffsetList()).add(offset);
+  }
+
+  /**
+   * Number of complete records in the journal.
+   */
+  public int size()
+  {
+    return _size;
+  }
+
+  public List<AuditRecord> findByAuction(String auctionId)
+  {
+    return read(_auctionIndex.get(auctionId));
+  }
+
+  public List<AuditRecord> findBySettlement(String settlementId)
+  {
+    return read(_settlementIndex.get(settlementId));
+  }
+
+  /**
+   * Full history of an auction in journal order: the auction's own records
+   * and the records of its settlements, which include the refund records
+   * that carry only a settlement id.
+   */
+  public List<AuditRecord> getHistory(String auctionId)
+  {
+    OffsetList auctionOffsets = _auctionIndex.get(auctionId);
+
+    if (auctionOffsets == null)
+      return new ArrayList<>();
+
+    LinkedHashSet<String> settlementIds = new LinkedHashSet<>();
+
+    for (AuditRecord record : read(auctionOffsets)) {
+      if (record.getSettlementId() != null)
+        settlementIds.add(record.getSettlementId());
+    }
+
+    OffsetList offsets = new OffsetList();
+    offsets.addAll(auctionOffsets);
+
+    for (String settlementId : settlementIds) {
+      offsets.addAll(_settlementIndex.get(settlementId));
+    }
+
+    offsets.sortDistinct();
+
+    return read(offsets);
+  }
+
+  /**
+   * Records with a time in the range [fromTime, toTime), in journal order.
+   */
+  public List<AuditRecord> scan(long fromTime, long toTime)
+  {
+    ArrayList<AuditRecord> result = new ArrayList<>();
+
+    if (_timeOffsets.size() == 0)
+      return result;
+
+    // last checkpoint with no earlier record at or after fromTime
+    int low = 0;
+    int high = _timeOffsets.size() - 1;
+
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+
+      if (_timeMaxBefore.get(mid) < fromTime)
+        low = mid;
+      else
+        high = mid - 1;
+    }
+
+    int checkpoint = low;
+
+    long offset = _timeOffsets.get(checkpoint);
+    int index = checkpoint * TIME_INDEX_INTERVAL;
+
+    for (; index < _size; index++) {
+      if (index % TIME_INDEX_INTERVAL == 0
+          && toTime <= _timeMinAfter[index / TIME_INDEX_INTERVAL]) {
+        break;
+      }
+
+      AuditRecord record = readRecord(offset);
+
+      if (fromTime <= record.getTime() && record.getTime() < toTime)
+        result.add(record);
+
+      offset += 4 + buffer(offset, 4).getInt();
+    }
+
+    return result;
+  }
+
+  private List<AuditRecord> read(OffsetList offsets)
+  {
+    ArrayList<AuditRecord> records = new ArrayList<>();
+
+    if (offsets == null)
+      return records;
+
+    for (int i = 0; i < offsets.size(); i++) {
+      records.add(readRecord(offsets.get(i)));
+    }
+
+    return records;
+  }
+
+  private AuditRecord readRecord(long offset)
+  {
+    int length = buffer(offset, 4).getInt();
+
+    try {
+      return AuditRecord.readBody(buffer(offset + 4, length));
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Bytes [offset, offset + length) of the journal. A view of the mapped
+   * segment unless the range crosses a segment boundary.
+   */
+  private ByteBuffer buffer(long offset, int length)
+  {
+    int segment = (int) (offset / SEGMENT_SIZE);
+    int position = (int) (offset % SEGMENT_SIZE);
+
+    ByteBuffer buffer = _segments[segment].duplicate();
+
+    if (position + length <= buffer.limit()) {
+      buffer.position(position);
+      buffer.limit(position + length);
+
+      return buffer.slice();
+    }
+
+    byte[] bytes = new byte[length];
+    int copied = 0;
+
+    while (copied < length) {
+      buffer = _segments[segment++].duplicate();
+      buffer.position(position);
+
+      int chunk = Math.min(length - copied, buffer.remaining());
+
+      buffer.get(bytes, copied, chunk);
+
+      copied += chunk;
+      position = 0;
+    }
+
+    return ByteBuffer.wrap(bytes);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    _segments = null;
+
+    if (_channel != null) {
+      _channel.close();
+      _channel = null;
+    }
+  }
+
+  /**
+   * Prints the history of an auction, one record per line.
+   */
+  public static void replay(File file, String auctionId, PrintStream out)
+    throws IOException
+  {
+    try (AuditJournalReader reader = new AuditJournalReader(file)) {
+      reader.open();
+
+      List<AuditRecord> history = reader.getHistory(auctionId);
+
+      out.println(String.format("auction %1$s: %2$d audit records in %3$s",
+                                auctionId,
+                                history.size(),
+                                file));
+
+      for (AuditRecord record : history) {
+        out.println(format(record));
+      }
+    }
+  }
+
+  static String format(AuditRecord record)
+  {
+    return String.format(
+      "%1$tF %1$tT.%1$tL %2$-28s settlement=%3$s user=%4$s amount=%5$d %6$s",
+      record.getTime(),
+      record.getType(),
+      record.getSettlementId(),
+      record.getUserId(),
+      record.getAmount(),
+      record.getDetail() != null ? record.getDetail() : "");
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _file + ", " + _size + "]";
+  }
+
+  private static final class OffsetList
+  {
+    private long[] _values = new long[4];
+    private int _size;
+
+    int size()
+    {
+      return _size;
+    }
+
+    long get(int i)
+    {
+      return _values[i];
+    }
+
+    void add(long value)
+    {
+      if (_size == _values.length)
+        _values = Arrays.copyOf(_values, 2 * _size);
+
+      _values[_size++] = value;
+    }
+
+    void addAll(OffsetList list)
+    {
+      if (list == null)
+        return;
+
+      for (int i = 0; i < list._size; i++) {
+        add(list._values[i]);
+      }
+    }
+
+    void sortDistinct()
+    {
+      Arrays.sort(_values, 0, _size);
+
+      int size = 0;
+
+      for (int i = 0; i < _size; i++) {
+        if (size == 0 || _values[size - 1] != _values[i])
+          _values[size++] = _values[i];
+      }
+
+      _size = size;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package examples.auction;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Structured audit event, written to the audit journal in a compact
+ * binary form:
+ * <pre>
+ *   int    length of the remaining record
+ *   byte   type code
+ *   long   time, epoch millis
+ *   string auction id
+ *   string settlement id
+ *   string user id
+ *   int    amount
+ *   string detail
+ * </pre>
+ * Strings are written as a short byte length followed by UTF-8 bytes;
+ * a length of -1 is null.
+ */
+public class AuditRecord
+{
+  private final Type _type;
+  private final long _time;
+  private final String _auctionId;
+  private final String _settlementId;
+  private final String _userId;
+  private final int _amount;
+  private final String _detail;
+
+  public AuditRecord(Type type,
+                     long time,
+                     String auctionId,
+                     String settlementId,
+                     String userId,
+                     int amount,
+                     String detail)
+  {
+    _type = type;
+    _time = time;
+    _auctionId = auctionId;
+    _settlementId = settlementId;
+    _userId = userId;
+    _amount = amount;
+    _detail = detail;
+  }
+
+  public Type getType()
+  {
+    return _type;
+  }
+
+  public long getTime()
+  {
+    return _time;
+  }
+
+  public String getAuctionId()
+  {
+    return _auctionId;
+  }
+
+  public String getSettlementId()
+  {
+    return _settlementId;
+  }
+
+  public String getUserId()
+  {
+    return _userId;
+  }
+
+  public int getAmount()
+  {
+    return _amount;
+  }
+
+  public String getDetail()
+  {
+    return _detail;
+  }
+
+  /**
+   * Writes the record body, without the length prefix.
+   */
+  void writeBody(DataOutputStream out) throws IOException
+  {
+    out.writeByte(_type.code());
+    out.writeLong(_time);
+    writeString(out, _auctionId);
+    writeString(out, _settlementId);
+    writeString(out, _userId);
+    out.writeInt(_amount);
+    writeString(out, _detail);
+  }
+
+  /**
+   * Reads a record body written by writeBody.
+   */
+  static AuditRecord readBody(ByteBuffer in)
+  {
+    Type type = Type.of(in.get());
+    long time = in.getLong();
+    String auctionId = readString(in);
+    String settlementId = readString(in);
+    String userId = readString(in);
+    int amount = in.getInt();
+    String detail = readString(in);
+
+    return new AuditRecord(type,
+                           time,
+                           auctionId,
+                           settlementId,
+                           userId,
+                           amount,
+                           detail);
+  }
+
+  private static void writeString(DataOutputStream out, String value)
+    throws IOException
+  {
+    if (value == null) {
+      out.writeShort(-1);
+
+      return;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+    int length = Math.min(bytes.length, Short.MAX_VALUE);
+
+    out.writeShort(length);
+    out.write(bytes, 0, length);
+  }
+
+  private static String readString(ByteBuffer in)
+  {
+    int length = in.getShort();
+
+    if (length < 0)
+      return null;
+
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%1$s[%2$s, %3$d, auction=%4$s, settlement=%5$s, user=%6$s, %7$d, %8$s]",
+                         getClass().getSimpleName(),
+                         _type,
+                         _time,
+                         _auctionId,
+                         _settlementId,
+                         _userId,
+                         _amount,
+                         _detail);
+  }
+
+  /**
+   * Audit event types. Codes are stored in the journal and must not change.
+   */
+  public enum Type
+  {
+    AUCTION_CREATE(1),
+    AUCTION_LOAD(2),
+    AUCTION_SAVE(3),
+    AUCTION_OPEN(4),
+    AUCTION_CLOSE(5),
+    BID_ACCEPT(6),
+    BID_REJECT(7),
+    SETTLEMENT_REQUEST_ACCEPTED(8),
+    SETTLEMENT_REQUEST_PERSISTED(9),
+    SETTLEMENT_WILL_SETTLE(10),
+    SETTLEMENT_COMPLETING(11),
+    PAYPAL_PAYMENT_REQUEST(12),
+    PAYPAL_PAYMENT_RESPONSE(13),
+    PAYPAL_REFUND_REQUEST(14),
+    PAYPAL_REFUND_RESPONSE(15);
+
+    private final int _code;
+
+    Type(int code)
+    {
+      _code = code;
+    }
+
+    public int code()
+    {
+      return _code;
+    }
+
+    public static Type of(int code)
+    {
+      for (Type type : values()) {
+        if (type._code == code)
+          return type;
+      }
+
+      throw new IllegalArgumentException("unknown audit record type "
+                                         + code);
+    }
+  }
+}
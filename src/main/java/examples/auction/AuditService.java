@@ -4,7 +4,9 @@ import io.baratine.service.Result;
 
 public interface AuditService
 {
-  void auctionCreate(AuctionDataInit initData, Result<Void> ignore);
+  void auctionCreate(String auctionId,
+                     AuctionDataInit initData,
+                     Result<Void> ignore);
 
   void auctionLoad(AuctionData auction, Result<Void> ignore);
 
@@ -14,13 +16,13 @@ public interface AuditService
 
   void auctionToClose(AuctionData auction, Result<Void> ignore);
 
-  void auctionBid(AuctionData auction,
-                  AuctionBid bid,
-                  Result<Void> ignore);
-
-  void auctionBidAccept(AuctionBid bid, Result<Void> ignore);
+  void auctionBidAccept(String auctionId,
+                        AuctionBid bid,
+                        Result<Void> ignore);
 
-  void auctionBidReject(AuctionBid bid, Result<Void> ignore);
+  void auctionBidReject(String auctionId,
+                        AuctionBid bid,
+                        Result<Void> ignore);
 
   void settlementRequestAccepted(String auctionId, Result<Void> ignore);
 
@@ -1,99 +1,267 @@
 package examples.auction;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
+
+import io.baratine.service.AfterBatch;
+import io.baratine.service.OnDestroy;
+import io.baratine.service.OnInit;
 import io.baratine.service.Result;
 import io.baratine.service.Service;
-
+import io.baratine.timer.Timers;
+
+/**
+ * Writes audit records to an append-only binary journal.
+ * <p>
+ * Callers send audit events as one-way messages, so auditing costs the
+ * caller a queue offer. The service inbox is the buffer between the
+ * callers and this writer: records are encoded as the messages are
+ * processed and written with one channel write per inbox batch in
+ * afterBatch(). A full inbox blocks the callers instead of dropping
+ * records.
+ * <p>
+ * A timer forces written records to disk every SYNC_INTERVAL, so a quiet
+ * period after a batch doesn't leave it unsynced. A failed write keeps its
+ * records in the journal and is retried by the next batch or tick; if the
+ * backlog fills up, new records are refused with a SEVERE log and a
+ * failed result.
+ * <p>
+ * The journal is ~/.auction/auction-audit.journal unless the
+ * auction.audit.journal system property names another file.
+ */
 @Service("/Audit")
 public class AuditServiceImpl implements AuditService
 {
   public final static Logger log
     = Logger.getLogger(AuditServiceImpl.class.getName());
 
-  @Override
-  public void auctionCreate(AuctionDataInit initData, Result<Void> ignore)
+  public static final String JOURNAL_PROPERTY = "auction.audit.journal";
+  public static final long SYNC_INTERVAL = 1000;
+
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private AuditJournal _journal;
+
+  public static File getJournalFile()
   {
-    String message = String.format("auction create %1$s", initData);
-    log.info(message);
+    String path = System.getProperty(JOURNAL_PROPERTY);
 
-    ignore.ok(null);
+    if (path == null) {
+      path = System.getProperty("user.home")
+             + File.separator
+             + ".auction"
+             + File.separator
+             + "auction-audit.journal";
+    }
+
+    return new File(path);
   }
 
-  @Override
-  public void auctionLoad(AuctionData auction, Result<Void> ignore)
+  @OnInit
+  public void init(Result<Boolean> result)
   {
-    String message = String.format("auction load %1$s", auction);
-    log.info(message);
+    try {
+      AuditJournal journal = new AuditJournal(getJournalFile(),
+                                              SYNC_INTERVAL);
+
+      journal.open();
+
+      _journal = journal;
+
+      _timers.runEvery(x -> checkpoint(),
+                       SYNC_INTERVAL,
+                       TimeUnit.MILLISECONDS,
+                       Result.ignore());
 
-    ignore.ok(null);
+      result.ok(true);
+    } catch (IOException e) {
+      result.fail(e);
+    }
   }
 
-  @Override
-  public void auctionSave(AuctionData auction, Result<Void> ignore)
+  @AfterBatch
+  public void afterBatch()
   {
-    String message = String.format("auction save %1$s", auction);
-    log.info(message);
+    try {
+      _journal.flush();
+    } catch (IOException e) {
+      log.log(Level.SEVERE, String.format("%1$s: %2$d bytes pending: %3$s",
+                                          _journal,
+                                          _journal.getPendingSize(),
+                                          e),
+              e);
+    }
+  }
 
-    ignore.ok(null);
+  private void checkpoint()
+  {
+    try {
+      _journal.checkpoint();
+    } catch (IOException e) {
+      log.log(Level.SEVERE, String.format("%1$s: %2$d bytes pending: %3$s",
+                                          _journal,
+                                          _journal.getPendingSize(),
+                                          e),
+              e);
+    }
   }
 
-  @Override
-  public void auctionToOpen(AuctionData auction, Result<Void> ignore)
+  @OnDestroy
+  public void destroy()
   {
-    String message = String.format("auction open %1$s", auction);
-    log.info(message);
+    try {
+      _journal.close();
+    } catch (IOException e) {
+      log.log(Level.WARNING, e.toString(), e);
+    }
+  }
 
-    ignore.ok(null);
+  private void append(AuditRecord.Type type,
+                      String auctionId,
+                      String settlementId,
+                      String userId,
+                      int amount,
+                      String detail,
+                      Result<Void> result)
+  {
+    AuditRecord record = new AuditRecord(type,
+                                         System.currentTimeMillis(),
+                                         auctionId,
+                                         settlementId,
+                                         userId,
+                                         amount,
+                                         detail);
+
+    if (log.isLoggable(Level.FINER))
+      log.finer(record.toString());
+
+    try {
+      _journal.append(record);
+
+      result.ok(null);
+    } catch (IOException e) {
+      log.log(Level.SEVERE, "audit record refused: " + record, e);
+
+      result.fail(e);
+    }
   }
 
-  @Override
-  public void auctionToClose(AuctionData auction, Result<Void> ignore)
+  private static int price(AuctionData auction)
   {
-    String message = String.format("auction close %1$s", auction);
-    log.info(message);
+    Auction.Bid bid = auction.getLastBid();
 
-    ignore.ok(null);
+    return bid != null ? bid.getBid() : auction.getStartingBid();
   }
 
   @Override
-  public void auctionBid(AuctionData auction,
-                         AuctionBid bid,
-                         Result<Void> ignore)
+  public void auctionCreate(String auctionId,
+                            AuctionDataInit initData,
+                            Result<Void> ignore)
   {
-    String message = String.format("auction %1$s bid %2$s", auction, bid);
-    log.info(message);
-
-    ignore.ok(null);
+    append(AuditRecord.Type.AUCTION_CREATE,
+           auctionId,
+           null,
+           initData.getUserId(),
+           initData.getStartingBid(),
+           initData.getTitle(),
+           ignore);
   }
 
   @Override
-  public void auctionBidAccept(AuctionBid bid, Result<Void> ignore)
+  public void auctionLoad(AuctionData auction, Result<Void> ignore)
   {
-    String message = String.format("bid accepted %1$s", bid);
-    log.info(message);
+    append(AuditRecord.Type.AUCTION_LOAD,
+           auction.getEncodedId(),
+           null,
+           null,
+           price(auction),
+           String.valueOf(auction.getState()),
+           ignore);
+  }
 
-    ignore.ok(null);
+  @Override
+  public void auctionSave(AuctionData auction, Result<Void> ignore)
+  {
+    append(AuditRecord.Type.AUCTION_SAVE,
+           auction.getEncodedId(),
+           null,
+           null,
+           price(auction),
+           String.valueOf(auction.getState()),
+           ignore);
   }
 
   @Override
-  public void auctionBidReject(AuctionBid bid, Result<Void> ignore)
+  public void auctionToOpen(AuctionData auction, Result<Void> ignore)
   {
-    String message = String.format("bid rejected %1$s", bid);
-    log.info(message);
+    append(AuditRecord.Type.AUCTION_OPEN,
+           auction.getEncodedId(),
+           null,
+           auction.getOwnerId(),
+           price(auction),
+           auction.getTitle(),
+           ignore);
+  }
 
-    ignore.ok(null);
+  @Override
+  public void auctionToClose(AuctionData auction, Result<Void> ignore)
+  {
+    Auction.Bid bid = auction.getLastBid();
+
+    append(AuditRecord.Type.AUCTION_CLOSE,
+           auction.getEncodedId(),
+           null,
+           bid != null ? bid.getUserId() : null,
+           price(auction),
+           auction.getTitle(),
+           ignore);
   }
 
   @Override
-  public void settlementRequestAccepted(String auctionId, Result<Void> ignore)
+  public void auctionBidAccept(String auctionId,
+                               AuctionBid bid,
+                               Result<Void> ignore)
   {
-    String message
-      = String.format("accepting settle request for auction %1$s", auctionId);
+    append(AuditRecord.Type.BID_ACCEPT,
+           auctionId,
+           null,
+           bid.getUser(),
+           bid.getBid(),
+           null,
+           ignore);
+  }
 
-    log.info(message);
+  @Override
+  public void auctionBidReject(String auctionId,
+                               AuctionBid bid,
+                               Result<Void> ignore)
+  {
+    append(AuditRecord.Type.BID_REJECT,
+           auctionId,
+           null,
+           bid.getUser(),
+           bid.getBid(),
+           null,
+           ignore);
+  }
 
-    ignore.ok(null);
+  @Override
+  public void settlementRequestAccepted(String auctionId, Result<Void> ignore)
+  {
+    append(AuditRecord.Type.SETTLEMENT_REQUEST_ACCEPTED,
+           auctionId,
+           null,
+           null,
+           0,
+           null,
+           ignore);
   }
 
   @Override
@@ -101,15 +269,13 @@ public class AuditServiceImpl implements AuditService
                                          String auctionId,
                                          Result<Void> ignore)
   {
-    String message
-      = String.format(
-      "settlement request for auction %2$s persisted with settlement id %1$s",
-      settlementId);
-
-    log.info(message);
-
-    ignore.ok(null);
-
+    append(AuditRecord.Type.SETTLEMENT_REQUEST_PERSISTED,
+           auctionId,
+           settlementId,
+           null,
+           0,
+           null,
+           ignore);
   }
 
   @Override
@@ -118,15 +284,13 @@ public class AuditServiceImpl implements AuditService
                                           Auction.Bid bid,
                                           Result<Void> ignore)
   {
-    String message
-      = String.format("%1$s: auction %2$s will settle with bid %3$s",
-                      settlementId,
-                      auction,
-                      bid);
-
-    log.info(message);
-
-    ignore.ok(null);
+    append(AuditRecord.Type.SETTLEMENT_WILL_SETTLE,
+           auction.getEncodedId(),
+           settlementId,
+           bid != null ? bid.getUserId() : null,
+           bid != null ? bid.getBid() : 0,
+           null,
+           ignore);
   }
 
   @Override
@@ -135,16 +299,13 @@ public class AuditServiceImpl implements AuditService
                                               Payment payment,
                                               Result<Void> ignore)
   {
-    String message
-      = String.format(
-      "%1$s: settlement for auction %2$s completing with payment %3$s",
-      settlementId,
-      auctionId,
-      payment);
-
-    log.info(message);
-
-    ignore.ok(null);
+    append(AuditRecord.Type.SETTLEMENT_COMPLETING,
+           auctionId,
+           settlementId,
+           null,
+           0,
+           payment(payment),
+           ignore);
   }
 
   @Override
@@ -153,17 +314,13 @@ public class AuditServiceImpl implements AuditService
                                            Payment payment,
                                            Result<Void> ignore)
   {
-    String message
-      = String.format(
-      "%1$s: pay pal payment response %2$s received for auction %3$s",
-      settlementId,
-      payment,
-      auction);
-
-    log.info(message);
-
-    ignore.ok(null);
-
+    append(AuditRecord.Type.PAYPAL_PAYMENT_RESPONSE,
+           auction.getEncodedId(),
+           settlementId,
+           null,
+           0,
+           payment(payment),
+           ignore);
   }
 
   @Override
@@ -173,17 +330,13 @@ public class AuditServiceImpl implements AuditService
                                        String userId,
                                        Result<Void> ignore)
   {
-    String message
-      = String.format(
-      "%1$s: pay pal send payment request for auction %2$s, bid %3$s, user %4$s",
-      settlementId,
-      auction,
-      bid,
-      userId);
-
-    log.info(message);
-
-    ignore.ok(null);
+    append(AuditRecord.Type.PAYPAL_PAYMENT_REQUEST,
+           auction.getEncodedId(),
+           settlementId,
+           userId,
+           bid.getBid(),
+           null,
+           ignore);
   }
 
   @Override
@@ -191,14 +344,13 @@ public class AuditServiceImpl implements AuditService
                                String saleId,
                                Result<Void> ignore)
   {
-    String message = String.format(
-      "%1$s: pay pal send refund request for saleId %2$s",
-      settlementId,
-      saleId);
-
-    log.info(message);
-
-    ignore.ok(null);
+    append(AuditRecord.Type.PAYPAL_REFUND_REQUEST,
+           null,
+           settlementId,
+           null,
+           0,
+           saleId,
+           ignore);
   }
 
   @Override
@@ -207,14 +359,22 @@ public class AuditServiceImpl implements AuditService
                                           Refund refund,
                                           Result<Void> ignore)
   {
-    String message = String.format(
-      "%1$s: pay pal refund response %2$s for saleId %3$s",
-      settlementId,
-      refund,
-      saleId);
+    String status = refund != null ? String.valueOf(refund.getStatus()) : null;
+
+    append(AuditRecord.Type.PAYPAL_REFUND_RESPONSE,
+           null,
+           settlementId,
+           null,
+           0,
+           saleId + ":" + status,
+           ignore);
+  }
 
-    log.info(message);
+  private static String payment(Payment payment)
+  {
+    if (payment == null)
+      return null;
 
-    ignore.ok(null);
+    return payment.getState() + ":" + payment.getSaleId();
   }
 }
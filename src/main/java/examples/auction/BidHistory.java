@@ -0,0 +1,138 @@
+package examples.auction;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Bid history of an auction. The most recent bids are kept inline in a
+ * columnar BidLog and persisted with the auction in the log's compact
+ * encoding; older bids are spilled in fixed size pages to the
+ * AuctionBidPage store, so the inline part stays bounded.
+ * <p>
+ * The encoding is refreshed on every change of the inline bids, so the
+ * history is always in its saved form when the vault writes the auction.
+ * <p>
+ * A page's bids stay inline until the page write is confirmed, so a
+ * failed or lost write leaves the history intact and the page is written
+ * again on a later bid.
+ */
+public class BidHistory implements Serializable
+{
+  public static final int RECENT_SIZE = 64;
+  public static final int PAGE_SIZE = 256;
+
+  // inline bids in BidLog.encode() form, persisted instead of the columns
+  private byte[] _recentData;
+
+  private transient BidLog _recent;
+
+  private int _pageCount;
+
+  private transient boolean _isSpilling;
+
+  public BidHistory()
+  {
+  }
+
+  /**
+   * Adds a bid to the history.
+   *
+   * @return bids to write as page getPageCount(), or null if the inline
+   * part has room or a page write is in progress. The bids are removed
+   * by onSpilled once the page is written.
+   */
+  public BidLog add(Auction.Bid bid)
+  {
+    recent().add(bid);
+    _recentData = _recent.encode();
+
+    if (_isSpilling || recent().size() < RECENT_SIZE + PAGE_SIZE)
+      return null;
+
+    _isSpilling = true;
+
+    return recent().head(PAGE_SIZE);
+  }
+
+  /**
+   * Drops the bids of a written page from the inline part.
+   */
+  public void onSpilled(int index)
+  {
+    if (index != _pageCount)
+      return;
+
+    recent().removeHead(PAGE_SIZE);
+    _recentData = _recent.encode();
+    _pageCount++;
+
+    _isSpilling = false;
+  }
+
+  /**
+   * Keeps the bids of a failed page write inline; the next bid retries.
+   */
+  public void onSpillFailed(int index)
+  {
+    if (index == _pageCount)
+      _isSpilling = false;
+  }
+
+  /**
+   * Total number of bids, including spilled pages.
+   */
+  public int size()
+  {
+    return getRecentOffset() + recent().size();
+  }
+
+  public int getPageCount()
+  {
+    return _pageCount;
+  }
+
+  /**
+   * Index of the first inline bid.
+   */
+  public int getRecentOffset()
+  {
+    return _pageCount * PAGE_SIZE;
+  }
+
+  public BidLog getRecent()
+  {
+    return recent();
+  }
+
+  /**
+   * Inline bids in the range [start, end), using history indexes.
+   */
+  public List<Auction.Bid> getRecent(int start, int end)
+  {
+    int offset = getRecentOffset();
+
+    return recent().getBids(start - offset, end - offset);
+  }
+
+  private BidLog recent()
+  {
+    if (_recent == null) {
+      _recent = _recentData != null
+                ? BidLog.decode(_recentData)
+                : new BidLog();
+    }
+
+    return _recent;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "["
+           + size()
+           + ", "
+           + _pageCount
+           + "]";
+  }
+}
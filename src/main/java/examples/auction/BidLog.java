@@ -0,0 +1,332 @@
+package examples.auction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Columnar log of the bids of one auction.
+ * <p>
+ * Amounts and times are stored in primitive columns and bidders are
+ * dictionary encoded, so a bid costs a few array slots instead of a
+ * BidImpl with its own copies of the user and auction ids. Auction.Bid
+ * views are created on demand.
+ */
+public class BidLog implements Serializable
+{
+  private static final int VERSION = 1;
+
+  private String _auctionId;
+
+  private ArrayList<String> _bidders = new ArrayList<>();
+
+  private int[] _bidderColumn = new int[8];
+  private int[] _amountColumn = new int[8];
+  private long[] _timeColumn = new long[8];
+
+  private int _size;
+
+  private transient HashMap<String,Integer> _bidderMap;
+
+  public BidLog()
+  {
+  }
+
+  public String getAuctionId()
+  {
+    return _auctionId;
+  }
+
+  public int size()
+  {
+    return _size;
+  }
+
+  public void add(Auction.Bid bid)
+  {
+    if (_auctionId == null)
+      _auctionId = bid.getAuctionId();
+
+    add(bid.getUserId(), bid.getBid(), bid.getTime());
+  }
+
+  private void add(String userId, int amount, long time)
+  {
+    if (_size == _amountColumn.length) {
+      int capacity = 2 * _size;
+
+      _bidderColumn = Arrays.copyOf(_bidderColumn, capacity);
+      _amountColumn = Arrays.copyOf(_amountColumn, capacity);
+      _timeColumn = Arrays.copyOf(_timeColumn, capacity);
+    }
+
+    _bidderColumn[_size] = getBidderIndex(userId);
+    _amountColumn[_size] = amount;
+    _timeColumn[_size] = time;
+
+    _size++;
+  }
+
+  private int getBidderIndex(String userId)
+  {
+    if (_bidderMap == null) {
+      _bidderMap = new HashMap<>();
+
+      for (int i = 0; i < _bidders.size(); i++) {
+        _bidderMap.put(_bidders.get(i), i);
+      }
+    }
+
+    Integer index = _bidderMap.get(userId);
+
+    if (index == null) {
+      index = _bidders.size();
+
+      _bidders.add(userId);
+      _bidderMap.put(userId, index);
+    }
+
+    return index;
+  }
+
+  public Auction.Bid get(int i)
+  {
+    if (i < 0 || _size <= i)
+      throw new IndexOutOfBoundsException(String.valueOf(i));
+
+    return new AuctionImpl.BidImpl(_bidders.get(_bidderColumn[i]),
+                                   _auctionId,
+                                   _amountColumn[i],
+                                   _timeColumn[i]);
+  }
+
+  /**
+   * Bids in the range [start, end) as a detached list.
+   */
+  public List<Auction.Bid> getBids(int start, int end)
+  {
+    ArrayList<Auction.Bid> bids = new ArrayList<>(end - start);
+
+    for (int i = start; i < end; i++) {
+      bids.add(get(i));
+    }
+
+    return bids;
+  }
+
+  /**
+   * Read-only view of the log; Bid instances are created on access.
+   */
+  public List<Auction.Bid> asList()
+  {
+    return new AbstractList<Auction.Bid>()
+    {
+      @Override
+      public Auction.Bid get(int index)
+      {
+        return BidLog.this.get(index);
+      }
+
+      @Override
+      public int size()
+      {
+        return _size;
+      }
+    };
+  }
+
+  /**
+   * Returns a copy of the first n bids as a new log.
+   */
+  public BidLog head(int n)
+  {
+    BidLog head = new BidLog();
+    head._auctionId = _auctionId;
+
+    for (int i = 0; i < n; i++) {
+      head.add(_bidders.get(_bidderColumn[i]),
+               _amountColumn[i],
+               _timeColumn[i]);
+    }
+
+    return head;
+  }
+
+  /**
+   * Removes the first n bids and returns them as a new log. The bidder
+   * dictionary of the remaining bids is compacted.
+   */
+  public BidLog removeHead(int n)
+  {
+    BidLog head = head(n);
+
+    BidLog tail = new BidLog();
+    tail._auctionId = _auctionId;
+
+    for (int i = n; i < _size; i++) {
+      tail.add(_bidders.get(_bidderColumn[i]),
+               _amountColumn[i],
+               _timeColumn[i]);
+    }
+
+    _bidders = tail._bidders;
+    _bidderMap = tail._bidderMap;
+    _bidderColumn = tail._bidderColumn;
+    _amountColumn = tail._amountColumn;
+    _timeColumn = tail._timeColumn;
+    _size = tail._size;
+
+    return head;
+  }
+
+  /**
+   * Encodes the log for the page store: the dictionary followed by
+   * varint bidder indexes and zigzag deltas of amounts and times.
+   */
+  public byte[] encode()
+  {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(16 + 8 * _size);
+      DataOutputStream out = new DataOutputStream(bos);
+
+      out.writeByte(VERSION);
+      out.writeUTF(_auctionId != null ? _auctionId : "");
+
+      writeVarLong(out, _bidders.size());
+
+      for (String bidder : _bidders) {
+        out.writeUTF(bidder);
+      }
+
+      writeVarLong(out, _size);
+
+      long lastAmount = 0;
+      long lastTime = 0;
+
+      for (int i = 0; i < _size; i++) {
+        writeVarLong(out, _bidderColumn[i]);
+        writeVarLong(out, zigzag(_amountColumn[i] - lastAmount));
+        writeVarLong(out, zigzag(_timeColumn[i] - lastTime));
+
+        lastAmount = _amountColumn[i];
+        lastTime = _timeColumn[i];
+      }
+
+      out.flush();
+
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static BidLog decode(byte[] data)
+  {
+    try {
+      DataInputStream in
+        = new DataInputStream(new ByteArrayInputStream(data));
+
+      int version = in.readByte();
+
+      if (version != VERSION)
+        throw new IllegalStateException("unknown bid log version "
+                                        + version);
+
+      BidLog log = new BidLog();
+
+      String auctionId = in.readUTF();
+      log._auctionId = auctionId.isEmpty() ? null : auctionId;
+
+      int bidderCount = (int) readVarLong(in);
+
+      for (int i = 0; i < bidderCount; i++) {
+        log._bidders.add(in.readUTF());
+      }
+
+      int size = (int) readVarLong(in);
+
+      log._bidderColumn = new int[Math.max(size, 1)];
+      log._amountColumn = new int[Math.max(size, 1)];
+      log._timeColumn = new long[Math.max(size, 1)];
+
+      long amount = 0;
+      long time = 0;
+
+      for (int i = 0; i < size; i++) {
+        int bidder = (int) readVarLong(in);
+
+        amount += unzigzag(readVarLong(in));
+        time += unzigzag(readVarLong(in));
+
+        log._bidderColumn[i] = bidder;
+        log._amountColumn[i] = (int) amount;
+        log._timeColumn[i] = time;
+      }
+
+      log._size = size;
+
+      return log;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static long zigzag(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value)
+    throws IOException
+  {
+    while ((value & ~0x7fL) != 0) {
+      out.writeByte((int) ((value & 0x7f) | 0x80));
+
+      value >>>= 7;
+    }
+
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException
+  {
+    long value = 0;
+
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+
+      value |= (long) (b & 0x7f) << shift;
+
+      if ((b & 0x80) == 0)
+        return value;
+    }
+
+    throw new IOException("malformed varint");
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "["
+           + _auctionId
+           + ", "
+           + _size
+           + ", "
+           + _bidders.size()
+           + "]";
+  }
+}
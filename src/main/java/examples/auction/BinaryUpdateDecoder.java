@@ -0,0 +1,156 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Decodes the binary frames written by {@link BinaryUpdateEncoder}. The
+ * web client's decoder in auction.service.ts follows the same steps.
+ * <p>
+ * Like the encoder, a decoder holds the connection's index and state
+ * tables and must see every frame of the socket in order.
+ */
+public class BinaryUpdateDecoder
+{
+  private String[] _ids = new String[16];
+  private String[] _titles = new String[16];
+  private long[] _prices = new long[16];
+  private int _size;
+
+  private final List<Auction.State> _states = new ArrayList<>();
+
+  private byte[] _buffer;
+  private int _offset;
+  private int _end;
+
+  public List<WebAuction> decode(byte[] buffer, int offset, int length)
+  {
+    _buffer = buffer;
+    _offset = offset;
+    _end = offset + length;
+
+    int version = readByte();
+
+    if (version != BinaryUpdateEncoder.VERSION)
+      throw new IllegalStateException("unknown frame version " + version);
+
+    List<WebAuction> auctions = new ArrayList<>();
+
+    while (_offset < _end) {
+      auctions.add(read());
+    }
+
+    _buffer = null;
+
+    return auctions;
+  }
+
+  private WebAuction read()
+  {
+    long key = readVarint();
+    int index = (int) (key >>> 1);
+
+    if ((key & 1) != 0) {
+      if (index > _size) {
+        throw new IllegalStateException("auction index " + index
+                                        + " skips past " + _size);
+      }
+      else if (index == _size) {
+        if (_ids.length <= index) {
+          _ids = Arrays.copyOf(_ids, 2 * _ids.length);
+          _titles = Arrays.copyOf(_titles, 2 * _titles.length);
+          _prices = Arrays.copyOf(_prices, 2 * _prices.length);
+        }
+
+        _size++;
+      }
+
+      // a define may reuse an evicted auction's index
+      _ids[index] = readString();
+      _titles[index] = readString();
+      _prices[index] = 0;
+    }
+    else if (index >= _size) {
+      throw new IllegalStateException("unknown auction index " + index);
+    }
+
+    Auction.State state = readState();
+
+    long zigzag = readVarint();
+    _prices[index] += (zigzag >>> 1) ^ -(zigzag & 1);
+
+    return WebAuction.of(_ids[index], _titles[index], _prices[index], state);
+  }
+
+  private Auction.State readState()
+  {
+    long key = readVarint();
+    int code = (int) (key >>> 1);
+
+    if ((key & 1) == 0) {
+      if (code >= _states.size())
+        throw new IllegalStateException("unknown state code " + code);
+
+      return _states.get(code);
+    }
+    else if (code != _states.size()) {
+      throw new IllegalStateException("state code " + code
+                                      + " out of order");
+    }
+
+    Auction.State state = Auction.State.valueOf(readString());
+
+    _states.add(state);
+
+    return state;
+  }
+
+  private String readString()
+  {
+    int length = (int) readVarint();
+
+    if (_end < _offset + length)
+      throw new IllegalStateException("truncated frame");
+
+    String value
+      = new String(_buffer, _offset, length, StandardCharsets.UTF_8);
+
+    _offset += length;
+
+    return value;
+  }
+
+  private long readVarint()
+  {
+    long value = 0;
+
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+
+      value |= (long) (b & 0x7f) << shift;
+
+      if ((b & 0x80) == 0)
+        return value;
+    }
+
+    throw new IllegalStateException("malformed varint");
+  }
+
+  private int readByte()
+  {
+    if (_end <= _offset)
+      throw new IllegalStateException("truncated frame");
+
+    return _buffer[_offset++] & 0xff;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _size + "]";
+  }
+}
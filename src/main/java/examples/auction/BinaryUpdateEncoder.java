@@ -0,0 +1,210 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import examples.auction.AuctionSession.WebAuction;
+
+/**
+ * Encodes auction updates in the compact binary frame of the
+ * auction-updates socket.
+ * <pre>
+ * frame  := VERSION record*
+ * record := varint(index &lt;&lt; 1 | define) [string(id) string(title)]
+ *           state zigzag(delta)
+ * state  := varint(code &lt;&lt; 1 | define) [string(name)]
+ * string := varint(length) utf8-bytes
+ * </pre>
+ * An auction's first record on the connection sets the define bit and
+ * carries the id and title; later records only send the index. The price
+ * is the difference to the last price sent for the index, starting from 0
+ * on each define.
+ * <p>
+ * The index table holds at most {@code maxAuctions} entries. When it is
+ * full, a new auction takes over the index of the least recently sent one,
+ * and the evicted auction is defined again if it is sent later.
+ * <p>
+ * State names are interned the same way, so the client doesn't depend on
+ * the Auction.State ordinals.
+ * <p>
+ * The tables are per connection, so a new encoder is needed for each
+ * socket. Not thread safe; owned by the session.
+ */
+public class BinaryUpdateEncoder
+{
+  public static final int VERSION = 2;
+
+  public static final int MAX_AUCTIONS = 1024;
+
+  private final int _maxAuctions;
+
+  private final LinkedHashMap<String,Slot> _slotMap
+    = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final HashMap<String,Integer> _stateMap = new HashMap<>();
+
+  private byte[] _buffer = new byte[256];
+  private int _length;
+
+  public BinaryUpdateEncoder()
+  {
+    this(MAX_AUCTIONS);
+  }
+
+  public BinaryUpdateEncoder(int maxAuctions)
+  {
+    if (maxAuctions <= 0)
+      throw new IllegalArgumentException("maxAuctions " + maxAuctions);
+
+    _maxAuctions = maxAuctions;
+  }
+
+  /**
+   * Returns the number of auctions in the client's index table.
+   */
+  public int size()
+  {
+    return _slotMap.size();
+  }
+
+  /**
+   * Encodes a frame. The returned buffer is reused by the next call and
+   * is valid up to {@link #length()}.
+   */
+  public byte[] encode(List<WebAuction> auctions)
+  {
+    _length = 0;
+
+    writeByte(VERSION);
+
+    for (WebAuction auction : auctions) {
+      write(auction);
+    }
+
+    return _buffer;
+  }
+
+  public int length()
+  {
+    return _length;
+  }
+
+  private void write(WebAuction auction)
+  {
+    Slot slot = _slotMap.get(auction.getId());
+
+    if (slot == null) {
+      slot = new Slot(allocate());
+      _slotMap.put(auction.getId(), slot);
+
+      writeVarint((long) slot._index << 1 | 1);
+      writeString(auction.getId());
+      writeString(auction.getTitle());
+    }
+    else {
+      writeVarint((long) slot._index << 1);
+    }
+
+    writeState(auction.getState());
+
+    long delta = auction.getBid() - slot._price;
+    slot._price = auction.getBid();
+
+    writeVarint((delta << 1) ^ (delta >> 63));
+  }
+
+  /**
+   * Returns the next free index, or the index of the least recently sent
+   * auction when the table is full.
+   */
+  private int allocate()
+  {
+    if (_slotMap.size() < _maxAuctions)
+      return _slotMap.size();
+
+    Iterator<Slot> iter = _slotMap.values().iterator();
+
+    Slot eldest = iter.next();
+    iter.remove();
+
+    return eldest._index;
+  }
+
+  private void writeState(String state)
+  {
+    Integer code = _stateMap.get(state);
+
+    if (code == null) {
+      code = _stateMap.size();
+      _stateMap.put(state, code);
+
+      writeVarint((long) code << 1 | 1);
+      writeString(state);
+    }
+    else {
+      writeVarint((long) code << 1);
+    }
+  }
+
+  private void writeString(String value)
+  {
+    byte[] bytes = value != null
+                   ? value.getBytes(StandardCharsets.UTF_8)
+                   : new byte[0];
+
+    writeVarint(bytes.length);
+
+    ensure(bytes.length);
+    System.arraycopy(bytes, 0, _buffer, _length, bytes.length);
+    _length += bytes.length;
+  }
+
+  private void writeVarint(long value)
+  {
+    ensure(10);
+
+    while ((value & ~0x7fL) != 0) {
+      _buffer[_length++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+
+    _buffer[_length++] = (byte) value;
+  }
+
+  private void writeByte(int value)
+  {
+    ensure(1);
+
+    _buffer[_length++] = (byte) value;
+  }
+
+  private void ensure(int length)
+  {
+    if (_buffer.length < _length + length) {
+      _buffer = Arrays.copyOf(_buffer,
+                              Math.max(2 * _buffer.length, _length + length));
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return (getClass().getSimpleName()
+            + "[" + _slotMap.size() + "/" + _maxAuctions + "]");
+  }
+
+  private static class Slot
+  {
+    private final int _index;
+    private long _price;
+
+    Slot(int index)
+    {
+      _index = index;
+    }
+  }
+}
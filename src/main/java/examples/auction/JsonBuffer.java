@@ -0,0 +1,206 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte buffer for writing JSON without intermediate
+ * Strings. A buffer is meant to be reset and reused by its owner.
+ */
+public class JsonBuffer
+{
+  private static final byte[] HEX
+    = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private byte[] _buffer;
+  private int _length;
+
+  public JsonBuffer()
+  {
+    this(256);
+  }
+
+  public JsonBuffer(int capacity)
+  {
+    _buffer = new byte[Math.max(capacity, 16)];
+  }
+
+  public int size()
+  {
+    return _length;
+  }
+
+  public void reset()
+  {
+    _length = 0;
+  }
+
+  public byte[] toByteArray()
+  {
+    return Arrays.copyOf(_buffer, _length);
+  }
+
+  @Override
+  public String toString()
+  {
+    return new String(_buffer, 0, _length, StandardCharsets.UTF_8);
+  }
+
+  public JsonBuffer append(byte[] bytes)
+  {
+    ensure(bytes.length);
+
+    System.arraycopy(bytes, 0, _buffer, _length, bytes.length);
+    _length += bytes.length;
+
+    return this;
+  }
+
+  public JsonBuffer append(char ch)
+  {
+    ensure(1);
+
+    _buffer[_length++] = (byte) ch;
+
+    return this;
+  }
+
+  /**
+   * Appends a string known to be plain ASCII, e.g. a field name.
+   */
+  public JsonBuffer appendAscii(String value)
+  {
+    int length = value.length();
+
+    ensure(length);
+
+    for (int i = 0; i < length; i++) {
+      _buffer[_length++] = (byte) value.charAt(i);
+    }
+
+    return this;
+  }
+
+  public JsonBuffer append(long value)
+  {
+    if (value == Long.MIN_VALUE)
+      return appendAscii(Long.toString(value));
+
+    ensure(20);
+
+    if (value < 0) {
+      _buffer[_length++] = '-';
+      value = -value;
+    }
+
+    int start = _length;
+
+    do {
+      _buffer[_length++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+
+    for (int i = start, j = _length - 1; i < j; i++, j--) {
+      byte tmp = _buffer[i];
+      _buffer[i] = _buffer[j];
+      _buffer[j] = tmp;
+    }
+
+    return this;
+  }
+
+  /**
+   * Appends a quoted, escaped JSON string, or null.
+   */
+  public JsonBuffer appendString(String value)
+  {
+    if (value == null)
+      return appendAscii("null");
+
+    append('"');
+    appendEscaped(value);
+    append('"');
+
+    return this;
+  }
+
+  /**
+   * Appends the escaped contents of a JSON string, without quotes.
+   */
+  public JsonBuffer appendEscaped(String value)
+  {
+    int length = value.length();
+
+    // worst case is a \\u escape per char
+    ensure(6 * length);
+
+    byte[] buffer = _buffer;
+    int offset = _length;
+
+    for (int i = 0; i < length; i++) {
+      char ch = value.charAt(i);
+
+      if (ch < 0x80) {
+        if (ch >= 0x20 && ch != '"' && ch != '\\') {
+          buffer[offset++] = (byte) ch;
+          continue;
+        }
+
+        buffer[offset++] = '\\';
+
+        switch (ch) {
+        case '"': buffer[offset++] = '"'; break;
+        case '\\': buffer[offset++] = '\\'; break;
+        case '\n': buffer[offset++] = 'n'; break;
+        case '\r': buffer[offset++] = 'r'; break;
+        case '\t': buffer[offset++] = 't'; break;
+        case '\b': buffer[offset++] = 'b'; break;
+        case '\f': buffer[offset++] = 'f'; break;
+        default:
+          buffer[offset++] = 'u';
+          buffer[offset++] = '0';
+          buffer[offset++] = '0';
+          buffer[offset++] = HEX[ch >> 4];
+          buffer[offset++] = HEX[ch & 0xf];
+          break;
+        }
+      }
+      else if (ch < 0x800) {
+        buffer[offset++] = (byte) (0xc0 | (ch >> 6));
+        buffer[offset++] = (byte) (0x80 | (ch & 0x3f));
+      }
+      else if (Character.isHighSurrogate(ch)
+               && i + 1 < length
+               && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int cp = Character.toCodePoint(ch, value.charAt(++i));
+
+        buffer[offset++] = (byte) (0xf0 | (cp >> 18));
+        buffer[offset++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+        buffer[offset++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+        buffer[offset++] = (byte) (0x80 | (cp & 0x3f));
+      }
+      else if (Character.isSurrogate(ch)) {
+        // unpaired surrogate
+        buffer[offset++] = '?';
+      }
+      else {
+        buffer[offset++] = (byte) (0xe0 | (ch >> 12));
+        buffer[offset++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+        buffer[offset++] = (byte) (0x80 | (ch & 0x3f));
+      }
+    }
+
+    _length = offset;
+
+    return this;
+  }
+
+  private void ensure(int length)
+  {
+    if (_buffer.length < _length + length) {
+      int capacity = Math.max(2 * _buffer.length, _length + length);
+
+      _buffer = Arrays.copyOf(_buffer, capacity);
+    }
+  }
+}
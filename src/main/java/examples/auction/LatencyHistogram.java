@@ -0,0 +1,130 @@
+package examples.auction;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ * <p>
+ * As in an HDR histogram, each power of two is split into SUB_BUCKETS
+ * linear buckets, so a recorded value is known to within 1/SUB_BUCKETS of
+ * its magnitude over the whole range of a long. Recording is a bucket
+ * increment and two LongAdder updates, with no locking or allocation.
+ * Values are nanoseconds.
+ */
+public class LatencyHistogram
+{
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder _count = new LongAdder();
+  private final LongAdder _sum = new LongAdder();
+
+  public void record(long nanos)
+  {
+    if (nanos < 0)
+      nanos = 0;
+
+    _buckets.incrementAndGet(index(nanos));
+
+    _count.increment();
+    _sum.add(nanos);
+  }
+
+  /**
+   * Records the time since a System.nanoTime() start.
+   */
+  public void recordSince(long startNanos)
+  {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public long getCount()
+  {
+    return _count.sum();
+  }
+
+  public long getSum()
+  {
+    return _sum.sum();
+  }
+
+  /**
+   * Upper bound of the bucket holding the given quantile, or 0 when
+   * nothing was recorded.
+   */
+  public long quantile(double q)
+  {
+    return quantiles(q)[0];
+  }
+
+  /**
+   * Quantiles from a single pass over the buckets. The quantiles must be
+   * in increasing order.
+   */
+  public long[] quantiles(double... qs)
+  {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = _buckets.get(i);
+      total += counts[i];
+    }
+
+    long[] values = new long[qs.length];
+
+    if (total == 0)
+      return values;
+
+    int bucket = 0;
+    long seen = counts[0];
+
+    for (int i = 0; i < qs.length; i++) {
+      long rank = Math.max(1, (long) Math.ceil(qs[i] * total));
+
+      while (seen < rank && bucket < BUCKETS - 1) {
+        bucket++;
+        seen += counts[bucket];
+      }
+
+      values[i] = upperBound(bucket);
+    }
+
+    return values;
+  }
+
+  static int index(long value)
+  {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+    return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBound(int index)
+  {
+    if (index < SUB_BUCKETS)
+      return index;
+
+    int exp = index / SUB_BUCKETS - 1 + SUB_BITS;
+    long sub = index % SUB_BUCKETS;
+
+    long width = 1L << (exp - SUB_BITS);
+
+    return ((SUB_BUCKETS + sub) << (exp - SUB_BITS)) + width - 1;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + getCount() + "]";
+  }
+}
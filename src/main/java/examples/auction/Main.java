@@ -1,6 +1,7 @@
 package examples.auction;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -8,8 +9,18 @@ import static io.baratine.web.Web.*;
 
 public class Main
 {
-  public static void main(String[] args)
+  public static void main(String[] args) throws IOException
   {
+    if (args.length >= 2 && "audit-replay".equals(args[0])) {
+      File journal = args.length > 2
+                     ? new File(args[2])
+                     : AuditServiceImpl.getJournalFile();
+
+      AuditJournalReader.replay(journal, args[1], System.out);
+
+      return;
+    }
+
     if (new File("src/main/resources/web/index.htmlx").exists())
       property("server.file", "src/main/resources/web");
     else
@@ -17,13 +28,21 @@ public class Main
 
     include(AuctionAdminSessionImpl.class);
     include(AuctionUserSessionImpl.class);
+    include(AuctionUpdateHubImpl.class);
+    include(AuctionEventPollImpl.class);
 
     include(AuctionSettlementVault.class);
     include(AuditServiceImpl.class);
+    include(AuctionSuggestImpl.class);
+    include(AuctionCloseSchedulerImpl.class);
+    include(AuctionSettlementBatcherImpl.class);
+    include(SettlementRecoveryImpl.class);
     include(PayPalImpl.class);
 
     include(UserVault.class);
     include(AuctionVault.class);
+    include(AuctionBidPageVault.class);
+    include(AuctionTitleIndexVault.class);
 
     Level level = Level.FINEST;
 
@@ -0,0 +1,105 @@
+package examples.auction;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import io.baratine.service.Result;
+
+/**
+ * Process-wide registry of per-method latency histograms.
+ * <p>
+ * A histogram is keyed by service, method and outcome, e.g.
+ * ("Auction", "bid", "accepted"). Callers on hot paths look theirs up
+ * once and keep it in a static field, so recording costs no map lookup.
+ * The histogram
+ * count doubles as the method's throughput counter.
+ * <p>
+ * format() writes the registry in the Prometheus text format, served at
+ * /admin/metrics.
+ */
+public final class Metrics
+{
+  public static final String NAME = "auction_method_duration_seconds";
+
+  private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+  private static final Map<String,LatencyHistogram> HISTOGRAMS
+    = new ConcurrentHashMap<>();
+
+  private Metrics()
+  {
+  }
+
+  public static LatencyHistogram timer(String service,
+                                       String method,
+                                       String outcome)
+  {
+    String labels = "service=\"" + service + "\""
+                    + ",method=\"" + method + "\""
+                    + ",outcome=\"" + outcome + "\"";
+
+    return HISTOGRAMS.computeIfAbsent(labels, k -> new LatencyHistogram());
+  }
+
+  /**
+   * Wraps a result to record the time until it completes, in the success
+   * or the failure histogram.
+   */
+  public static <T> Result<T> timed(Result<T> result,
+                                    LatencyHistogram success,
+                                    LatencyHistogram failure)
+  {
+    long start = System.nanoTime();
+
+    Consumer<T> ok = x -> {
+      success.recordSince(start);
+      result.ok(x);
+    };
+
+    Consumer<Throwable> fail = e -> {
+      failure.recordSince(start);
+      result.fail(e);
+    };
+
+    return Result.of(ok, fail);
+  }
+
+  public static String format()
+  {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("# HELP ").append(NAME)
+      .append(" Service method latency by outcome.\n");
+    sb.append("# TYPE ").append(NAME).append(" summary\n");
+
+    TreeMap<String,LatencyHistogram> histograms = new TreeMap<>(HISTOGRAMS);
+
+    for (Map.Entry<String,LatencyHistogram> entry : histograms.entrySet()) {
+      String labels = entry.getKey();
+      LatencyHistogram histogram = entry.getValue();
+
+      long[] values = histogram.quantiles(QUANTILES);
+
+      for (int i = 0; i < QUANTILES.length; i++) {
+        sb.append(NAME).append('{').append(labels)
+          .append(",quantile=\"").append(QUANTILES[i]).append("\"} ")
+          .append(seconds(values[i])).append('\n');
+      }
+
+      sb.append(NAME).append("_sum{").append(labels).append("} ")
+        .append(seconds(histogram.getSum())).append('\n');
+
+      sb.append(NAME).append("_count{").append(labels).append("} ")
+        .append(histogram.getCount()).append('\n');
+    }
+
+    return sb.toString();
+  }
+
+  private static String seconds(long nanos)
+  {
+    return Double.toString(nanos / 1e9);
+  }
+}
@@ -10,6 +10,7 @@ public class PayPalAuth
 {
   private String _token;
   private String _auth;
+  private int _expiresIn;
 
   public PayPalAuth()
   {
@@ -31,10 +32,19 @@ public class PayPalAuth
     String token = json.getString("access_token");
 
     _token = token;
+    _expiresIn = json.getInt("expires_in", 0);
   }
 
   public String getToken()
   {
     return _token;
   }
+
+  /**
+   * Token lifetime in seconds as returned by PayPal, 0 if unknown.
+   */
+  public int getExpiresIn()
+  {
+    return _expiresIn;
+  }
 }
@@ -7,15 +7,27 @@ import javax.inject.Inject;
 
 import io.baratine.service.Result;
 import io.baratine.service.Service;
-import io.baratine.service.Workers;
 
+/**
+ * PayPal settlement. Calls to the PayPal REST API don't block the service;
+ * concurrency is limited by the PayPalRestLink client instead of a worker
+ * pool.
+ */
 @Service("/PayPal")
-@Workers(20)
 public class PayPalImpl implements PayPal
 {
   private static final Logger log
     = Logger.getLogger(PayPalImpl.class.getName());
 
+  private static final LatencyHistogram SETTLE_APPROVED_TIMER
+    = Metrics.timer("PayPal", "settle", "approved");
+  private static final LatencyHistogram SETTLE_PENDING_TIMER
+    = Metrics.timer("PayPal", "settle", "pending");
+  private static final LatencyHistogram SETTLE_FAILED_TIMER
+    = Metrics.timer("PayPal", "settle", "failed");
+  private static final LatencyHistogram SETTLE_ERROR_TIMER
+    = Metrics.timer("PayPal", "settle", "error");
+
   @Inject
   private PayPalRestLink _rest;
 
@@ -30,49 +42,60 @@ public class PayPalImpl implements PayPal
                      String payPalRequestId,
                      Result<Payment> result)
   {
-    try {
-      log.log(Level.FINER, String.format("settle payment for auction %1$s",
-                                         auction));
-
-      PayPalAuth auth = _rest.auth();
-
-      String amount = String.format("%1$d.00", bid.getBid());
-
-      _audit.payPalSendPaymentRequest(payPalRequestId,
-                                      auction,
-                                      bid,
-                                      bid.getUserId(),
-                                      Result.ignore());
-
-      Payment payment = _rest.pay(auth.getToken(),
-                                  payPalRequestId,
-                                  creditCard.getNum(),
-                                  creditCard.getType(),
-                                  creditCard.getExpMonth(),
-                                  creditCard.getExpYear(),
-                                  creditCard.getCvv(),
-                                  "John",
-                                  "Doe",
-                                  amount,
-                                  "USD",
-                                  auction.getTitle());
-
-      _audit.payPalReceivePaymentResponse(payPalRequestId,
-                                          auction,
-                                          payment,
-                                          Result.ignore());
-
-      log.log(Level.FINER, String.format(
-        "payment recieved for auction %1$s -> %2$s ",
-        auction.getEncodedId(),
-        payment));
-
-      result.ok(payment);
-    } catch (Throwable t) {
-      log.log(Level.WARNING, t.getMessage(), t);
-
-      result.fail(t);
-    }
+    log.log(Level.FINER, String.format("settle payment for auction %1$s",
+                                       auction));
+
+    long start = System.nanoTime();
+
+    String amount = String.format("%1$d.00", bid.getBid());
+
+    _audit.payPalSendPaymentRequest(payPalRequestId,
+                                    auction,
+                                    bid,
+                                    bid.getUserId(),
+                                    Result.ignore());
+
+    _rest.pay(payPalRequestId,
+              creditCard.getNum(),
+              creditCard.getType(),
+              creditCard.getExpMonth(),
+              creditCard.getExpYear(),
+              creditCard.getCvv(),
+              "John",
+              "Doe",
+              amount,
+              "USD",
+              auction.getTitle(),
+              (payment, e) -> {
+                if (e != null) {
+                  SETTLE_ERROR_TIMER.recordSince(start);
+
+                  log.log(Level.WARNING, e.getMessage(), e);
+
+                  result.fail(e);
+
+                  return;
+                }
+
+                if (payment.getState() == Payment.PaymentState.approved)
+                  SETTLE_APPROVED_TIMER.recordSince(start);
+                else if (payment.getState() == Payment.PaymentState.pending)
+                  SETTLE_PENDING_TIMER.recordSince(start);
+                else
+                  SETTLE_FAILED_TIMER.recordSince(start);
+
+                _audit.payPalReceivePaymentResponse(payPalRequestId,
+                                                    auction,
+                                                    payment,
+                                                    Result.ignore());
+
+                log.log(Level.FINER, String.format(
+                  "payment recieved for auction %1$s -> %2$s ",
+                  auction.getEncodedId(),
+                  payment));
+
+                result.ok(payment);
+              });
   }
 
   @Override
@@ -81,19 +104,17 @@ public class PayPalImpl implements PayPal
                      String salesId,
                      Result<Refund> result)
   {
-    try {
-      _audit.payPalSendRefund(settlementId, salesId, Result.ignore());
-      PayPalAuth auth = _rest.auth();
-      Refund refund = _rest.refund(auth.getToken(), payPalRequestId, salesId);
-
-      result.ok(refund);
-
-      _audit.payPalReceiveRefundResponse(settlementId,
-                                         salesId,
-                                         refund,
-                                         Result.ignore());
-    } catch (Throwable e) {
-      result.fail(e);
-    }
+    _audit.payPalSendRefund(settlementId, salesId, Result.ignore());
+
+    _rest.refund(payPalRequestId,
+                 salesId,
+                 result.then(refund -> {
+                   _audit.payPalReceiveRefundResponse(settlementId,
+                                                      salesId,
+                                                      refund,
+                                                      Result.ignore());
+
+                   return refund;
+                 }));
   }
 }
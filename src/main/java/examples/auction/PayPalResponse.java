@@ -0,0 +1,195 @@
+package examples.auction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+
+/**
+ * Streaming extraction of the few fields used from PayPal responses, and
+ * gzip storage of the optional raw response.
+ */
+public final class PayPalResponse
+{
+  private static final int MAX_DEPTH = 32;
+
+  private PayPalResponse()
+  {
+  }
+
+  /**
+   * Values of the given paths, e.g. "state" or
+   * "transactions.0.related_resources.0.sale.id", in one pass over the
+   * response. Array elements are addressed by index. Parsing stops once
+   * all paths are found; a missing path has a null value.
+   */
+  public static String[] extract(byte[] json, String... paths)
+  {
+    Object[][] targets = new Object[paths.length][];
+
+    for (int i = 0; i < paths.length; i++) {
+      targets[i] = compile(paths[i]);
+    }
+
+    String[] values = new String[paths.length];
+    int found = 0;
+
+    String[] keys = new String[MAX_DEPTH];
+    int[] indexes = new int[MAX_DEPTH];
+    boolean[] isArray = new boolean[MAX_DEPTH];
+    int depth = 0;
+
+    try (JsonParser parser
+           = Json.createParser(new ByteArrayInputStream(json))) {
+      while (found < paths.length && parser.hasNext()) {
+        JsonParser.Event event = parser.next();
+
+        if (event == JsonParser.Event.KEY_NAME) {
+          keys[depth - 1] = parser.getString();
+
+          continue;
+        }
+
+        if (event == JsonParser.Event.END_OBJECT
+            || event == JsonParser.Event.END_ARRAY) {
+          depth--;
+
+          continue;
+        }
+
+        if (depth > 0 && isArray[depth - 1])
+          indexes[depth - 1]++;
+
+        if (event == JsonParser.Event.START_OBJECT
+            || event == JsonParser.Event.START_ARRAY) {
+          if (depth == MAX_DEPTH)
+            throw new IllegalStateException("response nested too deeply");
+
+          isArray[depth] = event == JsonParser.Event.START_ARRAY;
+          indexes[depth] = -1;
+          keys[depth] = null;
+          depth++;
+
+          continue;
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+          if (values[i] == null
+              && isMatch(targets[i], depth, keys, indexes, isArray)) {
+            values[i] = value(event, parser);
+            found++;
+          }
+        }
+      }
+    }
+
+    return values;
+  }
+
+  private static Object[] compile(String path)
+  {
+    String[] segments = path.split("\\.");
+
+    Object[] target = new Object[segments.length];
+
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+
+      boolean isIndex = ! segment.isEmpty();
+
+      for (int j = 0; j < segment.length(); j++) {
+        char ch = segment.charAt(j);
+
+        if (ch < '0' || '9' < ch)
+          isIndex = false;
+      }
+
+      target[i] = isIndex ? (Object) Integer.valueOf(segment) : segment;
+    }
+
+    return target;
+  }
+
+  private static boolean isMatch(Object[] target,
+                                 int depth,
+                                 String[] keys,
+                                 int[] indexes,
+                                 boolean[] isArray)
+  {
+    if (target.length != depth)
+      return false;
+
+    for (int i = 0; i < depth; i++) {
+      Object segment = target[i];
+
+      if (isArray[i]) {
+        if (! (segment instanceof Integer)
+            || (Integer) segment != indexes[i]) {
+          return false;
+        }
+      }
+      else if (! segment.equals(keys[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static String value(JsonParser.Event event, JsonParser parser)
+  {
+    switch (event) {
+    case VALUE_STRING:
+    case VALUE_NUMBER:
+      return parser.getString();
+    case VALUE_TRUE:
+      return "true";
+    case VALUE_FALSE:
+      return "false";
+    default:
+      return null;
+    }
+  }
+
+  public static byte[] compress(byte[] data)
+  {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4);
+
+      try (GZIPOutputStream out = new GZIPOutputStream(bos)) {
+        out.write(data);
+      }
+
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static String decompress(byte[] data)
+  {
+    if (data == null)
+      return null;
+
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(4 * data.length);
+
+      byte[] buffer = new byte[1024];
+      int l;
+
+      while ((l = in.read(buffer)) > 0) {
+        bos.write(buffer, 0, l);
+      }
+
+      return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,36 +1,62 @@
 package examples.auction;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.inject.Singleton;
 
+import io.baratine.service.Result;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
 @Singleton
 public class PayPalRestLink
 {
   private static final Logger log
     = Logger.getLogger(PayPalRestLink.class.getName());
 
+  public static final int MAX_REQUESTS = 64;
+  public static final int MAX_IDLE_CONNECTIONS = 16;
+  public static final long KEEP_ALIVE_SECONDS = 300;
+
+  private static final MediaType FORM
+    = MediaType.parse("application/x-www-form-urlencoded");
+  private static final MediaType JSON = MediaType.parse("application/json");
+
   private String _app;
   private String _account;
   private String _clientId;
   private String _secret;
   private String _endpoint;
   private boolean _isActive;
+  private boolean _isKeepResponse;
+
+  private OkHttpClient _client;
+
+  private PayPalTokenManager _tokens;
+
+  private PaymentTemplate _paymentTemplate;
 
   public PayPalRestLink() throws IOException
   {
@@ -52,13 +78,8 @@ public class PayPalRestLink
       Properties p = new Properties();
 
       p.load(in);
-      _app = p.getProperty("app");
-      _account = p.getProperty("account");
-      _clientId = p.getProperty("client-id").trim();
-      _secret = p.getProperty("secret").trim();
-      _endpoint = p.getProperty("endpoint");
 
-      _isActive = true;
+      init(p, new OkHttpClient.Builder());
     } catch (java.io.FileNotFoundException e) {
       log.log(Level.INFO,
               "paypal.properties is not found, PayPal will not be available");
@@ -68,185 +89,279 @@ public class PayPalRestLink
     }
   }
 
-  public PayPalAuth auth() throws IOException
+  /**
+   * Creates a link from explicit properties, e.g. against a local stub
+   * server with a client builder that trusts its certificate.
+   */
+  PayPalRestLink(Properties p, OkHttpClient.Builder builder)
+    throws IOException
   {
-    if (!_isActive)
-      return new DummyPayPalAuth();
-
-    Map<String,String> headers = new HashMap<>();
+    init(p, builder);
+  }
 
-    headers.put("Authorization", "Basic " + getBA());
-    headers.put("Accept", "application/json");
-    headers.put("Accept-Language", "en_US");
-    headers.put("Content-Type", "application/x-www-form-urlencoded");
+  private void init(Properties p, OkHttpClient.Builder builder)
+    throws IOException
+  {
+    _app = p.getProperty("app");
+    _account = p.getProperty("account");
+    _clientId = p.getProperty("client-id").trim();
+    _secret = p.getProperty("secret").trim();
+    _endpoint = p.getProperty("endpoint").trim();
 
-    String reply = send("/v1/oauth2/token",
-                        "POST",
-                        headers,
-                        "grant_type=client_credentials".getBytes());
+    if (_endpoint.indexOf("://") < 0)
+      _endpoint = "https://" + _endpoint;
 
-    return new PayPalAuth(reply);
-  }
+    _isKeepResponse
+      = Boolean.parseBoolean(p.getProperty("keep-response", "false").trim());
 
-  private String getBA() throws UnsupportedEncodingException
-  {
-    String auth = _clientId + ':' + _secret;
-    byte[] bytes = Base64.getEncoder().encode(auth.getBytes("UTF-8"));
+    int maxRequests = intProperty(p, "max-requests", MAX_REQUESTS);
+    int maxRequestsPerHost
+      = intProperty(p, "max-requests-per-host", maxRequests);
 
-    return new String(bytes, "UTF-8");
-  }
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxRequests);
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
 
-  private String send(String subUrl,
-                      String method,
-                      Map<String,String> headers,
-                      byte[] body)
-    throws IOException
-  {
-    if (!subUrl.startsWith("/"))
-      throw new IllegalArgumentException();
+    _client = builder.dispatcher(dispatcher)
+                     .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS,
+                                                        KEEP_ALIVE_SECONDS,
+                                                        TimeUnit.SECONDS))
+                     .protocols(Arrays.asList(Protocol.HTTP_2,
+                                              Protocol.HTTP_1_1))
+                     .build();
 
-    URL url = new URL(String.format("https://%1$s", _endpoint) + subUrl);
+    _tokens = new PayPalTokenManager(this::requestToken);
 
-    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-    connection.setRequestMethod(method);
+    _paymentTemplate = PaymentTemplate.load("/payment.template.json");
 
-    connection.setDoInput(true);
-    connection.setDoOutput(true);
+    _isActive = true;
+  }
 
-    for (Map.Entry<String,String> entry : headers.entrySet()) {
-      connection.setRequestProperty(entry.getKey(), entry.getValue());
-    }
+  private static int intProperty(Properties p, String name, int defaultValue)
+  {
+    String value = p.getProperty(name);
 
-    if (body != null) {
-      OutputStream out = connection.getOutputStream();
+    return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+  }
 
-      out.write(body);
+  /**
+   * Returns the cached OAuth token, requesting one if needed.
+   */
+  public void auth(Result<PayPalAuth> result)
+  {
+    if (!_isActive) {
+      result.ok(new DummyPayPalAuth());
 
-      out.flush();
+      return;
     }
 
-    int responseCode = connection.getResponseCode();
-
-    if (responseCode == 200 || responseCode == 201) {
-      InputStream in = connection.getInputStream();
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-      byte[] temp = new byte[1024];
-      int l;
+    _tokens.get(result);
+  }
 
-      while ((l = in.read(temp)) > 0)
-        buffer.write(temp, 0, l);
+  private void requestToken(Result<PayPalAuth> result)
+  {
+    Map<String,String> headers = new HashMap<>();
 
-      return new String(buffer.toByteArray());
-    }
-    else {
-      log.warning(String.format("error response %1$d", responseCode));
+    headers.put("Authorization", "Basic " + getBA());
+    headers.put("Accept", "application/json");
+    headers.put("Accept-Language", "en_US");
 
-      StringBuilder error = new StringBuilder();
+    send("/v1/oauth2/token",
+         "POST",
+         headers,
+         RequestBody.create(FORM, "grant_type=client_credentials"),
+         response -> new PayPalAuth(new String(response,
+                                               StandardCharsets.UTF_8)),
+         result);
+  }
 
-      InputStream err = connection.getErrorStream();
-      int i;
-      while ((i = err.read()) > 0)
-        error.append((char) i);
+  private String getBA()
+  {
+    String auth = _clientId + ':' + _secret;
+    byte[] bytes
+      = Base64.getEncoder().encode(auth.getBytes(StandardCharsets.UTF_8));
 
-      throw new IllegalStateException(responseCode
-                                      + ": "
-                                      + connection.getResponseMessage()
-                                      + ": "
-                                      + error);
-    }
+    return new String(bytes, StandardCharsets.UTF_8);
   }
 
   /**
-   * @param payPalRequestId
-   * @return
-   * @throws IOException
+   * Sends a request without blocking. The result is completed from the
+   * client's callback thread with the parsed 200 or 201 response body.
    */
-  public Payment pay(String securityToken,
-                     String payPalRequestId,
-                     String ccNumber,
-                     String ccType,
-                     int ccExpireM,
-                     int ccExpireY,
-                     String ccv2,
-                     String firstName,
-                     String lastName,
-                     String total,
-                     String currency,
-                     String description
-  ) throws IOException
+  private <T> void send(String subUrl,
+                        String method,
+                        Map<String,String> headers,
+                        RequestBody body,
+                        Function<byte[],T> parser,
+                        Result<T> result)
   {
-    if (!_isActive)
-      return new DummyPayment();
+    if (!subUrl.startsWith("/"))
+      throw new IllegalArgumentException();
+
+    Request.Builder request = new Request.Builder();
 
-    final String payment;
+    request.url(_endpoint + subUrl);
+    request.method(method, body);
 
-    try (InputStream in
-           = PayPalRestLink.class.getResourceAsStream("/payment.template.json")) {
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    for (Map.Entry<String,String> entry : headers.entrySet()) {
+      request.header(entry.getKey(), entry.getValue());
+    }
 
-      byte[] bytes = new byte[512];
+    _client.newCall(request.build()).enqueue(new Callback()
+    {
+      @Override
+      public void onFailure(Call call, IOException e)
+      {
+        result.fail(e);
+      }
 
-      int l;
+      @Override
+      public void onResponse(Call call, Response response)
+      {
+        try (Response r = response) {
+          int responseCode = r.code();
+
+          byte[] reply = r.body().bytes();
+
+          if (responseCode == 200 || responseCode == 201) {
+            result.ok(parser.apply(reply));
+          }
+          else {
+            log.warning(String.format("error response %1$d", responseCode));
+
+            result.fail(new StatusException(responseCode,
+                                            r.message(),
+                                            new String(reply,
+                                                       StandardCharsets.UTF_8)));
+          }
+        } catch (Throwable e) {
+          result.fail(e);
+        }
+      }
+    });
+  }
 
-      while ((l = in.read(bytes)) > 0)
-        buffer.write(bytes, 0, l);
+  /**
+   * Runs a request with the cached token. If PayPal rejects the token with
+   * a 401, the token is dropped and the request retried once with a new
+   * one; the PayPal-Request-Id header makes the retry idempotent.
+   */
+  private <T> void withToken(BiConsumer<PayPalAuth,Result<T>> request,
+                             Result<T> result)
+  {
+    _tokens.get(result.then((auth, r) -> {
+      request.accept(auth, (value, e) -> {
+        if (e instanceof StatusException
+            && ((StatusException) e).getStatus() == 401) {
+          _tokens.invalidate(auth);
+
+          _tokens.get(r.then((newAuth, r2) -> request.accept(newAuth, r2)));
+        }
+        else if (e != null) {
+          r.fail(e);
+        }
+        else {
+          r.ok(value);
+        }
+      });
+    }));
+  }
 
-      payment = String.format(new String(buffer.toByteArray(), "UTF-8"),
-                              ccNumber,
-                              ccType,
-                              ccExpireM,
-                              ccExpireY,
-                              ccv2,
-                              firstName,
-                              lastName,
-                              total,
-                              currency,
-                              description);
+  public void pay(String payPalRequestId,
+                  String ccNumber,
+                  String ccType,
+                  int ccExpireM,
+                  int ccExpireY,
+                  String ccv2,
+                  String firstName,
+                  String lastName,
+                  String total,
+                  String currency,
+                  String description,
+                  Result<Payment> result)
+  {
+    if (!_isActive) {
+      result.ok(new DummyPayment());
 
-      log.finer(payment);
+      return;
     }
 
-    Map<String,String> headers = new HashMap<>();
-    headers.put("Content-Type", "application/json");
-    headers.put("Authorization", "Bearer " + securityToken);
-    headers.put("PayPal-Request-Id", payPalRequestId);
+    final byte[] body;
 
-    String response = send("/v1/payments/payment", "POST", headers,
-                           payment.getBytes("UTF-8"));
+    try {
+      body = _paymentTemplate.render(ccNumber,
+                                     ccType,
+                                     ccExpireM,
+                                     ccExpireY,
+                                     ccv2,
+                                     firstName,
+                                     lastName,
+                                     total,
+                                     currency,
+                                     description);
+    } catch (IllegalArgumentException e) {
+      result.fail(e);
+
+      return;
+    }
 
-    return new PaymentImpl(response);
+    if (log.isLoggable(Level.FINER))
+      log.finer(new String(body, StandardCharsets.UTF_8));
+
+    withToken((auth, r) -> {
+      Map<String,String> headers = new HashMap<>();
+      headers.put("Authorization", "Bearer " + auth.getToken());
+      headers.put("PayPal-Request-Id", payPalRequestId);
+
+      send("/v1/payments/payment",
+           "POST",
+           headers,
+           RequestBody.create(JSON, body),
+           response -> new PaymentImpl(response, _isKeepResponse),
+           r);
+    }, result);
   }
 
-  public String list(String token) throws IOException
+  public void list(Result<String> result)
   {
-    Map<String,String> headers = new HashMap<>();
-
-    headers.put("Content-Type", "application/json");
-    headers.put("Authorization", "Bearer " + token);
-
-    return send("/v1/payments/payment?count=20", "GET", headers, null);
+    withToken((auth, r) -> {
+      Map<String,String> headers = new HashMap<>();
+
+      headers.put("Content-Type", "application/json");
+      headers.put("Authorization", "Bearer " + auth.getToken());
+
+      send("/v1/payments/payment?count=20",
+           "GET",
+           headers,
+           null,
+           response -> new String(response, StandardCharsets.UTF_8),
+           r);
+    }, result);
   }
 
-  public Refund refund(String securityToken,
-                       String payPalRequestId,
-                       String saleId)
-    throws IOException
+  public void refund(String payPalRequestId,
+                     String saleId,
+                     Result<Refund> result)
   {
-    if (!_isActive)
-      return new DummyRefund();
+    if (!_isActive) {
+      result.ok(new DummyRefund());
 
-    Map<String,String> headers = new HashMap<>();
+      return;
+    }
 
-    headers.put("Content-Type", "application/json");
-    headers.put("Authorization", "Bearer " + securityToken);
-    headers.put("PayPal-Request-Id", payPalRequestId);
+    withToken((auth, r) -> {
+      Map<String,String> headers = new HashMap<>();
 
-    String response = send("/v1/payments/sale/" + saleId + "/refund",
-                           "POST",
-                           headers,
-                           "{}".getBytes(StandardCharsets.UTF_8));
+      headers.put("Authorization", "Bearer " + auth.getToken());
+      headers.put("PayPal-Request-Id", payPalRequestId);
 
-    return new RefundImpl(response);
+      send("/v1/payments/sale/" + saleId + "/refund",
+           "POST",
+           headers,
+           RequestBody.create(JSON, "{}".getBytes(StandardCharsets.UTF_8)),
+           response -> new RefundImpl(response, _isKeepResponse),
+           r);
+    }, result);
   }
 
   @Override
@@ -261,6 +376,26 @@ public class PayPalRestLink
            + ']';
   }
 
+  /**
+   * Non-success HTTP response from PayPal.
+   */
+  public static class StatusException extends IllegalStateException
+  {
+    private final int _status;
+
+    public StatusException(int status, String message, String body)
+    {
+      super(status + ": " + message + ": " + body);
+
+      _status = status;
+    }
+
+    public int getStatus()
+    {
+      return _status;
+    }
+  }
+
   public static class DummyPayment implements Payment
   {
     @Override
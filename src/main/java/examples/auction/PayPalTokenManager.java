@@ -0,0 +1,135 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.baratine.service.Result;
+
+/**
+ * Caches the PayPal OAuth token for PayPalRestLink.
+ * <p>
+ * A cached token is handed out until it expires. Once REFRESH_FRACTION of
+ * its lifetime has passed, the first caller triggers a refresh in the
+ * background and still gets the cached token, so a busy link never waits
+ * for a token. Concurrent refreshes are collapsed into one token request.
+ * <p>
+ * Callers come from the PayPal service and from the HTTP client's callback
+ * threads, so the state is guarded by the manager's lock; results are
+ * completed outside of it.
+ */
+class PayPalTokenManager
+{
+  private static final Logger log
+    = Logger.getLogger(PayPalTokenManager.class.getName());
+
+  static final double REFRESH_FRACTION = 0.8;
+
+  // lifetime assumed when the response has no expires_in
+  static final long DEFAULT_LIFETIME = 5 * 60 * 1000L;
+
+  private final Consumer<Result<PayPalAuth>> _fetch;
+
+  private PayPalAuth _auth;
+  private long _refreshTime;
+  private long _expireTime;
+
+  private boolean _isRefreshing;
+  private List<Result<PayPalAuth>> _waiters = new ArrayList<>();
+
+  PayPalTokenManager(Consumer<Result<PayPalAuth>> fetch)
+  {
+    _fetch = fetch;
+  }
+
+  /**
+   * Returns a valid token, requesting a new one only if there is none.
+   */
+  void get(Result<PayPalAuth> result)
+  {
+    PayPalAuth auth = null;
+    boolean isRefresh = false;
+
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+
+      if (_auth != null && now < _expireTime) {
+        auth = _auth;
+
+        if (_refreshTime <= now && ! _isRefreshing) {
+          _isRefreshing = true;
+          isRefresh = true;
+        }
+      }
+      else {
+        _waiters.add(result);
+
+        if (! _isRefreshing) {
+          _isRefreshing = true;
+          isRefresh = true;
+        }
+      }
+    }
+
+    if (auth != null)
+      result.ok(auth);
+
+    if (isRefresh)
+      refresh();
+  }
+
+  /**
+   * Drops a token the server rejected, so the next get() fetches a new one.
+   */
+  synchronized void invalidate(PayPalAuth auth)
+  {
+    if (_auth == auth)
+      _auth = null;
+  }
+
+  private void refresh()
+  {
+    _fetch.accept((auth, e) -> {
+      List<Result<PayPalAuth>> waiters;
+
+      synchronized (this) {
+        _isRefreshing = false;
+
+        if (e == null) {
+          long now = System.currentTimeMillis();
+
+          long lifetime = auth.getExpiresIn() > 0
+                          ? auth.getExpiresIn() * 1000L
+                          : DEFAULT_LIFETIME;
+
+          _auth = auth;
+          _refreshTime = now + (long) (lifetime * REFRESH_FRACTION);
+          _expireTime = now + lifetime;
+        }
+
+        waiters = _waiters;
+        _waiters = new ArrayList<>();
+      }
+
+      if (e != null) {
+        log.log(Level.WARNING, e.toString(), e);
+      }
+
+      for (Result<PayPalAuth> waiter : waiters) {
+        if (e != null)
+          waiter.fail(e);
+        else
+          waiter.ok(auth);
+      }
+    });
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return getClass().getSimpleName()
+           + "[" + (_auth != null) + ", " + _expireTime + "]";
+  }
+}
@@ -1,38 +1,42 @@
 package examples.auction;
 
-import java.io.StringReader;
-
-import javax.json.JsonObject;
-
 /**
  * Class payment encapsulates PayPal reply
  */
 public class PaymentImpl implements Payment
 {
-  private String _payment;
+  private static final String STATE = "state";
+  private static final String SALE_ID
+    = "transactions.0.related_resources.0.sale.id";
 
   private PaymentState _state;
 
   private String _saleId;
 
+  // gzip of the raw response, if kept
+  private byte[] _response;
+
   public PaymentImpl()
   {
   }
 
-  public PaymentImpl(String payment)
+  /**
+   * Parses a PayPal payment response.
+   *
+   * @param isKeepResponse keep a compressed copy of the raw response
+   */
+  public PaymentImpl(byte[] response, boolean isKeepResponse)
   {
-    _payment = payment;
-
-    JsonObject jsonObject
-      = javax.json.Json.createReader(new StringReader(payment)).readObject();
+    String[] values = PayPalResponse.extract(response, STATE, SALE_ID);
 
-    String state = jsonObject.getString("state");
+    if (values[0] == null)
+      throw new IllegalStateException("payment response has no state");
 
-    _state = Enum.valueOf(PaymentState.class, state);
+    _state = Enum.valueOf(PaymentState.class, values[0]);
+    _saleId = values[1];
 
-    _saleId = jsonObject.getJsonArray("transactions").getJsonObject(0)
-                        .getJsonArray("related_resources").getJsonObject(0)
-                        .getJsonObject("sale").getString("id");
+    if (isKeepResponse)
+      _response = PayPalResponse.compress(response);
   }
 
   @Override
@@ -47,9 +51,18 @@ public class PaymentImpl implements Payment
     return _saleId;
   }
 
+  /**
+   * The raw PayPal response, or null if it wasn't kept.
+   */
+  public String getResponse()
+  {
+    return PayPalResponse.decompress(_response);
+  }
+
   @Override
   public String toString()
   {
-    return PaymentImpl.class.getSimpleName() + "[" + _payment + "]";
+    return PaymentImpl.class.getSimpleName()
+           + "[" + _state + ", " + _saleId + "]";
   }
 }
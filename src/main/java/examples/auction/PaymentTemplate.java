@@ -0,0 +1,168 @@
+package examples.auction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * JSON request template compiled once into literal segments and argument
+ * slots.
+ * <p>
+ * The template uses String.format positional placeholders, %1$s or %1$d.
+ * A placeholder between double quotes is written as an escaped JSON
+ * string; any other placeholder must be a number. Rendering writes the
+ * segments into a reused per-thread JsonBuffer.
+ */
+public class PaymentTemplate
+{
+  private static final ThreadLocal<JsonBuffer> _bufferLocal
+    = ThreadLocal.withInitial(() -> new JsonBuffer(1024));
+
+  private final byte[][] _literals;
+  private final int[] _args;
+  private final boolean[] _isQuoted;
+
+  public PaymentTemplate(String template)
+  {
+    ArrayList<byte[]> literals = new ArrayList<>();
+    ArrayList<Integer> args = new ArrayList<>();
+    ArrayList<Boolean> quoted = new ArrayList<>();
+
+    StringBuilder literal = new StringBuilder();
+
+    int length = template.length();
+
+    for (int i = 0; i < length; i++) {
+      char ch = template.charAt(i);
+
+      if (ch != '%') {
+        literal.append(ch);
+        continue;
+      }
+
+      if (i + 1 < length && template.charAt(i + 1) == '%') {
+        literal.append('%');
+        i++;
+        continue;
+      }
+
+      int j = i + 1;
+      int index = 0;
+
+      while (j < length
+             && '0' <= template.charAt(j) && template.charAt(j) <= '9') {
+        index = 10 * index + template.charAt(j) - '0';
+        j++;
+      }
+
+      if (index == 0
+          || j + 1 >= length
+          || template.charAt(j) != '$'
+          || "sd".indexOf(template.charAt(j + 1)) < 0) {
+        throw new IllegalArgumentException("unsupported placeholder at "
+                                           + i + " in template");
+      }
+
+      boolean isQuoted = i > 0
+                         && template.charAt(i - 1) == '"'
+                         && j + 2 < length
+                         && template.charAt(j + 2) == '"';
+
+      literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+      literal.setLength(0);
+
+      args.add(index - 1);
+      quoted.add(isQuoted);
+
+      i = j + 1;
+    }
+
+    literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+
+    _literals = literals.toArray(new byte[literals.size()][]);
+
+    _args = new int[args.size()];
+    _isQuoted = new boolean[args.size()];
+
+    for (int i = 0; i < _args.length; i++) {
+      _args[i] = args.get(i);
+      _isQuoted[i] = quoted.get(i);
+    }
+  }
+
+  public static PaymentTemplate load(String resource) throws IOException
+  {
+    try (InputStream in = PaymentTemplate.class.getResourceAsStream(resource)) {
+      if (in == null)
+        throw new IOException("missing template " + resource);
+
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+      byte[] bytes = new byte[4096];
+
+      int l;
+
+      while ((l = in.read(bytes)) > 0)
+        buffer.write(bytes, 0, l);
+
+      return new PaymentTemplate(new String(buffer.toByteArray(),
+                                            StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Renders the template as UTF-8 bytes.
+   */
+  public byte[] render(Object... args)
+  {
+    JsonBuffer buffer = _bufferLocal.get();
+
+    buffer.reset();
+
+    for (int i = 0; i < _args.length; i++) {
+      buffer.append(_literals[i]);
+
+      Object value = args[_args[i]];
+
+      if (_isQuoted[i])
+        buffer.appendEscaped(String.valueOf(value));
+      else
+        appendNumber(buffer, value);
+    }
+
+    buffer.append(_literals[_args.length]);
+
+    return buffer.toByteArray();
+  }
+
+  private static void appendNumber(JsonBuffer buffer, Object value)
+  {
+    if (value instanceof Integer || value instanceof Long) {
+      buffer.append(((Number) value).longValue());
+
+      return;
+    }
+
+    String string = String.valueOf(value);
+
+    if (string.isEmpty())
+      throw new IllegalArgumentException("empty number in template");
+
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+
+      if (ch < '0' || '9' < ch)
+        throw new IllegalArgumentException("'" + string + "' is not a number");
+    }
+
+    buffer.appendAscii(string);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _args.length + " args]";
+  }
+}
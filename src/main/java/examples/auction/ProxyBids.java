@@ -0,0 +1,253 @@
+package examples.auction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Proxy bids of an auction: each bidder's private maximum, in a binary
+ * max-heap ordered by maximum and, for equal maximums, by who set it first.
+ * The heap is persisted with the auction.
+ * <p>
+ * The auction resolves the proxies after each price change. Only the top
+ * two entries matter: the leader bids one increment over the runner-up or
+ * the current price, up to its own maximum. Entries at or below the price
+ * can never bid again and are dropped when they reach the top.
+ */
+public class ProxyBids implements Serializable
+{
+  public static final int INCREMENT = 1;
+
+  private ArrayList<ProxyBid> _heap = new ArrayList<>();
+
+  private long _sequence;
+
+  private transient HashMap<String,ProxyBid> _userMap;
+
+  public ProxyBids()
+  {
+  }
+
+  public int size()
+  {
+    return _heap.size();
+  }
+
+  /**
+   * Returns the bidder's registered maximum or 0.
+   */
+  public int getMax(String userId)
+  {
+    ProxyBid proxy = getUserMap().get(userId);
+
+    return proxy != null ? proxy._max : 0;
+  }
+
+  /**
+   * Registers or raises a bidder's maximum.
+   *
+   * @param price the current visible price
+   * @return false if the maximum is not over the price or the bidder's
+   * previous maximum
+   */
+  public boolean put(String userId, int max, int price)
+  {
+    if (max <= price)
+      return false;
+
+    ProxyBid proxy = getUserMap().get(userId);
+
+    if (proxy == null) {
+      proxy = new ProxyBid(userId, max, _sequence++);
+      proxy._index = _heap.size();
+
+      _heap.add(proxy);
+      _userMap.put(userId, proxy);
+    }
+    else if (max <= proxy._max) {
+      return false;
+    }
+    else {
+      // among equal maximums, the bidder who reached it first wins
+      proxy._max = max;
+      proxy._sequence = _sequence++;
+    }
+
+    siftUp(proxy._index);
+
+    return true;
+  }
+
+  /**
+   * Returns the next visible bid the proxies place against the current
+   * price, or null if the current bidder keeps the lead without raising.
+   *
+   * @param bidderId the current high bidder, or null
+   * @param price    the current visible price
+   */
+  public AuctionBid resolve(String bidderId, int price)
+  {
+    ProxyBid leader = peek();
+
+    while (leader != null
+           && leader._max <= price
+           && ! leader._userId.equals(bidderId)) {
+      poll();
+
+      leader = peek();
+    }
+
+    if (leader == null)
+      return null;
+
+    ProxyBid second = peekSecond();
+
+    int competing = second != null ? second._max : 0;
+
+    if (! leader._userId.equals(bidderId)) {
+      competing = Math.max(competing, price);
+    }
+    else if (competing <= price) {
+      return null;
+    }
+
+    int bid = (int) Math.min(leader._max, (long) competing + INCREMENT);
+
+    return new AuctionBid(leader._userId, bid);
+  }
+
+  public void clear()
+  {
+    _heap.clear();
+    _userMap = null;
+  }
+
+  private ProxyBid peek()
+  {
+    return _heap.isEmpty() ? null : _heap.get(0);
+  }
+
+  private ProxyBid peekSecond()
+  {
+    if (_heap.size() < 2)
+      return null;
+    else if (_heap.size() < 3 || isBefore(_heap.get(1), _heap.get(2)))
+      return _heap.get(1);
+    else
+      return _heap.get(2);
+  }
+
+  private void poll()
+  {
+    ProxyBid top = _heap.get(0);
+    ProxyBid last = _heap.remove(_heap.size() - 1);
+
+    getUserMap().remove(top._userId);
+
+    if (last != top) {
+      set(0, last);
+      siftDown(0);
+    }
+  }
+
+  private void siftUp(int index)
+  {
+    ProxyBid proxy = _heap.get(index);
+
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+
+      if (! isBefore(proxy, _heap.get(parent)))
+        break;
+
+      set(index, _heap.get(parent));
+      index = parent;
+    }
+
+    set(index, proxy);
+  }
+
+  private void siftDown(int index)
+  {
+    ProxyBid proxy = _heap.get(index);
+    int size = _heap.size();
+
+    while (true) {
+      int child = 2 * index + 1;
+
+      if (size <= child)
+        break;
+
+      if (child + 1 < size
+          && isBefore(_heap.get(child + 1), _heap.get(child))) {
+        child++;
+      }
+
+      if (! isBefore(_heap.get(child), proxy))
+        break;
+
+      set(index, _heap.get(child));
+      index = child;
+    }
+
+    set(index, proxy);
+  }
+
+  private void set(int index, ProxyBid proxy)
+  {
+    _heap.set(index, proxy);
+    proxy._index = index;
+  }
+
+  private static boolean isBefore(ProxyBid a, ProxyBid b)
+  {
+    if (a._max != b._max)
+      return a._max > b._max;
+    else
+      return a._sequence < b._sequence;
+  }
+
+  private HashMap<String,ProxyBid> getUserMap()
+  {
+    if (_userMap == null) {
+      _userMap = new HashMap<>();
+
+      for (ProxyBid proxy : _heap) {
+        _userMap.put(proxy._userId, proxy);
+      }
+    }
+
+    return _userMap;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _heap.size() + "]";
+  }
+
+  private static class ProxyBid implements Serializable
+  {
+    private String _userId;
+    private int _max;
+    private long _sequence;
+    private int _index;
+
+    public ProxyBid()
+    {
+    }
+
+    ProxyBid(String userId, int max, long sequence)
+    {
+      _userId = userId;
+      _max = max;
+      _sequence = sequence;
+    }
+
+    @Override
+    public String toString()
+    {
+      return getClass().getSimpleName() + "[" + _userId + "," + _max + "]";
+    }
+  }
+}
@@ -1,9 +1,5 @@
 package examples.auction;
 
-import java.io.StringReader;
-
-import javax.json.JsonObject;
-
 /**
  * {
  * "id": "9JU80416NM254722B",
@@ -37,23 +33,31 @@ import javax.json.JsonObject;
  */
 public class RefundImpl implements Refund
 {
-  private String _refund;
   private RefundState _status;
 
+  // gzip of the raw response, if kept
+  private byte[] _response;
+
   public RefundImpl()
   {
   }
 
-  public RefundImpl(String refund)
+  /**
+   * Parses a PayPal refund response.
+   *
+   * @param isKeepResponse keep a compressed copy of the raw response
+   */
+  public RefundImpl(byte[] response, boolean isKeepResponse)
   {
-    _refund = refund;
-
-    JsonObject jsonObject
-      = javax.json.Json.createReader(new StringReader(refund)).readObject();
+    String state = PayPalResponse.extract(response, "state")[0];
 
-    String state = jsonObject.getString("state");
+    if (state == null)
+      throw new IllegalStateException("refund response has no state");
 
     _status = Enum.valueOf(RefundState.class, state);
+
+    if (isKeepResponse)
+      _response = PayPalResponse.compress(response);
   }
 
   @Override
@@ -62,13 +66,21 @@ public class RefundImpl implements Refund
     return _status;
   }
 
+  /**
+   * The raw PayPal response, or null if it wasn't kept.
+   */
+  public String getResponse()
+  {
+    return PayPalResponse.decompress(_response);
+  }
+
   @Override
   public String toString()
   {
     return String.format("%1$s@%2$d: %3$s",
                          this.getClass().getSimpleName(),
                          System.identityHashCode(this),
-                         _refund);
+                         _status);
   }
 
 }
@@ -0,0 +1,75 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import io.baratine.vault.IdAsset;
+
+/**
+ * Opaque continuation token for paged search results. The token records
+ * the id of the last match returned; the next page is read from the index
+ * after that id, in id order, whether or not the id is still indexed.
+ */
+public class SearchCursor
+{
+  public static final int DEFAULT_LIMIT = 20;
+  public static final int MAX_LIMIT = 100;
+
+  private final IdAsset _lastId;
+
+  private SearchCursor(IdAsset lastId)
+  {
+    _lastId = lastId;
+  }
+
+  /**
+   * Page size for a requested limit; non-positive means the default.
+   */
+  public static int limit(int limit)
+  {
+    if (limit <= 0)
+      return DEFAULT_LIMIT;
+    else
+      return Math.min(limit, MAX_LIMIT);
+  }
+
+  public static String encode(IdAsset lastId)
+  {
+    return Base64.getUrlEncoder()
+                 .withoutPadding()
+                 .encodeToString(lastId.toString()
+                                       .getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a token; null or empty is the start of the results.
+   */
+  public static SearchCursor decode(String cursor)
+  {
+    if (cursor == null || cursor.isEmpty())
+      return new SearchCursor(null);
+
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor),
+                                StandardCharsets.UTF_8);
+
+      return new SearchCursor(new IdAsset(value));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor " + cursor, e);
+    }
+  }
+
+  /**
+   * Id of the last match returned, or null at the start.
+   */
+  public IdAsset getLastId()
+  {
+    return _lastId;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _lastId + "]";
+  }
+}
@@ -0,0 +1,89 @@
+package examples.auction;
+
+import io.baratine.service.Result;
+
+/**
+ * Background recovery of settlements left unfinished by a crash or a
+ * payment timeout.
+ */
+public interface SettlementRecovery
+{
+  /**
+   * Scans for unfinished settlements and resumes them without waiting for
+   * the next periodic scan, the resume delay or a retry backoff. A
+   * settlement with an attempt running refuses the resume and is retried
+   * later. Returns the number of settlements resumed by the call.
+   */
+  void recover(Result<Integer> result);
+
+  void getStats(Result<RecoveryStats> result);
+
+  class RecoveryStats
+  {
+    private int pending;
+    private int recovering;
+    private long recovered;
+    private long retries;
+
+    public RecoveryStats()
+    {
+    }
+
+    public RecoveryStats(int pending,
+                         int recovering,
+                         long recovered,
+                         long retries)
+    {
+      this.pending = pending;
+      this.recovering = recovering;
+      this.recovered = recovered;
+      this.retries = retries;
+    }
+
+    /**
+     * Unfinished settlements waiting for their next attempt.
+     */
+    public int getPending()
+    {
+      return pending;
+    }
+
+    /**
+     * Attempts in flight.
+     */
+    public int getRecovering()
+    {
+      return recovering;
+    }
+
+    /**
+     * Settlements brought to a final status since start.
+     */
+    public long getRecovered()
+    {
+      return recovered;
+    }
+
+    /**
+     * Attempts that left the settlement unfinished and were rescheduled.
+     */
+    public long getRetries()
+    {
+      return retries;
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.getClass().getSimpleName() + "["
+             + pending
+             + ", "
+             + recovering
+             + ", "
+             + recovered
+             + ", "
+             + retries
+             + ']';
+    }
+  }
+}
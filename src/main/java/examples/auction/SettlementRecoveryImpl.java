@@ -0,0 +1,291 @@
+package examples.auction;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import io.baratine.service.OnInit;
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.service.Startup;
+import io.baratine.timer.Timers;
+import io.baratine.vault.IdAsset;
+
+import examples.auction.AuctionSettlement.Status;
+
+/**
+ * Recovery scanner for settlements stuck in SETTLING or ROLLING_BACK.
+ * <p>
+ * The scanner starts with the server. The unfinished settlements are found
+ * with the vault's status finder on start and every SCAN_INTERVAL, and are
+ * first given RESUME_DELAY to finish on their own. That holds on start
+ * too: the vault replays the journaled @Ensure settle and refund calls
+ * concurrently with the first scan. Only an explicit recover() resumes at
+ * once, including the settlements an earlier scan left waiting.
+ * <p>
+ * A settling transaction is resumed with settleResume() and a rolling back
+ * one with refund(). A settlement with an attempt already running refuses
+ * the resume and is retried later, so recovery never runs a second
+ * attempt beside a replayed or slow one. At most MAX_RECOVERING attempts
+ * are in flight. An attempt that leaves the settlement unfinished is retried with an
+ * exponential backoff from BACKOFF_MIN up to BACKOFF_MAX. As in the close
+ * scheduler, the due attempts are kept in a TimingWheel with one armed
+ * timer.
+ */
+@Startup
+@Service("/SettlementRecovery")
+public class SettlementRecoveryImpl implements SettlementRecovery
+{
+  private final static Logger log
+    = Logger.getLogger(SettlementRecoveryImpl.class.getName());
+
+  public static final long SCAN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+  public static final long RESUME_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  public static final long BACKOFF_MIN = TimeUnit.SECONDS.toMillis(1);
+  public static final long BACKOFF_MAX = TimeUnit.MINUTES.toMillis(5);
+
+  public static final int MAX_RECOVERING = 16;
+
+  @Inject
+  private Services _manager;
+
+  @Inject
+  @Service("/AuctionSettlement")
+  private AuctionSettlementVault _settlements;
+
+  @Inject
+  @Service
+  private Timers _timers;
+
+  private TimingWheel<String> _wheel;
+
+  private long _armedTime = Long.MAX_VALUE;
+
+  private final HashMap<String,Integer> _attempts = new HashMap<>();
+
+  // settlements waiting in the wheel, by the time they are due
+  private final HashMap<String,Long> _waiting = new HashMap<>();
+
+  private final ArrayDeque<String> _due = new ArrayDeque<>();
+  private int _recovering;
+
+  private long _recovered;
+  private long _retries;
+
+  @OnInit
+  public void init()
+  {
+    _wheel = new TimingWheel<>(AuctionCloseSchedulerImpl.TICK_MS,
+                               AuctionCloseSchedulerImpl.WHEEL_SIZE,
+                               AuctionCloseSchedulerImpl.LEVELS,
+                               System.currentTimeMillis());
+
+    scan(RESUME_DELAY, Result.ignore());
+
+    _timers.runEvery(x -> scan(RESUME_DELAY, Result.ignore()),
+                     SCAN_INTERVAL,
+                     TimeUnit.MILLISECONDS,
+                     Result.ignore());
+  }
+
+  @Override
+  public void recover(Result<Integer> result)
+  {
+    scan(0, result);
+  }
+
+  @Override
+  public void getStats(Result<RecoveryStats> result)
+  {
+    result.ok(new RecoveryStats(_attempts.size() - _recovering,
+                                _recovering,
+                                _recovered,
+                                _retries));
+  }
+
+  private void scan(long delay, Result<Integer> result)
+  {
+    Result.Fork<List<IdAsset>,Integer> fork = result.fork();
+
+    _settlements.findIdsByStatus(Status.SETTLING, fork.branch());
+    _settlements.findIdsByStatus(Status.ROLLING_BACK, fork.branch());
+
+    fork.join(l -> {
+      long time = System.currentTimeMillis() + delay;
+
+      int count = 0;
+
+      for (List<IdAsset> ids : l) {
+        for (IdAsset id : ids) {
+          String settlementId = id.toString();
+
+          if (! _attempts.containsKey(settlementId)) {
+            _attempts.put(settlementId, 0);
+
+            add(settlementId, time);
+
+            count++;
+          }
+          else if (delay == 0 && _waiting.containsKey(settlementId)) {
+            // an explicit recover doesn't wait for the delay or backoff
+            add(settlementId, time);
+
+            count++;
+          }
+        }
+      }
+
+      if (count > 0) {
+        log.fine(String.format("found %1$d unfinished settlements", count));
+      }
+
+      return count;
+    });
+  }
+
+  private void add(String settlementId, long time)
+  {
+    if (time <= System.currentTimeMillis()) {
+      _waiting.remove(settlementId);
+      _due.add(settlementId);
+
+      recoverNext();
+    }
+    else {
+      _waiting.put(settlementId, time);
+      _wheel.add(settlementId, time);
+
+      arm();
+    }
+  }
+
+  private void arm()
+  {
+    long next = _wheel.nextExpiration();
+
+    if (next < _armedTime) {
+      _armedTime = next;
+
+      _timers.runAt(x -> onTimer(next), next, Result.ignore());
+    }
+  }
+
+  private void onTimer(long time)
+  {
+    if (time == _armedTime)
+      _armedTime = Long.MAX_VALUE;
+
+    for (String settlementId : _wheel.advance(time)) {
+      Long dueTime = _waiting.get(settlementId);
+
+      // entries of recovered or rescheduled settlements are stale
+      if (dueTime != null && dueTime <= time) {
+        _waiting.remove(settlementId);
+        _due.add(settlementId);
+      }
+    }
+
+    recoverNext();
+
+    arm();
+  }
+
+  private void recoverNext()
+  {
+    while (_recovering < MAX_RECOVERING && ! _due.isEmpty()) {
+      String settlementId = _due.poll();
+
+      _recovering++;
+
+      recover(settlementId, (status, e) -> {
+        _recovering--;
+
+        if (e != null)
+          log.log(Level.FINE, e.toString(), e);
+
+        afterRecover(settlementId, e == null ? status : null);
+
+        recoverNext();
+      });
+    }
+  }
+
+  private void recover(String settlementId, Result<Status> result)
+  {
+    AuctionSettlement settlement
+      = _manager.service(AuctionSettlement.class, settlementId);
+
+    settlement.getTransactionState(result.then((state, r) -> {
+      if (state.isRefunding()) {
+        if (state.isRefunded())
+          r.ok(Status.ROLLED_BACK);
+        else
+          settlement.refund(r);
+      }
+      else if (state.getSettleStatus() == Status.SETTLED) {
+        r.ok(Status.SETTLED);
+      }
+      else {
+        settlement.settleResume(r);
+      }
+    }));
+  }
+
+  private void afterRecover(String settlementId, Status status)
+  {
+    if (isFinal(status)) {
+      _attempts.remove(settlementId);
+
+      _recovered++;
+
+      log.finer(String.format("recovered %1$s as %2$s",
+                              settlementId,
+                              status));
+
+      return;
+    }
+
+    int attempt = _attempts.getOrDefault(settlementId, 0);
+
+    _attempts.put(settlementId, attempt + 1);
+
+    _retries++;
+
+    long delay = backoff(attempt);
+
+    log.finer(String.format("settlement %1$s still %2$s, retry in %3$dms",
+                            settlementId,
+                            status,
+                            delay));
+
+    add(settlementId, System.currentTimeMillis() + delay);
+  }
+
+  private static boolean isFinal(Status status)
+  {
+    return status == Status.SETTLED
+           || status == Status.ROLLED_BACK
+           || status == Status.ROLLBACK_FAILED;
+  }
+
+  static long backoff(int attempt)
+  {
+    int shift = Math.min(attempt, 30);
+
+    return Math.min(BACKOFF_MIN << shift, BACKOFF_MAX);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "[" + _attempts.size() + ", " + _recovering + "]";
+  }
+}
@@ -0,0 +1,251 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel.
+ * <p>
+ * Deadlines are rounded up to a tick, so items never expire early and
+ * expire at most one tick late. Level 0 has one slot per tick; each higher
+ * level has slots as wide as a full turn of the level below, and its
+ * entries are cascaded down when the current tick reaches their slot.
+ * Deadlines beyond the top level wait in an overflow list. Adding an item
+ * is constant time and expiring a bucket is linear in its size, regardless
+ * of the number of scheduled items.
+ * <p>
+ * The wheel keeps its own notion of the current tick, which only moves in
+ * advance(). It is not thread safe; it is owned by
+ * AuctionCloseSchedulerImpl.
+ */
+public class TimingWheel<T>
+{
+  private final long _tickMs;
+  private final int _wheelSize;
+
+  private final long[] _levelTicks;
+  private final List<Entry<T>>[][] _slots;
+
+  private final ArrayList<Entry<T>> _overflow = new ArrayList<>();
+  private final ArrayList<T> _expired = new ArrayList<>();
+
+  private long _currentTick;
+  private int _size;
+
+  public TimingWheel(long tickMs, int wheelSize, int levels, long startTime)
+  {
+    if (tickMs <= 0 || wheelSize <= 1 || levels <= 0)
+      throw new IllegalArgumentException();
+
+    _tickMs = tickMs;
+    _wheelSize = wheelSize;
+
+    _levelTicks = new long[levels + 1];
+    _levelTicks[0] = 1;
+
+    for (int i = 1; i <= levels; i++) {
+      _levelTicks[i] = _levelTicks[i - 1] * wheelSize;
+    }
+
+    _slots = newSlots(levels, wheelSize);
+
+    _currentTick = startTime / tickMs;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static <T> List<Entry<T>>[][] newSlots(int levels, int wheelSize)
+  {
+    return new List[levels][wheelSize];
+  }
+
+  public int size()
+  {
+    return _size;
+  }
+
+  /**
+   * Current time of the wheel, the start of the current tick.
+   */
+  public long getCurrentTime()
+  {
+    return _currentTick * _tickMs;
+  }
+
+  /**
+   * Schedules an item. An item whose deadline has passed is returned by the
+   * next call to advance().
+   */
+  public void add(T item, long deadline)
+  {
+    long tick = (deadline + _tickMs - 1) / _tickMs;
+
+    _size++;
+
+    add(new Entry<>(item, tick));
+  }
+
+  private void add(Entry<T> entry)
+  {
+    if (entry._tick <= _currentTick) {
+      _expired.add(entry._item);
+
+      return;
+    }
+
+    int levels = _slots.length;
+
+    for (int i = 0; i < levels; i++) {
+      long span = _levelTicks[i + 1];
+
+      if (entry._tick / span == _currentTick / span) {
+        int slot = (int) ((entry._tick / _levelTicks[i]) % _wheelSize);
+
+        List<Entry<T>> bucket = _slots[i][slot];
+
+        if (bucket == null) {
+          bucket = new ArrayList<>();
+          _slots[i][slot] = bucket;
+        }
+
+        bucket.add(entry);
+
+        return;
+      }
+    }
+
+    _overflow.add(entry);
+  }
+
+  /**
+   * Moves the wheel to the given time and returns the items whose deadline
+   * is at or before it.
+   */
+  public List<T> advance(long time)
+  {
+    long target = time / _tickMs;
+
+    while (_currentTick < target) {
+      long next = nextTick();
+
+      if (target < next) {
+        _currentTick = target;
+        break;
+      }
+
+      _currentTick = next;
+
+      cascade();
+    }
+
+    ArrayList<T> expired = new ArrayList<>(_expired);
+
+    _expired.clear();
+
+    _size -= expired.size();
+
+    return expired;
+  }
+
+  /**
+   * Time at which the wheel next needs to advance, either to expire items
+   * or to cascade a higher level; Long.MAX_VALUE if the wheel is empty.
+   */
+  public long nextExpiration()
+  {
+    if (! _expired.isEmpty())
+      return getCurrentTime();
+
+    long next = nextTick();
+
+    return next == Long.MAX_VALUE ? next : next * _tickMs;
+  }
+
+  /**
+   * First tick after the current one with a non-empty slot, at any level.
+   */
+  private long nextTick()
+  {
+    long next = Long.MAX_VALUE;
+
+    int levels = _slots.length;
+
+    for (int i = 0; i < levels; i++) {
+      long width = _levelTicks[i];
+      long block = _currentTick / width;
+      long end = (_currentTick / _levelTicks[i + 1] + 1) * _wheelSize;
+
+      for (long b = block + 1; b < end; b++) {
+        List<Entry<T>> bucket = _slots[i][(int) (b % _wheelSize)];
+
+        if (bucket != null && ! bucket.isEmpty()) {
+          next = Math.min(next, b * width);
+          break;
+        }
+      }
+    }
+
+    if (! _overflow.isEmpty()) {
+      long span = _levelTicks[levels];
+
+      next = Math.min(next, (_currentTick / span + 1) * span);
+    }
+
+    return next;
+  }
+
+  /**
+   * Redistributes the slots starting at the current tick, from the top
+   * level down, so their entries end up in level 0 or expired.
+   */
+  private void cascade()
+  {
+    int levels = _slots.length;
+
+    if (_currentTick % _levelTicks[levels] == 0 && ! _overflow.isEmpty()) {
+      ArrayList<Entry<T>> overflow = new ArrayList<>(_overflow);
+
+      _overflow.clear();
+
+      for (Entry<T> entry : overflow) {
+        add(entry);
+      }
+    }
+
+    for (int i = levels - 1; i >= 0; i--) {
+      if (_currentTick % _levelTicks[i] != 0)
+        continue;
+
+      int slot = (int) ((_currentTick / _levelTicks[i]) % _wheelSize);
+
+      List<Entry<T>> bucket = _slots[i][slot];
+
+      if (bucket == null || bucket.isEmpty())
+        continue;
+
+      _slots[i][slot] = null;
+
+      for (Entry<T> entry : bucket) {
+        add(entry);
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "[" + getCurrentTime() + ", " + _size + "]";
+  }
+
+  private static final class Entry<T>
+  {
+    private final T _item;
+    private final long _tick;
+
+    Entry(T item, long tick)
+    {
+      _item = item;
+      _tick = tick;
+    }
+  }
+}
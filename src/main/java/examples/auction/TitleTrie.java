@@ -0,0 +1,464 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Prefix index over auction titles for typeahead suggestions.
+ * <p>
+ * The keys are the words of the title, tokenized and case-folded like the
+ * AuctionTitleIndex, so "red book" is found by "re" and by "bo" and costs
+ * one path per word. Each node caches the top entries of its subtree by
+ * score, which makes a one-word lookup cost the length of the prefix plus
+ * the size of the result, independent of the number of titles.
+ * <p>
+ * A query of several words matches titles containing the leading words
+ * and a word starting with the last one. It scans the subtree of the
+ * longest query word.
+ * <p>
+ * The trie is not thread safe; it is owned by AuctionSuggestImpl.
+ */
+public class TitleTrie
+{
+  private static final char[] EMPTY_KEYS = new char[0];
+  private static final Node[] EMPTY_NODES = new Node[0];
+  private static final Entry[] EMPTY_ENTRIES = new Entry[0];
+
+  private final int _topSize;
+
+  private final Node _root = new Node();
+
+  private final HashMap<String,Entry> _entries = new HashMap<>();
+
+  public TitleTrie(int topSize)
+  {
+    if (topSize <= 0)
+      throw new IllegalArgumentException();
+
+    _topSize = topSize;
+  }
+
+  public int size()
+  {
+    return _entries.size();
+  }
+
+  /**
+   * Adds or replaces the entry for an auction.
+   */
+  public void put(String id, String title, long score)
+  {
+    remove(id);
+
+    Entry entry = new Entry(id, title, score);
+
+    _entries.put(id, entry);
+
+    for (String key : entry._words) {
+      Node node = _root;
+
+      node.offer(entry, _topSize);
+
+      for (int i = 0; i < key.length(); i++) {
+        node = node.getOrCreate(key.charAt(i));
+
+        node.offer(entry, _topSize);
+      }
+
+      node.addTerminal(entry);
+    }
+  }
+
+  /**
+   * Updates the score of an entry, e.g. on a new bid.
+   */
+  public void updateScore(String id, long score)
+  {
+    Entry entry = _entries.get(id);
+
+    if (entry == null || entry._score == score)
+      return;
+
+    boolean isIncrease = entry._score < score;
+
+    entry._score = score;
+
+    for (String key : entry._words) {
+      Node[] path = path(key);
+
+      for (int i = path.length - 1; i >= 0; i--) {
+        if (isIncrease)
+          path[i].offer(entry, _topSize);
+        else if (path[i].contains(entry))
+          path[i].rebuild(_topSize);
+      }
+    }
+  }
+
+  public boolean remove(String id)
+  {
+    Entry entry = _entries.remove(id);
+
+    if (entry == null)
+      return false;
+
+    for (String key : entry._words) {
+      Node[] path = path(key);
+
+      path[path.length - 1].removeTerminal(entry);
+
+      for (int i = path.length - 1; i >= 0; i--) {
+        Node node = path[i];
+
+        if (i > 0 && node.isEmpty()) {
+          path[i - 1].removeChild(key.charAt(i - 1));
+        }
+        else if (node.contains(entry)) {
+          node.rebuild(_topSize);
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Ids of the best scored entries with a word starting with the prefix.
+   */
+  public List<Entry> suggest(String prefix, int limit)
+  {
+    ArrayList<String> words
+      = new ArrayList<>(AuctionTitleIndex.tokens(prefix));
+
+    if (words.size() > 1)
+      return suggest(words, limit);
+
+    ArrayList<Entry> result = new ArrayList<>();
+
+    Node node = find(words.isEmpty() ? "" : words.get(0));
+
+    if (node == null)
+      return result;
+
+    Entry[] top = node._top;
+
+    for (int i = 0; i < top.length && i < limit; i++) {
+      result.add(top[i]);
+    }
+
+    return result;
+  }
+
+  private List<Entry> suggest(List<String> words, int limit)
+  {
+    String longest = words.get(0);
+
+    for (String word : words) {
+      if (longest.length() < word.length())
+        longest = word;
+    }
+
+    ArrayList<Entry> result = new ArrayList<>();
+
+    Node node = find(longest);
+
+    if (node == null)
+      return result;
+
+    LinkedHashSet<Entry> candidates = new LinkedHashSet<>();
+
+    node.collect(candidates);
+
+    for (Entry entry : candidates) {
+      if (entry.matches(words))
+        result.add(entry);
+    }
+
+    result.sort((a, b) -> Long.compare(b._score, a._score));
+
+    return result.size() <= limit
+           ? result
+           : new ArrayList<>(result.subList(0, limit));
+  }
+
+  private Node find(String key)
+  {
+    Node node = _root;
+
+    for (int i = 0; i < key.length() && node != null; i++) {
+      node = node.get(key.charAt(i));
+    }
+
+    return node;
+  }
+
+  /**
+   * Number of trie nodes, for tests of the index size.
+   */
+  int nodeCount()
+  {
+    return _root.count();
+  }
+
+  private Node[] path(String key)
+  {
+    Node[] path = new Node[key.length() + 1];
+
+    Node node = _root;
+    path[0] = node;
+
+    for (int i = 0; i < key.length(); i++) {
+      node = node.get(key.charAt(i));
+      path[i + 1] = node;
+    }
+
+    return path;
+  }
+
+  public static class Entry
+  {
+    private final String _id;
+    private final String _title;
+    private final Set<String> _words;
+    private long _score;
+
+    Entry(String id, String title, long score)
+    {
+      _id = id;
+      _title = title;
+      _words = AuctionTitleIndex.tokens(title);
+      _score = score;
+    }
+
+    /**
+     * True if the title has the leading words and a word starting with
+     * the last one.
+     */
+    boolean matches(List<String> words)
+    {
+      int last = words.size() - 1;
+
+      for (int i = 0; i < last; i++) {
+        if (! _words.contains(words.get(i)))
+          return false;
+      }
+
+      for (String word : _words) {
+        if (word.startsWith(words.get(last)))
+          return true;
+      }
+
+      return false;
+    }
+
+    public String getId()
+    {
+      return _id;
+    }
+
+    public String getTitle()
+    {
+      return _title;
+    }
+
+    public long getScore()
+    {
+      return _score;
+    }
+
+    @Override
+    public String toString()
+    {
+      return getClass().getSimpleName()
+             + "[" + _id + ", " + _title + ", " + _score + "]";
+    }
+  }
+
+  private static final class Node
+  {
+    private char[] _keys = EMPTY_KEYS;
+    private Node[] _children = EMPTY_NODES;
+
+    private Entry[] _top = EMPTY_ENTRIES;
+
+    private Entry[] _terminals = EMPTY_ENTRIES;
+
+    Node get(char ch)
+    {
+      int i = Arrays.binarySearch(_keys, ch);
+
+      return i >= 0 ? _children[i] : null;
+    }
+
+    Node getOrCreate(char ch)
+    {
+      int i = Arrays.binarySearch(_keys, ch);
+
+      if (i >= 0)
+        return _children[i];
+
+      int pos = -(i + 1);
+
+      Node child = new Node();
+
+      char[] keys = new char[_keys.length + 1];
+      Node[] children = new Node[_children.length + 1];
+
+      System.arraycopy(_keys, 0, keys, 0, pos);
+      System.arraycopy(_children, 0, children, 0, pos);
+
+      keys[pos] = ch;
+      children[pos] = child;
+
+      System.arraycopy(_keys, pos, keys, pos + 1, _keys.length - pos);
+      System.arraycopy(_children, pos, children, pos + 1,
+                       _children.length - pos);
+
+      _keys = keys;
+      _children = children;
+
+      return child;
+    }
+
+    void removeChild(char ch)
+    {
+      int i = Arrays.binarySearch(_keys, ch);
+
+      if (i < 0)
+        return;
+
+      char[] keys = new char[_keys.length - 1];
+      Node[] children = new Node[_children.length - 1];
+
+      System.arraycopy(_keys, 0, keys, 0, i);
+      System.arraycopy(_children, 0, children, 0, i);
+      System.arraycopy(_keys, i + 1, keys, i, _keys.length - i - 1);
+      System.arraycopy(_children, i + 1, children, i,
+                       _children.length - i - 1);
+
+      _keys = keys;
+      _children = children;
+    }
+
+    void collect(Set<Entry> entries)
+    {
+      entries.addAll(Arrays.asList(_terminals));
+
+      for (Node child : _children) {
+        child.collect(entries);
+      }
+    }
+
+    int count()
+    {
+      int count = 1;
+
+      for (Node child : _children) {
+        count += child.count();
+      }
+
+      return count;
+    }
+
+    boolean isEmpty()
+    {
+      return _children.length == 0 && _terminals.length == 0;
+    }
+
+    void addTerminal(Entry entry)
+    {
+      _terminals = Arrays.copyOf(_terminals, _terminals.length + 1);
+      _terminals[_terminals.length - 1] = entry;
+    }
+
+    void removeTerminal(Entry entry)
+    {
+      _terminals = without(_terminals, entry);
+    }
+
+    boolean contains(Entry entry)
+    {
+      for (Entry top : _top) {
+        if (top == entry)
+          return true;
+      }
+
+      return false;
+    }
+
+    /**
+     * Offers an entry whose score is new or increased.
+     */
+    void offer(Entry entry, int topSize)
+    {
+      Entry[] top = without(_top, entry);
+
+      if (top.length == topSize
+          && entry._score <= top[top.length - 1]._score) {
+        _top = top;
+
+        return;
+      }
+
+      int pos = 0;
+
+      while (pos < top.length && top[pos]._score >= entry._score) {
+        pos++;
+      }
+
+      int length = Math.min(top.length + 1, topSize);
+
+      Entry[] next = new Entry[length];
+
+      System.arraycopy(top, 0, next, 0, pos);
+      next[pos] = entry;
+      System.arraycopy(top, pos, next, pos + 1, length - pos - 1);
+
+      _top = next;
+    }
+
+    /**
+     * Recomputes the cached top entries from the terminals and the
+     * children's top entries.
+     */
+    void rebuild(int topSize)
+    {
+      ArrayList<Entry> candidates = new ArrayList<>();
+
+      candidates.addAll(Arrays.asList(_terminals));
+
+      for (Node child : _children) {
+        for (Entry entry : child._top) {
+          if (! candidates.contains(entry))
+            candidates.add(entry);
+        }
+      }
+
+      candidates.sort((a, b) -> Long.compare(b._score, a._score));
+
+      int length = Math.min(candidates.size(), topSize);
+
+      _top = candidates.subList(0, length).toArray(new Entry[length]);
+    }
+
+    private static Entry[] without(Entry[] entries, Entry entry)
+    {
+      for (int i = 0; i < entries.length; i++) {
+        if (entries[i] == entry) {
+          Entry[] next = new Entry[entries.length - 1];
+
+          System.arraycopy(entries, 0, next, 0, i);
+          System.arraycopy(entries, i + 1, next, i, entries.length - i - 1);
+
+          return next;
+        }
+      }
+
+      return entries;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Per-connection coalescing of keyed updates, used for the auction update
+ * web socket.
+ * <p>
+ * Frames go out at most once per interval. An update arriving when the
+ * interval has passed and nothing is waiting is sent at once, so a quiet
+ * auction's update isn't delayed. Otherwise only the latest update per key
+ * is kept until the next frame, which carries at most maxFrame updates in
+ * the order their keys first became pending. Memory stays bounded by the
+ * number of keys however fast updates arrive.
+ * <p>
+ * Not thread safe; owned by the session.
+ */
+public class UpdateCoalescer<T>
+{
+  private final long _interval;
+  private final int _maxFrame;
+
+  private final LinkedHashMap<String,T> _pending = new LinkedHashMap<>();
+
+  private long _lastFrameTime = Long.MIN_VALUE / 2;
+
+  public UpdateCoalescer(long interval, int maxFrame)
+  {
+    if (interval < 0 || maxFrame <= 0)
+      throw new IllegalArgumentException();
+
+    _interval = interval;
+    _maxFrame = maxFrame;
+  }
+
+  /**
+   * Offers an update.
+   *
+   * @return a frame to send now, or null if the update is pending
+   */
+  public List<T> offer(String key, T update, long now)
+  {
+    if (_pending.isEmpty() && _lastFrameTime + _interval <= now) {
+      _lastFrameTime = now;
+
+      return Collections.singletonList(update);
+    }
+
+    _pending.put(key, update);
+
+    return null;
+  }
+
+  /**
+   * Time the pending updates can be flushed, or Long.MAX_VALUE if there
+   * are none.
+   */
+  public long getFlushTime()
+  {
+    if (_pending.isEmpty())
+      return Long.MAX_VALUE;
+    else
+      return _lastFrameTime + _interval;
+  }
+
+  /**
+   * Takes the next frame of pending updates, which is empty if there are
+   * none or the interval hasn't passed.
+   */
+  public List<T> flush(long now)
+  {
+    if (_pending.isEmpty() || now < _lastFrameTime + _interval)
+      return Collections.emptyList();
+
+    ArrayList<T> frame = new ArrayList<>(Math.min(_pending.size(), _maxFrame));
+
+    Iterator<T> iter = _pending.values().iterator();
+
+    while (iter.hasNext() && frame.size() < _maxFrame) {
+      frame.add(iter.next());
+
+      iter.remove();
+    }
+
+    _lastFrameTime = now;
+
+    return frame;
+  }
+
+  /**
+   * Drops a pending update, e.g. when a newer one is sent out of band.
+   */
+  public void remove(String key)
+  {
+    _pending.remove(key);
+  }
+
+  public void clear()
+  {
+    _pending.clear();
+  }
+
+  public int size()
+  {
+    return _pending.size();
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + _pending.size() + "]";
+  }
+}
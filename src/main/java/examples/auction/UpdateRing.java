@@ -0,0 +1,113 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring of the latest updates of an auction, by sequence number,
+ * for resuming event polls.
+ * <p>
+ * The ring only holds consecutive sequences. An update that skips a
+ * sequence, e.g. a snapshot after the hub fell behind, clears the older
+ * entries, since a client can't be resumed across the gap.
+ * <p>
+ * Not thread safe; owned by the AuctionUpdateHub.
+ */
+public class UpdateRing<T>
+{
+  private final long[] _sequences;
+  private final Object[] _updates;
+
+  private int _head;
+  private int _size;
+
+  public UpdateRing(int capacity)
+  {
+    if (capacity <= 0)
+      throw new IllegalArgumentException();
+
+    _sequences = new long[capacity];
+    _updates = new Object[capacity];
+  }
+
+  public int size()
+  {
+    return _size;
+  }
+
+  public void add(long sequence, T update)
+  {
+    if (_size > 0 && sequence != getLastSequence() + 1) {
+      if (sequence <= getLastSequence())
+        return;
+
+      clear();
+    }
+
+    int capacity = _updates.length;
+
+    int tail = (_head + _size) % capacity;
+
+    _sequences[tail] = sequence;
+    _updates[tail] = update;
+
+    if (_size < capacity)
+      _size++;
+    else
+      _head = (_head + 1) % capacity;
+  }
+
+  public long getLastSequence()
+  {
+    if (_size == 0)
+      return -1;
+
+    return _sequences[(_head + _size - 1) % _updates.length];
+  }
+
+  /**
+   * Updates after the given sequence, oldest first, or null if some of
+   * them are no longer in the ring.
+   */
+  public List<T> since(long sequence)
+  {
+    ArrayList<T> updates = new ArrayList<>();
+
+    if (_size == 0 || sequence >= getLastSequence())
+      return _size == 0 ? null : updates;
+
+    long first = _sequences[_head];
+
+    if (sequence < first - 1)
+      return null;
+
+    for (int i = (int) (sequence + 1 - first); i < _size; i++) {
+      updates.add(get(i));
+    }
+
+    return updates;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T get(int i)
+  {
+    return (T) _updates[(_head + i) % _updates.length];
+  }
+
+  public void clear()
+  {
+    for (int i = 0; i < _updates.length; i++) {
+      _updates[i] = null;
+    }
+
+    _head = 0;
+    _size = 0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName()
+           + "[" + _size + ", " + getLastSequence() + "]";
+  }
+}
@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.List;
+
 import io.baratine.service.Api;
 import io.baratine.service.Modify;
 import io.baratine.service.Result;
@@ -24,5 +26,12 @@ public interface User
 
   void addWonAuction(String auction, Result<Boolean> result);
 
+  /**
+   * Adds several won auctions in one call, used by the settlement batcher.
+   * The result has the acceptance of each auction in order.
+   */
+  @Modify
+  void addWonAuctions(List<String> auctions, Result<List<Boolean>> result);
+
   void removeWonAuction(String auction, Result<Boolean> result);
 }
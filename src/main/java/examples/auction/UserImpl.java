@@ -3,8 +3,10 @@ package examples.auction;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashSet;
+import java.util.List;
 import java.util.logging.Logger;
 
 import io.baratine.service.Modify;
@@ -112,6 +114,25 @@ public class UserImpl implements User
     result.ok(true);
   }
 
+  @Override
+  @Modify
+  public void addWonAuctions(List<String> auctionIds,
+                             Result<List<Boolean>> result)
+  {
+    if (_wonAuctions == null)
+      _wonAuctions = new HashSet<>();
+
+    List<Boolean> accepted = new ArrayList<>(auctionIds.size());
+
+    for (String auctionId : auctionIds) {
+      _wonAuctions.add(auctionId);
+
+      accepted.add(true);
+    }
+
+    result.ok(accepted);
+  }
+
   @Override
   @Modify
   public void removeWonAuction(String auctionId, Result<Boolean> result)
@@ -9,7 +9,7 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
         if (typeof Reflect === "object" && typeof Reflect.metadata === "function") return Reflect.metadata(k, v);
     };
     var core_1, http_1, Observable_1, baseurl_1, lang_1;
-    var AuctionService;
+    var AuctionService, AuctionUpdateDecoder;
     return {
         setters:[
             function (core_1_1) {
@@ -36,6 +36,7 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
                     console.log("creating new AuctionService: " + http);
                     this._createUrl = _baseUrlProvider.url + "createAuction";
                     this._searchUrl = _baseUrlProvider.url + "searchAuctions";
+                    this._suggestUrl = _baseUrlProvider.url + "suggestAuctions";
                     this._subscribeUrl = _baseUrlProvider.url + "addAuctionListener";
                     this._bidUrl = _baseUrlProvider.url + "bidAuction";
                     this._refundUrl = _baseUrlProvider.url + "refund";
@@ -65,6 +66,16 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
                     return this.http.get(url, options)
                         .map(function (res) { return _this.map(res); }).catch(this.handleError);
                 };
+                AuctionService.prototype.suggestAuctions = function (prefix) {
+                    var _this = this;
+                    var urlSearchParams = new http_1.URLSearchParams();
+                    urlSearchParams.append("prefix", prefix);
+                    var url = this._suggestUrl + '?' + urlSearchParams.toString();
+                    var headers = new http_1.Headers();
+                    var options = new http_1.RequestOptions({ headers: headers });
+                    return this.http.get(url, options)
+                        .map(function (res) { return _this.map(res); }).catch(this.handleError);
+                };
                 AuctionService.prototype.addAuctionListener = function (listener) {
                     this.auctionListeners.push(listener);
                 };
@@ -106,10 +117,13 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
                     }
                 };
                 AuctionService.prototype.registerForAuctionUpdates = function () {
-                    var websocket = new WebSocket(this._auctionUpdatesUrl);
+                    // ask for binary frames; a server without them keeps sending JSON
+                    var websocket = new WebSocket(this._auctionUpdatesUrl + "?format=binary");
+                    websocket.binaryType = "arraybuffer";
                     var self = this;
+                    var decoder = new AuctionUpdateDecoder();
                     websocket.addEventListener("message", function (e) {
-                        self.auctionUpdate(self, e);
+                        self.auctionUpdate(self, decoder, e);
                     });
                     /*
                         var self = this;
@@ -125,9 +139,16 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
                         };
                     */
                 };
-                AuctionService.prototype.auctionUpdate = function (self, e) {
-                    var auction = lang_1.Json.parse(e.data);
-                    var auctions = [auction];
+                AuctionService.prototype.auctionUpdate = function (self, decoder, e) {
+                    if (e.data instanceof ArrayBuffer) {
+                        self.update(decoder.decode(e.data));
+                        return;
+                    }
+                    // a frame is one auction or an array of coalesced auction updates
+                    var update = lang_1.Json.parse(e.data);
+                    var auctions = Array.isArray(update)
+                        ? update
+                        : [update];
                     self.update(auctions);
                 };
                 AuctionService.prototype.map = function (res) {
@@ -144,6 +165,85 @@ System.register(['angular2/core', 'angular2/http', 'rxjs/Observable', './baseurl
                 return AuctionService;
             })();
             exports_1("AuctionService", AuctionService);
+            /**
+             * Decodes the binary auction-updates frames, see BinaryUpdateEncoder.
+             * Auction ids, state names and prices are relative to earlier frames, so
+             * a decoder must see every frame of its socket.
+             */
+            AuctionUpdateDecoder = (function () {
+                function AuctionUpdateDecoder() {
+                    this.ids = [];
+                    this.titles = [];
+                    this.prices = [];
+                    this.states = [];
+                }
+                AuctionUpdateDecoder.prototype.decode = function (buffer) {
+                    this.bytes = new Uint8Array(buffer);
+                    this.offset = 0;
+                    var version = this.bytes[this.offset++];
+                    if (version != 2)
+                        throw new Error("unknown auction frame version " + version);
+                    var auctions = [];
+                    while (this.offset < this.bytes.length) {
+                        var key = this.readVarint();
+                        var index = Math.floor(key / 2);
+                        if (key % 2 == 1) {
+                            // a define may reuse an evicted auction's index
+                            if (index > this.ids.length)
+                                throw new Error("auction index " + index + " out of order");
+                            this.ids[index] = this.readString();
+                            this.titles[index] = this.readString();
+                            this.prices[index] = 0;
+                        }
+                        else if (index >= this.ids.length) {
+                            throw new Error("unknown auction index " + index);
+                        }
+                        var state = this.readState();
+                        var zigzag = this.readVarint();
+                        var delta = zigzag % 2 == 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+                        this.prices[index] += delta;
+                        auctions.push({
+                            id: this.ids[index],
+                            title: this.titles[index],
+                            bid: this.prices[index],
+                            state: state
+                        });
+                    }
+                    return auctions;
+                };
+                AuctionUpdateDecoder.prototype.readState = function () {
+                    var key = this.readVarint();
+                    var code = Math.floor(key / 2);
+                    if (key % 2 == 1) {
+                        if (code != this.states.length)
+                            throw new Error("state code " + code + " out of order");
+                        this.states.push(this.readString());
+                    }
+                    else if (code >= this.states.length) {
+                        throw new Error("unknown state code " + code);
+                    }
+                    return this.states[code];
+                };
+                AuctionUpdateDecoder.prototype.readVarint = function () {
+                    // multiplies rather than shifts to stay exact past 32 bits
+                    var value = 0;
+                    var scale = 1;
+                    var b;
+                    do {
+                        b = this.bytes[this.offset++];
+                        value += (b & 0x7f) * scale;
+                        scale *= 128;
+                    } while (b & 0x80);
+                    return value;
+                };
+                AuctionUpdateDecoder.prototype.readString = function () {
+                    var length = this.readVarint();
+                    var bytes = this.bytes.subarray(this.offset, this.offset + length);
+                    this.offset += length;
+                    return new TextDecoder("utf-8").decode(bytes);
+                };
+                return AuctionUpdateDecoder;
+            })();
         }
     }
 });
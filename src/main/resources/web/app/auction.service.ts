@@ -15,6 +15,7 @@ export class AuctionService
 
   private _createUrl;
   private _searchUrl;
+  private _suggestUrl;
   private _subscribeUrl;
   private _bidUrl;
   private _refundUrl;
@@ -25,6 +26,7 @@ export class AuctionService
     console.log("creating new AuctionService: " + http);
     this._createUrl = _baseUrlProvider.url + "createAuction";
     this._searchUrl = _baseUrlProvider.url + "searchAuctions";
+    this._suggestUrl = _baseUrlProvider.url + "suggestAuctions";
     this._subscribeUrl = _baseUrlProvider.url + "addAuctionListener";
     this._bidUrl = _baseUrlProvider.url + "bidAuction";
     this._refundUrl = _baseUrlProvider.url + "refund";
@@ -63,6 +65,19 @@ export class AuctionService
       .map(res=>this.map(res)).catch(this.handleError);
   }
 
+  public suggestAuctions(prefix:string)
+  {
+    let urlSearchParams = new URLSearchParams();
+    urlSearchParams.append("prefix", prefix);
+    let url = this._suggestUrl + '?' + urlSearchParams.toString();
+
+    let headers = new Headers();
+    let options = new RequestOptions({headers: headers});
+
+    return this.http.get(url, options)
+      .map(res=>this.map(res)).catch(this.handleError);
+  }
+
   public addAuctionListener(listener:AuctionListener)
   {
     this.auctionListeners.push(listener);
@@ -118,13 +133,16 @@ export class AuctionService
 
   public registerForAuctionUpdates()
   {
-    var websocket = new WebSocket(this._auctionUpdatesUrl);
+    // ask for binary frames; a server without them keeps sending JSON
+    var websocket = new WebSocket(this._auctionUpdatesUrl + "?format=binary");
+    websocket.binaryType = "arraybuffer";
 
     var self = this;
+    var decoder = new AuctionUpdateDecoder();
 
     websocket.addEventListener("message", function (e:MessageEvent)
     {
-      self.auctionUpdate(self, e);
+      self.auctionUpdate(self, decoder, e);
     });
 
 /*
@@ -142,10 +160,21 @@ export class AuctionService
 */
   }
 
-  private auctionUpdate(self:AuctionService, e:MessageEvent)
+  private auctionUpdate(self:AuctionService,
+                        decoder:AuctionUpdateDecoder,
+                        e:MessageEvent)
   {
-    var auction = Json.parse(e.data);
-    var auctions:Auction[] = [<Auction>auction];
+    if (e.data instanceof ArrayBuffer) {
+      self.update(decoder.decode(<ArrayBuffer>e.data));
+
+      return;
+    }
+
+    // a frame is one auction or an array of coalesced auction updates
+    var update = Json.parse(e.data);
+    var auctions:Auction[] = Array.isArray(update)
+      ? <Auction[]>update
+      : [<Auction>update];
 
     self.update(auctions);
   }
@@ -161,3 +190,109 @@ export class AuctionService
     return Observable.throw(error.json().error || 'Server error');
   }
 }
+
+/**
+ * Decodes the binary auction-updates frames, see BinaryUpdateEncoder.
+ * Auction ids, state names and prices are relative to earlier frames, so
+ * a decoder must see every frame of its socket.
+ */
+class AuctionUpdateDecoder
+{
+  private ids:string[] = [];
+  private titles:string[] = [];
+  private prices:number[] = [];
+  private states:string[] = [];
+
+  private bytes:Uint8Array;
+  private offset:number;
+
+  public decode(buffer:ArrayBuffer):Auction[]
+  {
+    this.bytes = new Uint8Array(buffer);
+    this.offset = 0;
+
+    var version = this.bytes[this.offset++];
+
+    if (version != 2)
+      throw new Error("unknown auction frame version " + version);
+
+    var auctions:Auction[] = [];
+
+    while (this.offset < this.bytes.length) {
+      var key = this.readVarint();
+      var index = Math.floor(key / 2);
+
+      if (key % 2 == 1) {
+        // a define may reuse an evicted auction's index
+        if (index > this.ids.length)
+          throw new Error("auction index " + index + " out of order");
+
+        this.ids[index] = this.readString();
+        this.titles[index] = this.readString();
+        this.prices[index] = 0;
+      }
+      else if (index >= this.ids.length) {
+        throw new Error("unknown auction index " + index);
+      }
+
+      var state = this.readState();
+      var zigzag = this.readVarint();
+      var delta = zigzag % 2 == 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+
+      this.prices[index] += delta;
+
+      auctions.push({
+        id: this.ids[index],
+        title: this.titles[index],
+        bid: this.prices[index],
+        state: state
+      });
+    }
+
+    return auctions;
+  }
+
+  private readState():string
+  {
+    var key = this.readVarint();
+    var code = Math.floor(key / 2);
+
+    if (key % 2 == 1) {
+      if (code != this.states.length)
+        throw new Error("state code " + code + " out of order");
+
+      this.states.push(this.readString());
+    }
+    else if (code >= this.states.length) {
+      throw new Error("unknown state code " + code);
+    }
+
+    return this.states[code];
+  }
+
+  private readVarint():number
+  {
+    // multiplies rather than shifts to stay exact past 32 bits
+    var value = 0;
+    var scale = 1;
+    var b;
+
+    do {
+      b = this.bytes[this.offset++];
+      value += (b & 0x7f) * scale;
+      scale *= 128;
+    } while (b & 0x80);
+
+    return value;
+  }
+
+  private readString():string
+  {
+    var length = this.readVarint();
+    var bytes = this.bytes.subarray(this.offset, this.offset + length);
+
+    this.offset += length;
+
+    return new TextDecoder("utf-8").decode(bytes);
+  }
+}
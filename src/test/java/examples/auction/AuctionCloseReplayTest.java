@@ -0,0 +1,100 @@
+package examples.auction;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.vault.IdAsset;
+
+import com.caucho.junit.ConfigurationBaratine;
+import com.caucho.junit.RunnerBaratine;
+import com.caucho.junit.ServiceTest;
+import com.caucho.junit.State;
+import com.caucho.junit.TestTime;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Close scheduler restart test.
+ * <p/>
+ * Auctions take their close time from the wall clock, so this test runs on
+ * the default clock instead of the fixed TEST_TIME of the replay tests.
+ */
+@RunWith(RunnerBaratine.class)
+@ServiceTest(UserVault.class)
+@ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuctionCloseSchedulerImpl.class)
+@ConfigurationBaratine(workDir = "/tmp/baratine",
+                       journalDelay = 12000)
+public class AuctionCloseReplayTest
+{
+  @Inject
+  @Service("/User")
+  UserVaultSync _users;
+
+  @Inject
+  @Service("/Auction")
+  AuctionVaultSync _auctions;
+
+  @Inject
+  RunnerBaratine _testContext;
+
+  @Inject
+  Services _services;
+
+  /**
+   * The close schedule is rebuilt from the open auctions on start.
+   */
+  @Test
+  public void testCloseRestart() throws InterruptedException
+  {
+    UserSync user = createUser("Spock", "test");
+
+    AuctionSync auction = createAuction(user, "book", 15);
+
+    Assert.assertTrue(auction.open());
+
+    String auctionId = auction.get().getEncodedId();
+
+    _testContext.stopImmediate();
+
+    _testContext.start();
+
+    auction = _services.service(AuctionSync.class, auctionId);
+
+    Assert.assertEquals(Auction.State.OPEN, auction.get().getState());
+
+    // the schedule is rebuilt in the background, so time moves in steps
+    int counter = 100;
+    while (auction.get().getState() == Auction.State.OPEN && counter-- > 0) {
+      TestTime.addTime(1, TimeUnit.SECONDS);
+
+      State.sleep(100);
+    }
+
+    Assert.assertEquals(Auction.State.CLOSED, auction.get().getState());
+  }
+
+  UserSync createUser(String name, String password)
+  {
+    IdAsset id = _users.create(
+      new AuctionSession.UserInitData(name, password, false));
+
+    return _services.service(UserSync.class, id.toString());
+  }
+
+  AuctionSync createAuction(UserSync user, String title, int bid)
+  {
+    IdAsset id = _auctions.create(
+      new AuctionDataInit(user.get().getEncodedId(),
+                          title,
+                          bid));
+
+    return _services.service(AuctionSync.class, id.toString());
+  }
+}
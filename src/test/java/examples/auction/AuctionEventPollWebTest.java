@@ -0,0 +1,271 @@
+package examples.auction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.baratine.vault.IdAsset;
+
+import com.caucho.junit.ConfigurationBaratine;
+import com.caucho.junit.HttpClient;
+import com.caucho.junit.ServiceTest;
+import com.caucho.junit.State;
+import com.caucho.junit.TestTime;
+import com.caucho.junit.WebRunnerBaratine;
+
+import examples.auction.AuctionSession.UserInitData;
+import examples.auction.AuctionSession.WebAuction;
+import examples.auction.AuctionUserSession.WebBid;
+import examples.auction.mock.MockPayPal;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Long-poll tests at /auction-events, read over a plain socket.
+ */
+@RunWith(WebRunnerBaratine.class)
+@ServiceTest(UserVault.class)
+@ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuctionCloseSchedulerImpl.class)
+@ServiceTest(AuctionUserSessionImpl.class)
+@ServiceTest(AuctionUpdateHubImpl.class)
+@ServiceTest(AuctionEventPollImpl.class)
+@ServiceTest(AuditServiceImpl.class)
+@ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
+@ServiceTest(MockPayPal.class)
+@ConfigurationBaratine(workDir = "/tmp/baratine")
+public class AuctionEventPollWebTest
+{
+  private static final String sessionA = "aaaaa";
+  private static final String sessionB = "abbbb";
+
+  /**
+   * A first poll gets the current state; the next one waits for the
+   * following update.
+   */
+  @Test
+  public void testPoll(HttpClient client) throws IOException
+  {
+    WebAuction auction = createAuction(client);
+
+    bid(client, auction, 17);
+
+    try (Poll poll = new Poll(auction.getId(), null)) {
+      Assert.assertEquals("[" + event(auction, 1, 17) + "]", poll.read());
+    }
+
+    try (Poll poll = new Poll(auction.getId(), "1")) {
+      bid(client, auction, 18);
+
+      Assert.assertEquals("[" + event(auction, 2, 18) + "]", poll.read());
+    }
+  }
+
+  /**
+   * A poll after an earlier sequence gets the updates it missed, in order
+   * and in one response.
+   */
+  @Test
+  public void testResume(HttpClient client) throws IOException
+  {
+    WebAuction auction = createAuction(client);
+
+    bid(client, auction, 17);
+
+    try (Poll poll = new Poll(auction.getId(), null)) {
+      Assert.assertEquals("[" + event(auction, 1, 17) + "]", poll.read());
+    }
+
+    // the hub keeps the auction's updates for a while after the poll
+    bid(client, auction, 18);
+    bid(client, auction, 19);
+
+    try (Poll poll = new Poll(auction.getId(), "1")) {
+      Assert.assertEquals("[" + event(auction, 2, 18)
+                          + "," + event(auction, 3, 19) + "]",
+                          poll.read());
+    }
+  }
+
+  /**
+   * Missed updates the hub no longer has are replaced by the current
+   * state.
+   */
+  @Test
+  public void testResumeSnapshot(HttpClient client) throws IOException
+  {
+    WebAuction auction = createAuction(client);
+
+    // no poll watches the auction, so the hub keeps none of these
+    bid(client, auction, 17);
+    bid(client, auction, 18);
+    bid(client, auction, 19);
+
+    try (Poll poll = new Poll(auction.getId(), "1")) {
+      Assert.assertEquals("[" + event(auction, 3, 19) + "]", poll.read());
+    }
+  }
+
+  /**
+   * A poll without updates is answered with an empty list.
+   */
+  @Test
+  public void testPollTimeout() throws IOException
+  {
+    // an open auction would close while the time moves on
+    String auctionId = new IdAsset(1).toString();
+
+    try (Poll poll = new Poll(auctionId, null)) {
+      State.sleep(100);
+
+      for (int i = 0; i < AuctionEventPollImpl.POLL_TICKS; i++) {
+        TestTime.addTime(AuctionEventPollImpl.POLL_TICK,
+                         TimeUnit.MILLISECONDS);
+
+        State.sleep(100);
+      }
+
+      Assert.assertEquals("[]", poll.read());
+    }
+  }
+
+  private String event(WebAuction auction, long sequence, long bid)
+  {
+    WebAuction update = WebAuction.of(auction.getId(),
+                                      auction.getTitle(),
+                                      bid,
+                                      Auction.State.OPEN);
+
+    // the web serializer writes the fields in name order
+    return "{\"auction\":" + new AuctionUpdateHubImpl().encode(update)
+           + ",\"sequence\":" + sequence + "}";
+  }
+
+  private WebAuction createAuction(HttpClient client) throws IOException
+  {
+    post(client, sessionA, "/user/createUser",
+         new UserInitData("Spock", "passwd", false));
+    login(client, sessionA, "Spock");
+
+    post(client, sessionB, "/user/createUser",
+         new UserInitData("Kirk", "passwd", false));
+    login(client, sessionB, "Kirk");
+
+    HttpClient.Response response
+      = client.post("/user/createAuction")
+              .session(sessionA)
+              .body("t=book&b=15")
+              .type("application/x-www-form-urlencoded")
+              .go();
+
+    Assert.assertEquals(200, response.status());
+
+    return response.readObject(WebAuction.class);
+  }
+
+  private void login(HttpClient client, String session, String user)
+    throws IOException
+  {
+    HttpClient.Response response
+      = client.post("/user/login")
+              .session(session)
+              .body("u=" + user + "&p=passwd")
+              .type("application/x-www-form-urlencoded")
+              .go();
+
+    Assert.assertEquals(200, response.status());
+  }
+
+  private void bid(HttpClient client, WebAuction auction, int bid)
+    throws IOException
+  {
+    HttpClient.Response response
+      = post(client, sessionB, "/user/bidAuction",
+             new WebBid(auction.getId(), bid));
+
+    Assert.assertTrue(response.readObject(Boolean.class));
+
+    State.sleep(100);
+  }
+
+  private HttpClient.Response post(HttpClient client,
+                                   String session,
+                                   String path,
+                                   Object body)
+    throws IOException
+  {
+    HttpClient.Response response
+      = client.post(path).session(session).body(body).go();
+
+    Assert.assertEquals(200, response.status());
+
+    return response;
+  }
+
+  /**
+   * Raw HTTP/1.0 connection, so the response ends when the poll is
+   * answered.
+   */
+  static class Poll implements AutoCloseable
+  {
+    private final Socket _socket;
+
+    Poll(String auctionId, String after) throws IOException
+    {
+      _socket = new Socket("localhost", 8080);
+      _socket.setSoTimeout(5000);
+
+      String query = "id=" + auctionId;
+
+      if (after != null)
+        query += "&after=" + after;
+
+      String request = "GET /auction-events?" + query + " HTTP/1.0\r\n\r\n";
+
+      OutputStream os = _socket.getOutputStream();
+      os.write(request.getBytes(StandardCharsets.UTF_8));
+      os.flush();
+    }
+
+    /**
+     * The response body, after checking the status.
+     */
+    String read() throws IOException
+    {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+      InputStream is = _socket.getInputStream();
+
+      byte[] buffer = new byte[1024];
+      int len;
+
+      while ((len = is.read(buffer)) > 0) {
+        bos.write(buffer, 0, len);
+      }
+
+      String response = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+
+      Assert.assertTrue(response, response.startsWith("HTTP/1.0 200")
+                                  || response.startsWith("HTTP/1.1 200"));
+
+      int p = response.indexOf("\r\n\r\n");
+
+      Assert.assertTrue(response, p > 0);
+
+      return response.substring(p + 4);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      _socket.close();
+    }
+  }
+}
@@ -1,9 +1,12 @@
 package examples.auction;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
+import io.baratine.service.ResultFuture;
 import io.baratine.service.Service;
 import io.baratine.service.Services;
 import io.baratine.vault.IdAsset;
@@ -11,7 +14,9 @@ import io.baratine.vault.IdAsset;
 import com.caucho.junit.ConfigurationBaratine;
 import com.caucho.junit.RunnerBaratine;
 import com.caucho.junit.ServiceTest;
+import com.caucho.junit.State;
 
+import examples.auction.AuctionSession.WebAuction;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,8 +27,11 @@ import org.junit.runner.RunWith;
 @RunWith(RunnerBaratine.class)
 @ServiceTest(UserVault.class)
 @ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
 @ServiceTest(AuditServiceImpl.class)
+@ServiceTest(AuctionSuggestImpl.class)
 @ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
 @ConfigurationBaratine(workDir = "/tmp/baratine",
                        testTime = ConfigurationBaratine.TEST_TIME,
                        journalDelay = 12000)
@@ -84,6 +92,91 @@ public class AuctionReplayTest
     Assert.assertEquals(data.getLastBid().getBid(), 20);
   }
 
+  /**
+   * The inline bid history is restored with the auction.
+   */
+  @Test
+  public void testAuctionBidHistory() throws InterruptedException
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+
+    AuctionSync auction = createAuction(userSpock, "book", 15);
+
+    Assert.assertTrue(auction.open());
+
+    String auctionId = auction.get().getEncodedId();
+    String kirkId = userKirk.get().getEncodedId();
+    String spockId = userSpock.get().getEncodedId();
+
+    Assert.assertTrue(auction.bid(new AuctionBid(kirkId, 20)));
+    Assert.assertTrue(auction.bid(new AuctionBid(spockId, 25)));
+    Assert.assertTrue(auction.bid(new AuctionBid(kirkId, 30)));
+
+    _testContext.stopImmediate();
+
+    _testContext.start();
+
+    auction = _services.service(AuctionSync.class, auctionId);
+
+    Assert.assertEquals("book", auction.get().getTitle());
+    Assert.assertEquals(30, auction.get().getLastBid().getBid());
+
+    List<Auction.Bid> bids = auction.getBidHistory(0, 10);
+
+    Assert.assertEquals(3, bids.size());
+    Assert.assertEquals(20, bids.get(0).getBid());
+    Assert.assertEquals(kirkId, bids.get(0).getUserId());
+    Assert.assertEquals(25, bids.get(1).getBid());
+    Assert.assertEquals(spockId, bids.get(1).getUserId());
+    Assert.assertEquals(auctionId, bids.get(2).getAuctionId());
+  }
+
+  /**
+   * Suggestions are reloaded from the open auctions on start.
+   */
+  @Test
+  public void testSuggestRestart() throws InterruptedException
+  {
+    UserSync userSpock = createUser("Spock", "test");
+
+    AuctionSync auction = createAuction(userSpock, "red book", 15);
+
+    Assert.assertTrue(auction.open());
+
+    String auctionId = auction.get().getEncodedId();
+
+    _testContext.stopImmediate();
+
+    _testContext.start();
+
+    AuctionSuggest suggest
+      = _services.service("/AuctionSuggest").as(AuctionSuggest.class);
+
+    // the open auctions are loaded in the background
+    List<WebAuction> suggestions = suggest(suggest, "bo");
+
+    int counter = 100;
+    while (suggestions.isEmpty() && counter-- > 0) {
+      State.sleep(100);
+
+      suggestions = suggest(suggest, "bo");
+    }
+
+    Assert.assertEquals(1, suggestions.size());
+    Assert.assertEquals(auctionId, suggestions.get(0).getId());
+    Assert.assertEquals("red book", suggestions.get(0).getTitle());
+  }
+
+  List<WebAuction> suggest(AuctionSuggest suggest, String prefix)
+  {
+    ResultFuture<List<WebAuction>> auctions = new ResultFuture<>();
+
+    suggest.suggest(prefix, 10, auctions);
+
+    return auctions.get(1, TimeUnit.SECONDS);
+  }
+
   UserSync createUser(String name, String password)
   {
     IdAsset id = _users.create(
@@ -25,8 +25,10 @@ import org.junit.runner.RunWith;
 @RunWith(RunnerBaratine.class)
 @ServiceTest(AuctionSettleRejectAuctionTest.AuctionMockVault.class)
 @ServiceTest(UserVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
 @ServiceTest(AuditServiceImpl.class)
 @ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
 @ServiceTest(MockPayPal.class)
 @ConfigurationBaratine(workDir = "/tmp/baratine",
                        testTime = ConfigurationBaratine.TEST_TIME)
@@ -1,6 +1,8 @@
 package examples.auction;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -25,8 +27,10 @@ import org.junit.runner.RunWith;
 @RunWith(RunnerBaratine.class)
 @ServiceTest(AuctionSettleRejectUserTest.UserMockVault.class)
 @ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
 @ServiceTest(AuditServiceImpl.class)
 @ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
 @ServiceTest(MockPayPal.class)
 @ConfigurationBaratine(workDir = "/tmp/baratine",
                        testTime = ConfigurationBaratine.TEST_TIME)
@@ -125,5 +129,12 @@ public class AuctionSettleRejectUserTest
     {
       result.ok(false);
     }
+
+    @Override
+    public void addWonAuctions(List<String> auctionIds,
+                               Result<List<Boolean>> result)
+    {
+      result.ok(Collections.nCopies(auctionIds.size(), false));
+    }
   }
 }
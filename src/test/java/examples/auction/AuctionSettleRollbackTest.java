@@ -23,8 +23,10 @@ import org.junit.runner.RunWith;
 @RunWith(RunnerBaratine.class)
 @ServiceTest(UserVault.class)
 @ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
 @ServiceTest(AuditServiceImpl.class)
 @ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
 @ServiceTest(MockPayPal.class)
 @ConfigurationBaratine(workDir = "/tmp/baratine",
                        testTime = ConfigurationBaratine.TEST_TIME)
@@ -0,0 +1,172 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.baratine.service.Result;
+import io.baratine.vault.IdAsset;
+
+/**
+ * Settlement batcher tests, with users that count their calls.
+ */
+public class AuctionSettlementBatcherTest
+{
+  /**
+   * N settlements for one winner make one user update and one card read.
+   */
+  @Test
+  public void testOneWinner()
+  {
+    TestBatcher batcher = new TestBatcher();
+
+    int n = 10;
+
+    List<Boolean> accepted = new ArrayList<>();
+    List<CreditCard> cards = new ArrayList<>();
+
+    for (int i = 0; i < n; i++) {
+      batcher.addWonAuction("kirk", "auction-" + i,
+                            (v, e) -> accepted.add(v));
+      batcher.getCreditCard("kirk", (v, e) -> cards.add(v));
+    }
+
+    Assert.assertEquals(0, accepted.size());
+
+    batcher.afterBatch();
+
+    CountingUser kirk = batcher.getCountingUser("kirk");
+
+    Assert.assertEquals(1, kirk._addWonCount);
+    Assert.assertEquals(n, kirk._wonAuctions.size());
+    Assert.assertEquals(1, kirk._cardCount);
+
+    Assert.assertEquals(n, accepted.size());
+    Assert.assertEquals(n, cards.size());
+    Assert.assertNotNull(cards.get(n - 1));
+
+    // an empty batch calls nobody
+    batcher.afterBatch();
+
+    Assert.assertEquals(1, kirk._addWonCount);
+    Assert.assertEquals(1, kirk._cardCount);
+  }
+
+  @Test
+  public void testWinners()
+  {
+    TestBatcher batcher = new TestBatcher();
+
+    List<String> results = new ArrayList<>();
+
+    batcher.addWonAuction("kirk", "auction-1",
+                          (v, e) -> results.add("kirk:" + v));
+    batcher.addWonAuction("spock", "auction-2",
+                          (v, e) -> results.add("spock:" + v));
+    batcher.getCreditCard("spock", (v, e) -> results.add("card"));
+
+    batcher.afterBatch();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(0, batcher.getCountingUser("kirk")._cardCount);
+    Assert.assertEquals(1, batcher.getCountingUser("spock")._addWonCount);
+  }
+
+  @Test
+  public void testMaxBatch()
+  {
+    TestBatcher batcher = new TestBatcher();
+
+    for (int i = 0; i < AuctionSettlementBatcherImpl.MAX_BATCH; i++) {
+      batcher.addWonAuction("kirk", "auction-" + i, (v, e) -> {});
+    }
+
+    // a full batch is sent without waiting for the end of the inbox batch
+    Assert.assertEquals(1, batcher.getCountingUser("kirk")._addWonCount);
+  }
+
+  static class TestBatcher extends AuctionSettlementBatcherImpl
+  {
+    private final HashMap<String,CountingUser> _users = new HashMap<>();
+
+    @Override
+    protected User getUser(String userId)
+    {
+      return getCountingUser(userId);
+    }
+
+    CountingUser getCountingUser(String userId)
+    {
+      return _users.computeIfAbsent(userId, k -> new CountingUser());
+    }
+  }
+
+  static class CountingUser implements User
+  {
+    private final List<String> _wonAuctions = new ArrayList<>();
+
+    private int _addWonCount;
+    private int _cardCount;
+
+    @Override
+    public void create(AuctionUserSessionImpl.UserInitData user,
+                       Result<IdAsset> userId)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void authenticate(String password,
+                             boolean isAdmin,
+                             Result<Boolean> result)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void get(Result<UserData> user)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void getCreditCard(Result<CreditCard> creditCard)
+    {
+      _cardCount++;
+
+      creditCard.ok(new CreditCard("visa", "4214020540356393", "222",
+                                   10, 2020));
+    }
+
+    @Override
+    public void addWonAuction(String auction, Result<Boolean> result)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addWonAuctions(List<String> auctions,
+                               Result<List<Boolean>> result)
+    {
+      _addWonCount++;
+
+      List<Boolean> accepted = new ArrayList<>();
+
+      for (String auction : auctions) {
+        _wonAuctions.add(auction);
+        accepted.add(true);
+      }
+
+      result.ok(accepted);
+    }
+
+    @Override
+    public void removeWonAuction(String auction, Result<Boolean> result)
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.List;
+
 import io.baratine.vault.IdAsset;
 
 public interface AuctionSync extends Auction
@@ -11,6 +13,10 @@ public interface AuctionSync extends Auction
   boolean bid(AuctionBid bid)
     throws IllegalStateException;
 
+  List<Boolean> bids(List<AuctionBid> bids);
+
+  boolean proxyBid(AuctionBid maxBid);
+
   boolean setAuctionWinner(String user);
 
   boolean clearAuctionWinner(String user);
@@ -21,6 +27,10 @@ public interface AuctionSync extends Auction
 
   AuctionData get();
 
+  AuctionSummary getSummary();
+
+  List<Bid> getBidHistory(int offset, int limit);
+
   boolean close();
 
   boolean refund();
@@ -1,5 +1,7 @@
 package examples.auction;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -7,6 +9,7 @@ import javax.inject.Inject;
 
 import io.baratine.event.Events;
 import io.baratine.service.Result;
+import io.baratine.service.ResultFuture;
 import io.baratine.service.Service;
 import io.baratine.service.Services;
 import io.baratine.vault.IdAsset;
@@ -29,6 +32,9 @@ import org.junit.runner.RunWith;
 @RunWith(RunnerBaratine.class)
 @ServiceTest(UserVault.class)
 @ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionBidPageVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuctionCloseSchedulerImpl.class)
 @ConfigurationBaratine()
 public class AuctionTest
 {
@@ -242,6 +248,303 @@ public class AuctionTest
                         userKirk.get().getEncodedId());
   }
 
+  /**
+   * Batched bids are applied in order with a result per bid.
+   */
+  @Test
+  public void testAuctionBids()
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+
+    String kirkId = userKirk.get().getEncodedId();
+
+    AuctionSync auction = createAuction(userSpock, "book", 15);
+
+    auction.open();
+
+    List<Boolean> accepted
+      = auction.bids(Arrays.asList(new AuctionBid(kirkId, 20),
+                                   new AuctionBid(kirkId, 17),
+                                   new AuctionBid(kirkId, 22)));
+
+    Assert.assertEquals(Arrays.asList(true, false, true), accepted);
+
+    AuctionData data = auction.get();
+    Assert.assertEquals(22, data.getLastBid().getBid());
+    Assert.assertEquals(kirkId, data.getLastBid().getUserId());
+    Assert.assertEquals(2, auction.getBidHistory(0, 10).size());
+
+    // one bid event for the batch
+    Assert.assertEquals(1, auction.getSummary().getSequence());
+
+    auction.close();
+
+    accepted = auction.bids(Arrays.asList(new AuctionBid(kirkId, 30)));
+
+    Assert.assertEquals(Arrays.asList(false), accepted);
+  }
+
+  /**
+   * Proxy bids answer each other and manual bids with one visible bid.
+   */
+  @Test
+  public void testAuctionProxyBid()
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+    UserSync userUhura = createUser("Uhura", "test");
+
+    String kirkId = userKirk.get().getEncodedId();
+    String uhuraId = userUhura.get().getEncodedId();
+
+    AuctionSync auction = createAuction(userSpock, "book", 15);
+
+    auction.open();
+
+    Assert.assertTrue(auction.proxyBid(new AuctionBid(kirkId, 50)));
+    Assert.assertEquals(16, auction.get().getLastBid().getBid());
+
+    Assert.assertTrue(auction.proxyBid(new AuctionBid(uhuraId, 40)));
+
+    AuctionData data = auction.get();
+    Assert.assertEquals(41, data.getLastBid().getBid());
+    Assert.assertEquals(kirkId, data.getLastBid().getUserId());
+
+    // a manual bid is answered by the proxy
+    Assert.assertTrue(auction.bid(new AuctionBid(uhuraId, 45)));
+
+    data = auction.get();
+    Assert.assertEquals(46, data.getLastBid().getBid());
+    Assert.assertEquals(kirkId, data.getLastBid().getUserId());
+
+    // one event per price change
+    Assert.assertEquals(3, auction.getSummary().getSequence());
+
+    Assert.assertFalse(auction.proxyBid(new AuctionBid(uhuraId, 46)));
+  }
+
+  /**
+   * Summary carries the current price and close time.
+   */
+  @Test
+  public void testAuctionSummary()
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+
+    AuctionSync auction = createAuction(userSpock, "book", 15);
+
+    AuctionSummary summary = auction.getSummary();
+    Assert.assertEquals("book", summary.getTitle());
+    Assert.assertEquals(15, summary.getPrice());
+    Assert.assertEquals(Auction.State.INIT, summary.getState());
+
+    Assert.assertTrue(auction.open());
+    Assert.assertTrue(auction.bid(new AuctionBid(userKirk.get().getEncodedId(),
+                                                 20)));
+
+    summary = auction.getSummary();
+    Assert.assertEquals(20, summary.getPrice());
+    Assert.assertEquals(Auction.State.OPEN, summary.getState());
+    Assert.assertEquals(auction.get().getDateToClose().toInstant().toEpochMilli(),
+                        summary.getCloseTime());
+  }
+
+  /**
+   * Title search uses the tokenized, case-folded title index.
+   */
+  @Test
+  public void testSearchByTitle()
+  {
+    UserSync user = createUser("Spock", "test");
+
+    createAuction(user, "Red Book", 15);
+    createAuction(user, "blue book", 15);
+    createAuction(user, "red pen", 15);
+
+    Assert.assertEquals(2, _auctions.findIdsByTitle("book").size());
+    Assert.assertEquals(2, _auctions.findIdsByTitle("RED").size());
+    Assert.assertEquals(0, _auctions.findIdsByTitle("green").size());
+
+    List<AuctionSummary> books
+      = _auctions.findSummariesByTitle("book red", 0, null).getAuctions();
+
+    Assert.assertEquals(1, books.size());
+    Assert.assertEquals("Red Book", books.get(0).getTitle());
+
+    // exact title match, unlike the token search
+    Assert.assertNull(_auctions.findByTitle("book"));
+    Assert.assertNotNull(_auctions.findByTitle("blue book"));
+  }
+
+  /**
+   * Auctions that close without bids leave the title index.
+   */
+  @Test
+  public void testSearchByTitleClosed()
+  {
+    UserSync user = createUser("Spock", "test");
+
+    AuctionSync auction = createAuction(user, "red pen", 15);
+    createAuction(user, "red book", 15);
+
+    auction.open();
+    auction.close();
+
+    Assert.assertEquals(1, _auctions.findIdsByTitle("red").size());
+    Assert.assertEquals(0, _auctions.findIdsByTitle("pen").size());
+
+    // the vault still finds it by its exact title
+    Assert.assertNotNull(_auctions.findByTitle("red pen"));
+  }
+
+  /**
+   * Title search pages through matches with a continuation cursor.
+   */
+  @Test
+  public void testSearchByTitlePaged()
+  {
+    UserSync user = createUser("Spock", "test");
+
+    for (int i = 0; i < 5; i++) {
+      createAuction(user, "lamp " + i, 15);
+    }
+
+    AuctionSummaryPage page = _auctions.findSummariesByTitle("lamp", 2, null);
+    Assert.assertEquals(2, page.getAuctions().size());
+    Assert.assertEquals("lamp 0", page.getAuctions().get(0).getTitle());
+    Assert.assertNotNull(page.getCursor());
+
+    page = _auctions.findSummariesByTitle("lamp", 2, page.getCursor());
+    Assert.assertEquals(2, page.getAuctions().size());
+    Assert.assertEquals("lamp 2", page.getAuctions().get(0).getTitle());
+
+    page = _auctions.findSummariesByTitle("lamp", 2, page.getCursor());
+    Assert.assertEquals(1, page.getAuctions().size());
+    Assert.assertEquals("lamp 4", page.getAuctions().get(0).getTitle());
+    Assert.assertNull(page.getCursor());
+  }
+
+  /**
+   * A multi-word search pages through the intersection, and a page resumes
+   * after its last id even if earlier matches left the index.
+   */
+  @Test
+  public void testSearchByTitlePagedWords()
+  {
+    UserSync user = createUser("Spock", "test");
+
+    AuctionSync first = createAuction(user, "red lamp 0", 15);
+
+    for (int i = 1; i < 6; i++) {
+      createAuction(user, "lamp " + i, 15);
+      createAuction(user, "red lamp " + i, 15);
+    }
+
+    AuctionSummaryPage page
+      = _auctions.findSummariesByTitle("lamp red", 2, null);
+    Assert.assertEquals(2, page.getAuctions().size());
+    Assert.assertEquals("red lamp 0", page.getAuctions().get(0).getTitle());
+    Assert.assertEquals("red lamp 1", page.getAuctions().get(1).getTitle());
+
+    first.open();
+    first.close();
+
+    page = _auctions.findSummariesByTitle("lamp red", 2, page.getCursor());
+    Assert.assertEquals("red lamp 2", page.getAuctions().get(0).getTitle());
+    Assert.assertEquals("red lamp 3", page.getAuctions().get(1).getTitle());
+
+    page = _auctions.findSummariesByTitle("lamp red", 2, page.getCursor());
+    Assert.assertEquals(2, page.getAuctions().size());
+    Assert.assertEquals("red lamp 5", page.getAuctions().get(1).getTitle());
+    Assert.assertNull(page.getCursor());
+  }
+
+  /**
+   * A page never holds more than the maximum limit, whatever is asked for.
+   */
+  @Test
+  public void testSearchByTitleLimit()
+  {
+    UserSync user = createUser("Spock", "test");
+
+    int count = SearchCursor.MAX_LIMIT + 5;
+
+    for (int i = 0; i < count; i++) {
+      createAuction(user, "lamp " + i, 15);
+    }
+
+    AuctionSummaryPage page
+      = _auctions.findSummariesByTitle("lamp", SearchCursor.MAX_LIMIT + 50,
+                                       null);
+
+    Assert.assertEquals(SearchCursor.MAX_LIMIT, page.getAuctions().size());
+    Assert.assertNotNull(page.getCursor());
+
+    page = _auctions.findSummariesByTitle("lamp", 0, page.getCursor());
+
+    Assert.assertEquals(5, page.getAuctions().size());
+    Assert.assertNull(page.getCursor());
+
+    Assert.assertEquals(SearchCursor.DEFAULT_LIMIT,
+                        _auctions.findSummariesByTitle("lamp", 0, null)
+                                 .getAuctions().size());
+  }
+
+  /**
+   * Bid history spills older bids into pages and reads them back in order.
+   */
+  @Test
+  public void testBidHistory()
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+
+    AuctionSync auction = createAuction(userSpock, "book", 15);
+
+    Assert.assertTrue(auction.open());
+
+    String kirkId = userKirk.get().getEncodedId();
+
+    int count = BidHistory.RECENT_SIZE + 2 * BidHistory.PAGE_SIZE;
+
+    for (int i = 0; i < count; i++) {
+      Assert.assertTrue(auction.bid(new AuctionBid(kirkId, 16 + i)));
+    }
+
+    List<Auction.Bid> bids = auction.getBidHistory(0, 3);
+    Assert.assertEquals(3, bids.size());
+    Assert.assertEquals(16, bids.get(0).getBid());
+    Assert.assertEquals(18, bids.get(2).getBid());
+
+    int offset = BidHistory.PAGE_SIZE - 1;
+
+    bids = auction.getBidHistory(offset, BidHistory.PAGE_SIZE + 2);
+    Assert.assertEquals(BidHistory.PAGE_SIZE + 2, bids.size());
+
+    for (int i = 0; i < bids.size(); i++) {
+      Assert.assertEquals(16 + offset + i, bids.get(i).getBid());
+    }
+
+    bids = auction.getBidHistory(count - 2, 10);
+    Assert.assertEquals(2, bids.size());
+    Assert.assertEquals(16 + count - 1, bids.get(1).getBid());
+
+    Assert.assertTrue(auction.get().getLastBid().getBid() == 16 + count - 1);
+
+    // the oldest bids were written out to the first page
+    ResultFuture<List<Auction.Bid>> page = new ResultFuture<>();
+
+    _services.service(AuctionBidPage.class,
+                      auction.get().getEncodedId() + ".0").get(page);
+
+    List<Auction.Bid> pageBids = page.get(1, TimeUnit.SECONDS);
+
+    Assert.assertEquals(BidHistory.PAGE_SIZE, pageBids.size());
+    Assert.assertEquals(16, pageBids.get(0).getBid());
+  }
+
   /**
    * Tests auction events.
    */
@@ -274,6 +577,7 @@ public class AuctionTest
                         auctionCallback.getUser().get().getEncodedId());
     Assert.assertEquals(auctionCallback.getBid(), 17);
     Assert.assertEquals(auctionCallback.getCount(), 1);
+    Assert.assertEquals(1, auctionCallback.getSequence());
 
     auction.close();
 
@@ -346,6 +650,7 @@ public class AuctionTest
     private int _bid;
     private String _type = "none";
     private int _count;
+    private long _sequence;
 
     AuctionListenerImpl(String title)
     {
@@ -372,6 +677,11 @@ public class AuctionTest
       return _count;
     }
 
+    public long getSequence()
+    {
+      return _sequence;
+    }
+
     public String getAndClear()
     {
       String msg = _msg;
@@ -381,10 +691,11 @@ public class AuctionTest
     }
 
     @Override
-    public void onBid(AuctionData data)
+    public void onBid(AuctionBidEvent bidEvent)
     {
-      _user = AuctionTest.this.getUser(data.getLastBid().getUserId());
-      _bid = data.getLastBid().getBid();
+      _user = AuctionTest.this.getUser(bidEvent.getUserId());
+      _bid = bidEvent.getBid();
+      _sequence = bidEvent.getSequence();
       _type = "bid";
       _count++;
 
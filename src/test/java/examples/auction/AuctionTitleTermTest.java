@@ -0,0 +1,127 @@
+package examples.auction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.baratine.vault.IdAsset;
+
+/**
+ * Posting list paging tests.
+ */
+public class AuctionTitleTermTest
+{
+  @Test
+  public void testAfter()
+  {
+    AuctionTitleTermImpl term = new AuctionTitleTermImpl();
+    IdAsset[] ids = fill(term, 10);
+
+    Assert.assertEquals(Arrays.asList(ids[0], ids[1], ids[2]),
+                        after(term, null, 3));
+    Assert.assertEquals(Arrays.asList(ids[3], ids[4]),
+                        after(term, ids[2], 2));
+    Assert.assertEquals(Arrays.asList(ids[9]),
+                        after(term, ids[8], 5));
+  }
+
+  /**
+   * Removals don't shift the position a page resumes from.
+   */
+  @Test
+  public void testAfterRemoved()
+  {
+    AuctionTitleTermImpl term = new AuctionTitleTermImpl();
+    IdAsset[] ids = fill(term, 10);
+
+    term.remove(ids[0], (v, e) -> {});
+    term.remove(ids[3], (v, e) -> {});
+
+    Assert.assertEquals(Arrays.asList(ids[4], ids[5]),
+                        after(term, ids[2], 2));
+
+    // a removed last id resumes at the next id after it
+    Assert.assertEquals(Arrays.asList(ids[4], ids[5]),
+                        after(term, ids[3], 2));
+    Assert.assertEquals(Arrays.asList(ids[1], ids[2]),
+                        after(term, ids[0], 2));
+  }
+
+  /**
+   * Ids added out of order are still paged in id order.
+   */
+  @Test
+  public void testAfterOutOfOrder()
+  {
+    AuctionTitleTermImpl term = new AuctionTitleTermImpl();
+
+    IdAsset[] ids = new IdAsset[] {
+      new IdAsset(1), new IdAsset(2), new IdAsset(3), new IdAsset(4)
+    };
+
+    term.add(ids[2], (v, e) -> {});
+    term.add(ids[0], (v, e) -> {});
+    term.add(ids[3], (v, e) -> {});
+    term.add(ids[1], (v, e) -> {});
+    term.add(ids[1], (v, e) -> {});
+
+    Assert.assertEquals(Arrays.asList(ids[0], ids[1]),
+                        after(term, null, 2));
+    Assert.assertEquals(Arrays.asList(ids[2], ids[3]),
+                        after(term, ids[1], 2));
+  }
+
+  @Test
+  public void testCompact()
+  {
+    AuctionTitleTermImpl term = new AuctionTitleTermImpl();
+    int count = 4 * AuctionTitleTermImpl.COMPACT_MIN;
+    IdAsset[] ids = fill(term, count);
+
+    for (int i = 0; i < count - 2; i++) {
+      term.remove(ids[i], (v, e) -> {});
+    }
+
+    Assert.assertEquals("AuctionTitleTermImpl[null, 2]", term.toString());
+    Assert.assertEquals(Arrays.asList(ids[count - 1]),
+                        after(term, ids[count - 2], 5));
+
+    // a page removed by the compaction resumes after its last id
+    Assert.assertEquals(Arrays.asList(ids[count - 2], ids[count - 1]),
+                        after(term, ids[count / 2], 5));
+
+    AtomicReference<List<IdAsset>> value = new AtomicReference<>();
+
+    term.retain(Arrays.asList(ids[0], ids[count - 1]),
+                (v, e) -> value.set(v));
+
+    Assert.assertEquals(Arrays.asList(ids[count - 1]), value.get());
+  }
+
+  private IdAsset[] fill(AuctionTitleTermImpl term, int count)
+  {
+    IdAsset[] ids = new IdAsset[count];
+
+    for (int i = 0; i < count; i++) {
+      ids[i] = new IdAsset(i + 1);
+
+      term.add(ids[i], (v, e) -> {});
+    }
+
+    return ids;
+  }
+
+  private List<IdAsset> after(AuctionTitleTermImpl term,
+                              IdAsset afterId,
+                              int limit)
+  {
+    AtomicReference<List<IdAsset>> value = new AtomicReference<>();
+
+    term.getAuctionIdsAfter(afterId, limit, (v, e) -> value.set(v));
+
+    return value.get();
+  }
+}
@@ -0,0 +1,15 @@
+package examples.auction;
+
+public interface AuctionUpdateHubSync extends AuctionUpdateHub
+{
+  boolean subscribe(String auctionId,
+                    String key,
+                    AuctionUpdateListener listener);
+
+  boolean resume(String auctionId,
+                 String key,
+                 AuctionUpdateListener listener,
+                 long sequence);
+
+  boolean unsubscribe(String auctionId, String key);
+}
@@ -0,0 +1,219 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import io.baratine.event.Events;
+import io.baratine.service.ResultFuture;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.vault.IdAsset;
+
+import com.caucho.junit.ConfigurationBaratine;
+import com.caucho.junit.RunnerBaratine;
+import com.caucho.junit.ServiceTest;
+import com.caucho.junit.State;
+import com.caucho.junit.TestTime;
+
+import examples.auction.AuctionSession.UserInitData;
+import examples.auction.AuctionSession.WebAuction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * AuctionUpdateHub subscription, replay and refresh tests.
+ */
+@RunWith(RunnerBaratine.class)
+@ServiceTest(UserVault.class)
+@ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionBidPageVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuctionUpdateHubImpl.class)
+@ConfigurationBaratine()
+public class AuctionUpdateHubTest
+{
+  @Inject
+  @Service("/User")
+  UserVaultSync _users;
+
+  @Inject
+  @Service("/Auction")
+  AuctionVaultSync _auctions;
+
+  @Inject
+  @Service("/AuctionUpdateHub")
+  AuctionUpdateHubSync _hub;
+
+  @Inject
+  @Service("event:")
+  Events _events;
+
+  @Inject
+  Services _services;
+
+  /**
+   * A listener gets the updates between subscribe and unsubscribe.
+   */
+  @Test
+  public void testSubscribe()
+  {
+    AuctionSync auction = createOpenAuction();
+    String id = auction.get().getEncodedId();
+
+    TestListener listener = new TestListener();
+
+    Assert.assertTrue(_hub.subscribe(id, "a", listener));
+
+    State.sleep(100);
+
+    Assert.assertTrue(auction.bid(new AuctionBid("kirk", 17)));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[1:17:OPEN]", listener.getUpdates());
+
+    Assert.assertTrue(_hub.unsubscribe(id, "a"));
+    Assert.assertFalse(_hub.unsubscribe(id, "a"));
+
+    Assert.assertTrue(auction.bid(new AuctionBid("kirk", 18)));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[]", listener.getUpdates());
+  }
+
+  /**
+   * The channel lingers after its last listener leaves, so a resume gets
+   * the missed updates; once it has expired, a resume gets the current
+   * state instead.
+   */
+  @Test
+  public void testLinger()
+  {
+    AuctionSync auction = createOpenAuction();
+    String id = auction.get().getEncodedId();
+
+    TestListener listener = new TestListener();
+
+    _hub.subscribe(id, "a", listener);
+
+    State.sleep(100);
+
+    auction.bid(new AuctionBid("kirk", 17));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[1:17:OPEN]", listener.getUpdates());
+
+    _hub.unsubscribe(id, "a");
+
+    auction.bid(new AuctionBid("kirk", 18));
+    auction.bid(new AuctionBid("kirk", 19));
+
+    State.sleep(100);
+
+    Assert.assertTrue(_hub.resume(id, "a", listener, 1));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[2:18:OPEN, 3:19:OPEN]", listener.getUpdates());
+
+    _hub.unsubscribe(id, "a");
+
+    TestTime.addTime(AuctionUpdateHubImpl.CHANNEL_LINGER + 1000,
+                     TimeUnit.MILLISECONDS);
+
+    State.sleep(100);
+
+    auction.bid(new AuctionBid("kirk", 20));
+
+    State.sleep(100);
+
+    _hub.resume(id, "a", listener, 3);
+
+    State.sleep(100);
+
+    Assert.assertEquals("[4:20:OPEN]", listener.getUpdates());
+  }
+
+  /**
+   * A gap in the event sequence makes the hub reload the auction instead
+   * of applying the event.
+   */
+  @Test
+  public void testSequenceGap()
+  {
+    AuctionSync auction = createOpenAuction();
+    String id = auction.get().getEncodedId();
+
+    TestListener listener = new TestListener();
+
+    _hub.subscribe(id, "a", listener);
+
+    State.sleep(100);
+
+    auction.bid(new AuctionBid("kirk", 17));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[1:17:OPEN]", listener.getUpdates());
+
+    ResultFuture<AuctionEvents> publisher = new ResultFuture<>();
+
+    _events.publisherPath(id, AuctionEvents.class, publisher);
+
+    publisher.get(1, TimeUnit.SECONDS)
+             .onBid(new AuctionBidEvent(id,
+                                        5,
+                                        "spock",
+                                        99,
+                                        Auction.State.OPEN));
+
+    State.sleep(100);
+
+    Assert.assertEquals("[1:17:OPEN]", listener.getUpdates());
+  }
+
+  private AuctionSync createOpenAuction()
+  {
+    IdAsset userId = _users.create(new UserInitData("Spock", "test", false));
+
+    IdAsset id = _auctions.create(new AuctionDataInit(userId.toString(),
+                                                      "book",
+                                                      15));
+
+    AuctionSync auction = _services.service(AuctionSync.class, id.toString());
+
+    Assert.assertTrue(auction.open());
+
+    return auction;
+  }
+
+  static class TestListener implements AuctionUpdateListener
+  {
+    private final ArrayList<String> _updates = new ArrayList<>();
+
+    @Override
+    public synchronized void onUpdate(String auctionId,
+                                      long sequence,
+                                      WebAuction auction,
+                                      String frame)
+    {
+      _updates.add(sequence + ":" + auction.getBid()
+                   + ":" + auction.getState());
+    }
+
+    synchronized String getUpdates()
+    {
+      List<String> updates = new ArrayList<>(_updates);
+
+      _updates.clear();
+
+      return updates.toString();
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package examples.auction;
 
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -28,9 +30,13 @@ import org.junit.runner.RunWith;
 @RunWith(WebRunnerBaratine.class)
 @ServiceTest(UserVault.class)
 @ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuctionCloseSchedulerImpl.class)
 @ServiceTest(AuctionUserSessionImpl.class)
+@ServiceTest(AuctionUpdateHubImpl.class)
 @ServiceTest(AuditServiceImpl.class)
 @ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
 @ServiceTest(MockPayPal.class)
 @ConfigurationBaratine(workDir = "/tmp/baratine")
 public class AuctionUserSessionWebTest
@@ -200,6 +206,39 @@ public class AuctionUserSessionWebTest
     Assert.assertFalse(isAccepted);
   }
 
+  @Test
+  public void testAuctionBidBatch(HttpClient client) throws IOException
+  {
+    userCreate(client, sessionA, "Spock", "passwd", false);
+    userLogin(client, sessionA, "Spock", "passwd");
+
+    WebAuction book = auctionCreate(client, sessionA, "book", 15);
+    WebAuction pen = auctionCreate(client, sessionA, "pen", 5);
+
+    userCreate(client, sessionB, "Kirk", "pass", false);
+    userLogin(client, sessionB, "Kirk", "pass");
+
+    WebBid[] bids = new WebBid[] {
+      new WebBid(book.getId(), 17),
+      new WebBid(pen.getId(), 4),
+      new WebBid(book.getId(), 16),
+      new WebBid(pen.getId(), 6)
+    };
+
+    HttpClient.Response response
+      = client.post("/user/bidBatch")
+              .session(sessionB)
+              .body(bids)
+              .go();
+
+    Assert.assertEquals(200, response.status());
+
+    Boolean[] accepted = response.readObject(Boolean[].class);
+
+    Assert.assertEquals("[true, false, false, true]",
+                        Arrays.asList(accepted).toString());
+  }
+
   @Test
   public void testSearchActions(HttpClient client) throws IOException
   {
@@ -234,6 +273,42 @@ public class AuctionUserSessionWebTest
     return auctions;
   }
 
+  /**
+   * The hub's hand-written update frame is the JSON the web serializer
+   * writes for the same WebAuction, including escaped characters.
+   */
+  @Test
+  public void testUpdateFrameEncoding(HttpClient client) throws IOException
+  {
+    userCreate(client, sessionA, "Spock", "passwd", false);
+    userLogin(client, sessionA, "Spock", "passwd");
+
+    String title = "\"red\" caf\u00e9 \\ book";
+
+    HttpClient.Response response
+      = client.post("/user/createAuction")
+              .session(sessionA)
+              .body(String.format("t=%1$s&b=%2$d",
+                                  URLEncoder.encode(title, "UTF-8"),
+                                  15))
+              .type("application/x-www-form-urlencoded")
+              .go();
+
+    Assert.assertEquals(200, response.status());
+
+    // body() returns one char per byte; the response is UTF-8
+    byte[] body = response.body().getBytes(StandardCharsets.ISO_8859_1);
+
+    String serialized = new String(body, StandardCharsets.UTF_8);
+
+    String id = serialized.replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+
+    String frame = new AuctionUpdateHubImpl()
+      .encode(WebAuction.of(id, title, 15, Auction.State.OPEN));
+
+    Assert.assertEquals(serialized, frame);
+  }
+
   @Test
   public void testAuctionEvents(HttpClient client)
     throws IOException, InterruptedException
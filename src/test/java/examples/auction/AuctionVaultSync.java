@@ -10,7 +10,10 @@ public interface AuctionVaultSync extends AuctionVault
 
   Auction findByTitle(String title);
 
-  List<AuctionData> findAuctionDataByTitle(String title);
+  AuctionSummaryPage findSummariesByTitle(String title,
+                                          int limit,
+                                          String cursor);
+
 
   List<IdAsset> findIdsByTitle(String title);
 }
@@ -0,0 +1,315 @@
+package examples.auction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Audit journal write and read tests.
+ */
+public class AuditJournalTest
+{
+  @Test
+  public void testFindByAuction() throws IOException
+  {
+    File file = createJournal(10);
+
+    try (AuditJournalReader reader = new AuditJournalReader(file)) {
+      reader.open();
+
+      Assert.assertEquals(10, reader.size());
+
+      List<AuditRecord> records = reader.findByAuction("auction-1");
+
+      Assert.assertEquals(5, records.size());
+      Assert.assertEquals(AuditRecord.Type.BID_ACCEPT,
+                          records.get(0).getType());
+      Assert.assertEquals("user-1", records.get(0).getUserId());
+      Assert.assertEquals(11, records.get(0).getAmount());
+      Assert.assertEquals(1001, records.get(0).getTime());
+
+      Assert.assertEquals(0, reader.findByAuction("auction-x").size());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testHistory() throws IOException
+  {
+    File file = File.createTempFile("audit", ".journal");
+    file.delete();
+
+    AuditJournal journal = new AuditJournal(file, 0);
+    journal.open();
+
+    journal.append(record(AuditRecord.Type.AUCTION_CREATE,
+                          1, "auction-1", null, 10));
+    journal.append(record(AuditRecord.Type.AUCTION_CREATE,
+                          2, "auction-2", null, 10));
+    journal.append(record(AuditRecord.Type.PAYPAL_PAYMENT_REQUEST,
+                          3, "auction-1", "settle-1", 20));
+    journal.append(record(AuditRecord.Type.PAYPAL_PAYMENT_RESPONSE,
+                          4, "auction-1", "settle-1", 0));
+    journal.append(record(AuditRecord.Type.PAYPAL_REFUND_REQUEST,
+                          5, null, "settle-1", 0));
+    journal.append(record(AuditRecord.Type.PAYPAL_REFUND_REQUEST,
+                          6, null, "settle-2", 0));
+    journal.close();
+
+    try (AuditJournalReader reader = new AuditJournalReader(file)) {
+      reader.open();
+
+      List<AuditRecord> history = reader.getHistory("auction-1");
+
+      Assert.assertEquals(4, history.size());
+      Assert.assertEquals(AuditRecord.Type.AUCTION_CREATE,
+                          history.get(0).getType());
+      Assert.assertEquals(AuditRecord.Type.PAYPAL_PAYMENT_REQUEST,
+                          history.get(1).getType());
+      Assert.assertEquals(AuditRecord.Type.PAYPAL_PAYMENT_RESPONSE,
+                          history.get(2).getType());
+      Assert.assertEquals(AuditRecord.Type.PAYPAL_REFUND_REQUEST,
+                          history.get(3).getType());
+
+      Assert.assertEquals(3, reader.findBySettlement("settle-1").size());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testScan() throws IOException
+  {
+    File file = createJournal(5000);
+
+    try (AuditJournalReader reader = new AuditJournalReader(file)) {
+      reader.open();
+
+      List<AuditRecord> records = reader.scan(3000, 3100);
+
+      Assert.assertEquals(100, records.size());
+      Assert.assertEquals(3000, records.get(0).getTime());
+      Assert.assertEquals(3099, records.get(99).getTime());
+
+      Assert.assertEquals(5000, reader.scan(0, Long.MAX_VALUE).size());
+      Assert.assertEquals(0, reader.scan(7000, 8000).size());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testTruncatedTail() throws IOException
+  {
+    File file = createJournal(10);
+
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(raf.length() - 3);
+      }
+
+      try (AuditJournalReader reader = new AuditJournalReader(file)) {
+        reader.open();
+
+        Assert.assertEquals(9, reader.size());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Reopening a journal with a torn record drops the torn bytes, so the
+   * records appended after the crash can be read.
+   */
+  @Test
+  public void testReopenTornTail() throws IOException
+  {
+    File file = createJournal(10);
+
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(raf.length() - 3);
+      }
+
+      appendOne(file, 2000);
+
+      try (AuditJournalReader reader = new AuditJournalReader(file)) {
+        reader.open();
+
+        Assert.assertEquals(10, reader.size());
+        Assert.assertEquals(1, reader.scan(2000, 2001).size());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * A tail that isn't a record, e.g. a zeroed block, is truncated too.
+   */
+  @Test
+  public void testReopenGarbageTail() throws IOException
+  {
+    File file = createJournal(10);
+
+    try {
+      long length = file.length();
+
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.seek(length);
+        raf.write(new byte[100]);
+      }
+
+      appendOne(file, 2000);
+
+      try (AuditJournalReader reader = new AuditJournalReader(file)) {
+        reader.open();
+
+        Assert.assertEquals(11, reader.size());
+        Assert.assertEquals(1, reader.scan(2000, 2001).size());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * A crash before the header was complete starts a new journal.
+   */
+  @Test
+  public void testReopenTornHeader() throws IOException
+  {
+    File file = File.createTempFile("audit", ".journal");
+
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.writeShort(0x4155);
+      }
+
+      appendOne(file, 2000);
+
+      try (AuditJournalReader reader = new AuditJournalReader(file)) {
+        reader.open();
+
+        Assert.assertEquals(1, reader.size());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSync() throws IOException
+  {
+    File file = File.createTempFile("audit", ".journal");
+    file.delete();
+
+    AuditJournal journal = new AuditJournal(file, 60000);
+
+    try {
+      journal.open();
+
+      journal.append(record(AuditRecord.Type.AUCTION_CREATE,
+                            1, "auction-1", null, 10));
+
+      Assert.assertTrue(0 < journal.getPendingSize());
+
+      // written, but the sync interval hasn't passed
+      journal.flush();
+
+      Assert.assertEquals(0, journal.getPendingSize());
+      Assert.assertTrue(journal.isDirty());
+
+      // the owner's timer forces it regardless of the interval
+      journal.checkpoint();
+
+      Assert.assertFalse(journal.isDirty());
+
+      journal.checkpoint();
+
+      Assert.assertFalse(journal.isDirty());
+    } finally {
+      journal.close();
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testAppendClosed() throws IOException
+  {
+    File file = File.createTempFile("audit", ".journal");
+    file.delete();
+
+    AuditJournal journal = new AuditJournal(file, 0);
+    journal.open();
+    journal.close();
+
+    try {
+      journal.append(record(AuditRecord.Type.AUCTION_CREATE,
+                            1, "auction-1", null, 10));
+
+      Assert.fail();
+    } catch (IOException e) {
+    } finally {
+      file.delete();
+    }
+  }
+
+  private void appendOne(File file, long time) throws IOException
+  {
+    AuditJournal journal = new AuditJournal(file, 0);
+    journal.open();
+
+    journal.append(record(AuditRecord.Type.AUCTION_CREATE,
+                          time, "auction-2", null, 10));
+
+    journal.close();
+  }
+
+  private File createJournal(int n) throws IOException
+  {
+    File file = File.createTempFile("audit", ".journal");
+    file.delete();
+
+    AuditJournal journal = new AuditJournal(file, 1000);
+    journal.open();
+
+    for (int i = 0; i < n; i++) {
+      journal.append(new AuditRecord(AuditRecord.Type.BID_ACCEPT,
+                                     1000 + i,
+                                     "auction-" + (i % 2),
+                                     null,
+                                     "user-" + i,
+                                     10 + i,
+                                     null));
+
+      if (i % 100 == 0)
+        journal.flush();
+    }
+
+    journal.close();
+
+    return file;
+  }
+
+  private AuditRecord record(AuditRecord.Type type,
+                             long time,
+                             String auctionId,
+                             String settlementId,
+                             int amount)
+  {
+    return new AuditRecord(type,
+                           time,
+                           auctionId,
+                           settlementId,
+                           "user-1",
+                           amount,
+                           null);
+  }
+}
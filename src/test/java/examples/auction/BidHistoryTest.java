@@ -0,0 +1,177 @@
+package examples.auction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BidHistory spill tests.
+ */
+public class BidHistoryTest
+{
+  private static final int SPILL_SIZE
+    = BidHistory.RECENT_SIZE + BidHistory.PAGE_SIZE;
+
+  @Test
+  public void testSpillConfirmed() throws Exception
+  {
+    BidHistory history = new BidHistory();
+
+    BidLog page = fill(history, SPILL_SIZE);
+
+    Assert.assertNotNull(page);
+    Assert.assertEquals(BidHistory.PAGE_SIZE, page.size());
+    Assert.assertEquals(1, page.get(1).getBid());
+
+    // the page's bids stay inline until the write is confirmed
+    Assert.assertEquals(0, history.getPageCount());
+    Assert.assertEquals(SPILL_SIZE, history.getRecent().size());
+
+    // no second page while the first is being written
+    Assert.assertNull(history.add(bid(SPILL_SIZE)));
+
+    history.onSpilled(0);
+
+    Assert.assertEquals(1, history.getPageCount());
+    Assert.assertEquals(SPILL_SIZE + 1, history.size());
+    Assert.assertEquals(BidHistory.PAGE_SIZE,
+                        history.getRecent(BidHistory.PAGE_SIZE,
+                                          BidHistory.PAGE_SIZE + 1)
+                               .get(0).getBid());
+
+    // a stale confirmation is ignored
+    history.onSpilled(0);
+    Assert.assertEquals(1, history.getPageCount());
+
+    // the saved form no longer holds the spilled bids
+    BidHistory loaded = copy(history);
+
+    Assert.assertEquals(SPILL_SIZE + 1, loaded.size());
+    Assert.assertEquals(BidHistory.RECENT_SIZE + 1,
+                        loaded.getRecent().size());
+  }
+
+  @Test
+  public void testSpillFailed()
+  {
+    BidHistory history = new BidHistory();
+
+    Assert.assertNotNull(fill(history, SPILL_SIZE));
+
+    history.onSpillFailed(0);
+
+    Assert.assertEquals(0, history.getPageCount());
+    Assert.assertEquals(SPILL_SIZE, history.size());
+
+    // the next bid retries the same page
+    BidLog page = history.add(bid(SPILL_SIZE));
+
+    Assert.assertNotNull(page);
+    Assert.assertEquals(0, page.get(0).getBid());
+  }
+
+  /**
+   * The inline bids are persisted in their compact encoding.
+   */
+  @Test
+  public void testSave() throws Exception
+  {
+    BidHistory history = new BidHistory();
+
+    fill(history, 100);
+
+    BidHistory loaded = copy(history);
+
+    Assert.assertEquals(100, loaded.size());
+    Assert.assertEquals(99, loaded.getRecent(99, 100).get(0).getBid());
+    Assert.assertEquals("user-3", loaded.getRecent(99, 100).get(0).getUserId());
+
+    // columns with their spare capacity aren't part of the saved state
+    Assert.assertTrue(serialize(history).length
+                      < serialize(history.getRecent()).length);
+  }
+
+  @Test
+  public void testBidHistoryRange()
+  {
+    AuctionImpl auction
+      = new AuctionImpl("auction",
+                        new AuctionDataInit("owner", "book", 1),
+                        ZonedDateTime.now().plusDays(1));
+
+    auction.bid("kirk", 2);
+
+    AtomicReference<List<Auction.Bid>> bids = new AtomicReference<>();
+
+    auction.getBidHistory(Integer.MAX_VALUE, Integer.MAX_VALUE,
+                          (v, e) -> bids.set(v));
+
+    Assert.assertEquals(0, bids.get().size());
+
+    auction.getBidHistory(0, Integer.MAX_VALUE, (v, e) -> bids.set(v));
+
+    Assert.assertEquals(1, bids.get().size());
+
+    try {
+      auction.getBidHistory(-1, 1, (v, e) -> bids.set(v));
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+    }
+
+    try {
+      auction.getBidHistory(0, -1, (v, e) -> bids.set(v));
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  private BidHistory copy(BidHistory history)
+    throws IOException, ClassNotFoundException
+  {
+    ObjectInputStream in
+      = new ObjectInputStream(new ByteArrayInputStream(serialize(history)));
+
+    return (BidHistory) in.readObject();
+  }
+
+  private byte[] serialize(Object value) throws IOException
+  {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+    try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+      out.writeObject(value);
+    }
+
+    return bos.toByteArray();
+  }
+
+  private BidLog fill(BidHistory history, int count)
+  {
+    BidLog page = null;
+
+    for (int i = 0; i < count; i++) {
+      BidLog next = history.add(bid(i));
+
+      if (next != null)
+        page = next;
+    }
+
+    return page;
+  }
+
+  private Auction.Bid bid(int amount)
+  {
+    return new AuctionImpl.BidImpl("user-" + (amount % 4),
+                                   "auction",
+                                   amount,
+                                   amount);
+  }
+}
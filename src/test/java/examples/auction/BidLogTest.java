@@ -0,0 +1,81 @@
+package examples.auction;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BidLog columnar encoding tests.
+ */
+public class BidLogTest
+{
+  @Test
+  public void testAddGet()
+  {
+    BidLog log = createLog(10);
+
+    Assert.assertEquals(10, log.size());
+    Assert.assertEquals("auction-1", log.getAuctionId());
+
+    Auction.Bid bid = log.get(4);
+
+    Assert.assertEquals("user-1", bid.getUserId());
+    Assert.assertEquals("auction-1", bid.getAuctionId());
+    Assert.assertEquals(24, bid.getBid());
+    Assert.assertEquals(1004, bid.getTime());
+
+    List<Auction.Bid> bids = log.asList();
+
+    Assert.assertEquals(10, bids.size());
+    Assert.assertEquals(29, bids.get(9).getBid());
+  }
+
+  @Test
+  public void testRemoveHead()
+  {
+    BidLog log = createLog(10);
+
+    BidLog head = log.removeHead(4);
+
+    Assert.assertEquals(4, head.size());
+    Assert.assertEquals(6, log.size());
+
+    Assert.assertEquals(20, head.get(0).getBid());
+    Assert.assertEquals(23, head.get(3).getBid());
+    Assert.assertEquals(24, log.get(0).getBid());
+    Assert.assertEquals("user-1", log.get(0).getUserId());
+    Assert.assertEquals("user-0", log.get(5).getUserId());
+  }
+
+  @Test
+  public void testEncodeDecode()
+  {
+    BidLog log = createLog(300);
+
+    BidLog copy = BidLog.decode(log.encode());
+
+    Assert.assertEquals(log.size(), copy.size());
+    Assert.assertEquals(log.getAuctionId(), copy.getAuctionId());
+
+    for (int i = 0; i < log.size(); i++) {
+      Assert.assertEquals(log.get(i).getUserId(), copy.get(i).getUserId());
+      Assert.assertEquals(log.get(i).getBid(), copy.get(i).getBid());
+      Assert.assertEquals(log.get(i).getTime(), copy.get(i).getTime());
+    }
+  }
+
+  private BidLog createLog(int size)
+  {
+    BidLog log = new BidLog();
+
+    for (int i = 0; i < size; i++) {
+      log.add(new AuctionImpl.BidImpl("user-" + (i % 3),
+                                      "auction-1",
+                                      20 + i,
+                                      1000 + i));
+    }
+
+    return log;
+  }
+}
@@ -0,0 +1,144 @@
+package examples.auction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import examples.auction.AuctionSession.WebAuction;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Binary update frame round trip tests.
+ */
+public class BinaryUpdateEncoderTest
+{
+  @Test
+  public void testRoundTrip()
+  {
+    BinaryUpdateEncoder encoder = new BinaryUpdateEncoder();
+    BinaryUpdateDecoder decoder = new BinaryUpdateDecoder();
+
+    List<WebAuction> auctions
+      = Arrays.asList(WebAuction.of("Y2hWfEXNAAA", "book", 15,
+                                    Auction.State.OPEN),
+                      WebAuction.of("Y2hWfEXNAAB", "caf\u00e9", 1_000_000,
+                                    Auction.State.OPEN));
+
+    Assert.assertEquals(auctions.toString(),
+                        roundTrip(encoder, decoder, auctions).toString());
+
+    Assert.assertEquals(2, encoder.size());
+
+    List<WebAuction> update
+      = Arrays.asList(WebAuction.of("Y2hWfEXNAAB", "caf\u00e9", 999_990,
+                                    Auction.State.CLOSED),
+                      WebAuction.of("Y2hWfEXNAAA", "book", 17,
+                                    Auction.State.OPEN));
+
+    List<WebAuction> decoded = roundTrip(encoder, decoder, update);
+
+    Assert.assertEquals(update.toString(), decoded.toString());
+    Assert.assertEquals("Y2hWfEXNAAB", decoded.get(0).getId());
+    Assert.assertEquals("Y2hWfEXNAAA", decoded.get(1).getId());
+  }
+
+  @Test
+  public void testCompact()
+  {
+    BinaryUpdateEncoder encoder = new BinaryUpdateEncoder();
+
+    WebAuction auction
+      = WebAuction.of("Y2hWfEXNAAA", "book", 15, Auction.State.OPEN);
+
+    encoder.encode(Collections.singletonList(auction));
+
+    // version, index, id, title, state code, state name, price
+    Assert.assertEquals(1 + 1 + 12 + 5 + 1 + 5 + 1, encoder.length());
+
+    auction = WebAuction.of("Y2hWfEXNAAA", "book", 16, Auction.State.OPEN);
+
+    byte[] frame = encoder.encode(Collections.singletonList(auction));
+
+    // a known auction's bid is its index, state code and price delta
+    Assert.assertEquals(4, encoder.length());
+    Assert.assertEquals("[2, 0, 0, 2]",
+                        Arrays.toString(Arrays.copyOf(frame, 4)));
+  }
+
+  @Test
+  public void testBadFrame()
+  {
+    BinaryUpdateDecoder decoder = new BinaryUpdateDecoder();
+
+    try {
+      decoder.decode(new byte[] { 1, 0 }, 0, 2);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+
+    try {
+      // index 3 before any auction was defined
+      decoder.decode(new byte[] { 2, 6, 0, 0 }, 0, 4);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+
+    try {
+      // index 1 defined before index 0
+      decoder.decode(new byte[] { 2, 3, 1, 'a', 0, 1, 0 }, 0, 7);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+
+    try {
+      // state code 2 before any state name was sent
+      decoder.decode(new byte[] { 2, 1, 1, 'a', 0, 4, 0 }, 0, 7);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+  }
+
+  /**
+   * A full index table reuses the least recently sent auction's index.
+   */
+  @Test
+  public void testEvict()
+  {
+    BinaryUpdateEncoder encoder = new BinaryUpdateEncoder(2);
+    BinaryUpdateDecoder decoder = new BinaryUpdateDecoder();
+
+    WebAuction a = WebAuction.of("a", "book", 15, Auction.State.OPEN);
+    WebAuction b = WebAuction.of("b", "pen", 20, Auction.State.OPEN);
+    WebAuction c = WebAuction.of("c", "cup", 30, Auction.State.CLOSED);
+
+    roundTrip(encoder, decoder, Arrays.asList(a, b));
+
+    // a is sent again, so b is the eldest
+    roundTrip(encoder, decoder, Collections.singletonList(a));
+
+    List<WebAuction> decoded
+      = roundTrip(encoder, decoder, Collections.singletonList(c));
+
+    Assert.assertEquals("[" + c + "]", decoded.toString());
+    Assert.assertEquals(2, encoder.size());
+
+    // b was evicted and is defined again with its full price
+    b = WebAuction.of("b", "pen", 21, Auction.State.OPEN);
+
+    decoded = roundTrip(encoder, decoder, Arrays.asList(b, a, c));
+
+    Assert.assertEquals(Arrays.asList(b, a, c).toString(),
+                        decoded.toString());
+    Assert.assertEquals(2, encoder.size());
+  }
+
+  private List<WebAuction> roundTrip(BinaryUpdateEncoder encoder,
+                                     BinaryUpdateDecoder decoder,
+                                     List<WebAuction> auctions)
+  {
+    byte[] frame = encoder.encode(auctions);
+
+    return decoder.decode(frame, 0, encoder.length());
+  }
+}
@@ -0,0 +1,92 @@
+package examples.auction;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * LatencyHistogram bucket and quantile tests.
+ */
+public class LatencyHistogramTest
+{
+  @Test
+  public void testBuckets()
+  {
+    for (int i = 0; i < 16; i++) {
+      Assert.assertEquals(i, LatencyHistogram.index(i));
+      Assert.assertEquals(i, LatencyHistogram.upperBound(i));
+    }
+
+    Random random = new Random(17);
+
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextLong() >>> (1 + random.nextInt(63));
+
+      int index = LatencyHistogram.index(value);
+      long upper = LatencyHistogram.upperBound(index);
+
+      Assert.assertTrue(value <= upper);
+      Assert.assertTrue(upper - value <= value / 16);
+
+      if (index > 0)
+        Assert.assertTrue(LatencyHistogram.upperBound(index - 1) < value);
+    }
+
+    Assert.assertEquals(Long.MAX_VALUE,
+                        LatencyHistogram.upperBound(
+                          LatencyHistogram.index(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void testQuantiles()
+  {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    Assert.assertEquals(0, histogram.quantile(0.5));
+
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    Assert.assertEquals(1000, histogram.getCount());
+    Assert.assertEquals(500500000L, histogram.getSum());
+
+    long[] values = histogram.quantiles(0.5, 0.9, 0.99, 1.0);
+
+    assertNear(500000, values[0]);
+    assertNear(900000, values[1]);
+    assertNear(990000, values[2]);
+    assertNear(1000000, values[3]);
+  }
+
+  @Test
+  public void testFormat()
+  {
+    LatencyHistogram histogram
+      = Metrics.timer("Test", "format", "ok");
+
+    Assert.assertSame(histogram, Metrics.timer("Test", "format", "ok"));
+
+    histogram.record(2000000);
+
+    String text = Metrics.format();
+
+    Assert.assertTrue(text.contains("# TYPE " + Metrics.NAME + " summary\n"));
+
+    String labels = "{service=\"Test\",method=\"format\",outcome=\"ok\"";
+
+    Assert.assertTrue(text.contains(Metrics.NAME + labels
+                                    + ",quantile=\"0.5\"} "));
+    Assert.assertTrue(text.contains(Metrics.NAME + "_sum" + labels
+                                    + "} 0.002\n"));
+    Assert.assertTrue(text.contains(Metrics.NAME + "_count" + labels
+                                    + "} 1\n"));
+  }
+
+  private static void assertNear(long expected, long value)
+  {
+    Assert.assertTrue(value + " near " + expected,
+                      value >= expected && value <= expected + expected / 16);
+  }
+}
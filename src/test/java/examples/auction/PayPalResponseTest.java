@@ -0,0 +1,66 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PayPal response parsing tests.
+ */
+public class PayPalResponseTest
+{
+  private static final String PAYMENT
+    = "{\"id\":\"PAY-1\",\"state\":\"approved\",\"intent\":\"sale\","
+      + "\"payer\":{\"payment_method\":\"credit_card\","
+      + "\"funding_instruments\":[{\"credit_card\":{\"type\":\"visa\"}}]},"
+      + "\"transactions\":[{\"amount\":{\"total\":\"7.00\"},"
+      + "\"related_resources\":[{\"sale\":{\"id\":\"SALE-1\","
+      + "\"state\":\"completed\"}}]}],"
+      + "\"links\":[{\"rel\":\"self\",\"id\":\"x\"}]}";
+
+  @Test
+  public void testExtract()
+  {
+    String[] values
+      = PayPalResponse.extract(bytes(PAYMENT),
+                               "state",
+                               "transactions.0.related_resources.0.sale.id",
+                               "transactions.1.related_resources.0.sale.id",
+                               "payer.payment_method");
+
+    Assert.assertEquals("approved", values[0]);
+    Assert.assertEquals("SALE-1", values[1]);
+    Assert.assertNull(values[2]);
+    Assert.assertEquals("credit_card", values[3]);
+  }
+
+  @Test
+  public void testPayment()
+  {
+    PaymentImpl payment = new PaymentImpl(bytes(PAYMENT), false);
+
+    Assert.assertEquals(Payment.PaymentState.approved, payment.getState());
+    Assert.assertEquals("SALE-1", payment.getSaleId());
+    Assert.assertNull(payment.getResponse());
+
+    payment = new PaymentImpl(bytes(PAYMENT), true);
+
+    Assert.assertEquals(PAYMENT, payment.getResponse());
+  }
+
+  @Test
+  public void testRefund()
+  {
+    RefundImpl refund
+      = new RefundImpl(bytes("{\"id\":\"R-1\",\"state\":\"completed\"}"),
+                       false);
+
+    Assert.assertEquals(Refund.RefundState.completed, refund.getStatus());
+  }
+
+  private static byte[] bytes(String value)
+  {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
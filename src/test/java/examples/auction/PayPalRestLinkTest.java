@@ -0,0 +1,177 @@
+package examples.auction;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.baratine.service.Result;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PayPalRestLink against a local stub HTTPS server.
+ */
+public class PayPalRestLinkTest
+{
+  private MockWebServer _server;
+  private PayPalRestLink _link;
+
+  @Before
+  public void before() throws Exception
+  {
+    HeldCertificate localhost = new HeldCertificate.Builder()
+      .addSubjectAlternativeName("localhost")
+      .build();
+
+    HandshakeCertificates serverCertificates
+      = new HandshakeCertificates.Builder()
+      .heldCertificate(localhost)
+      .build();
+
+    HandshakeCertificates clientCertificates
+      = new HandshakeCertificates.Builder()
+      .addTrustedCertificate(localhost.certificate())
+      .build();
+
+    _server = new MockWebServer();
+    _server.useHttps(serverCertificates.sslSocketFactory(), false);
+    _server.start();
+
+    Properties p = new Properties();
+    p.setProperty("client-id", "client");
+    p.setProperty("secret", "secret");
+    p.setProperty("endpoint", "localhost:" + _server.getPort());
+    p.setProperty("max-requests", "4");
+
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+      .sslSocketFactory(clientCertificates.sslSocketFactory(),
+                        clientCertificates.trustManager());
+
+    _link = new PayPalRestLink(p, builder);
+  }
+
+  @After
+  public void after() throws Exception
+  {
+    _server.shutdown();
+  }
+
+  @Test
+  public void testAuth() throws Exception
+  {
+    _server.enqueue(new MockResponse().setResponseCode(200)
+                                      .setBody("{\"access_token\":\"t-1\"}"));
+
+    PayPalAuth auth = get(r -> _link.auth(r));
+
+    Assert.assertEquals("t-1", auth.getToken());
+
+    RecordedRequest request = _server.takeRequest();
+
+    Assert.assertEquals("/v1/oauth2/token", request.getPath());
+    Assert.assertEquals("grant_type=client_credentials",
+                        request.getBody().readUtf8());
+  }
+
+  @Test
+  public void testRefundError() throws Exception
+  {
+    enqueueToken("t-1");
+    _server.enqueue(new MockResponse().setResponseCode(400)
+                                      .setBody("{\"name\":\"INVALID\"}"));
+
+    try {
+      this.<Refund>get(r -> _link.refund("request-1", "sale-1", r));
+
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().startsWith("400"));
+    }
+
+    Assert.assertEquals("/v1/oauth2/token", _server.takeRequest().getPath());
+
+    RecordedRequest request = _server.takeRequest();
+
+    Assert.assertEquals("/v1/payments/sale/sale-1/refund", request.getPath());
+    Assert.assertEquals("Bearer t-1", request.getHeader("Authorization"));
+    Assert.assertEquals("request-1", request.getHeader("PayPal-Request-Id"));
+  }
+
+  @Test
+  public void testTokenCached() throws Exception
+  {
+    enqueueToken("t-1");
+    enqueueRefund();
+    enqueueRefund();
+
+    Refund refund = get(r -> _link.refund("request-1", "sale-1", r));
+    Assert.assertEquals(Refund.RefundState.completed, refund.getStatus());
+
+    this.<Refund>get(r -> _link.refund("request-2", "sale-2", r));
+
+    Assert.assertEquals(3, _server.getRequestCount());
+
+    Assert.assertEquals("/v1/oauth2/token", _server.takeRequest().getPath());
+    Assert.assertEquals("Bearer t-1",
+                        _server.takeRequest().getHeader("Authorization"));
+    Assert.assertEquals("Bearer t-1",
+                        _server.takeRequest().getHeader("Authorization"));
+  }
+
+  @Test
+  public void testUnauthorizedRetry() throws Exception
+  {
+    enqueueToken("t-1");
+    _server.enqueue(new MockResponse().setResponseCode(401)
+                                      .setBody("{}"));
+    enqueueToken("t-2");
+    enqueueRefund();
+
+    Refund refund = get(r -> _link.refund("request-1", "sale-1", r));
+    Assert.assertEquals(Refund.RefundState.completed, refund.getStatus());
+
+    _server.takeRequest();
+    Assert.assertEquals("Bearer t-1",
+                        _server.takeRequest().getHeader("Authorization"));
+    _server.takeRequest();
+
+    RecordedRequest retry = _server.takeRequest();
+
+    Assert.assertEquals("Bearer t-2", retry.getHeader("Authorization"));
+    Assert.assertEquals("request-1", retry.getHeader("PayPal-Request-Id"));
+  }
+
+  private void enqueueToken(String token)
+  {
+    _server.enqueue(new MockResponse()
+                      .setResponseCode(200)
+                      .setBody("{\"access_token\":\"" + token
+                               + "\",\"expires_in\":3600}"));
+  }
+
+  private void enqueueRefund()
+  {
+    _server.enqueue(new MockResponse().setResponseCode(201)
+                                      .setBody("{\"state\":\"completed\"}"));
+  }
+
+  private <T> T get(Consumer<Result<T>> call)
+    throws Exception
+  {
+    CompletableFuture<T> future = new CompletableFuture<>();
+
+    call.accept(Result.of(future::complete, future::completeExceptionally));
+
+    return future.get(10, TimeUnit.SECONDS);
+  }
+}
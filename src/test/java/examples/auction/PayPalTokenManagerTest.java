@@ -0,0 +1,112 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.baratine.service.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PayPalTokenManager caching and single-flight tests.
+ */
+public class PayPalTokenManagerTest
+{
+  @Test
+  public void testSingleFlight()
+  {
+    List<Result<PayPalAuth>> fetches = new ArrayList<>();
+
+    PayPalTokenManager tokens = new PayPalTokenManager(fetches::add);
+
+    List<String> values = new ArrayList<>();
+
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+
+    Assert.assertEquals(1, fetches.size());
+    Assert.assertEquals(0, values.size());
+
+    fetches.get(0).ok(auth("t-1", 3600));
+
+    Assert.assertEquals("[t-1, t-1]", values.toString());
+
+    // cached
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+
+    Assert.assertEquals(1, fetches.size());
+    Assert.assertEquals(3, values.size());
+  }
+
+  @Test
+  public void testInvalidate()
+  {
+    List<Result<PayPalAuth>> fetches = new ArrayList<>();
+
+    PayPalTokenManager tokens = new PayPalTokenManager(fetches::add);
+
+    List<PayPalAuth> values = new ArrayList<>();
+
+    tokens.get((auth, e) -> values.add(auth));
+
+    fetches.get(0).ok(auth("t-1", 3600));
+
+    tokens.invalidate(values.get(0));
+
+    tokens.get((auth, e) -> values.add(auth));
+
+    Assert.assertEquals(2, fetches.size());
+
+    fetches.get(1).ok(auth("t-2", 3600));
+
+    Assert.assertEquals("t-2", values.get(1).getToken());
+  }
+
+  @Test
+  public void testRefreshAhead()
+  {
+    List<Result<PayPalAuth>> fetches = new ArrayList<>();
+
+    PayPalTokenManager tokens = new PayPalTokenManager(fetches::add);
+
+    List<String> values = new ArrayList<>();
+
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+
+    // a one second token is due for refresh after 800ms
+    fetches.get(0).ok(auth("t-1", 1));
+
+    sleep(900);
+
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+
+    // cached token is returned while a refresh is started
+    Assert.assertEquals("[t-1, t-1]", values.toString());
+    Assert.assertEquals(2, fetches.size());
+
+    tokens.get((auth, e) -> values.add(auth.getToken()));
+
+    Assert.assertEquals(2, fetches.size());
+  }
+
+  private static PayPalAuth auth(String token, int expiresIn)
+  {
+    return new PayPalAuth(token, null)
+    {
+      @Override
+      public int getExpiresIn()
+      {
+        return expiresIn;
+      }
+    };
+  }
+
+  private static void sleep(long ms)
+  {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package examples.auction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PaymentTemplate rendering and JSON escaping tests.
+ */
+public class PaymentTemplateTest
+{
+  @Test
+  public void testMatchesFormat() throws Exception
+  {
+    PaymentTemplate template = PaymentTemplate.load("/payment.template.json");
+
+    Object[] args = { "4111111111111111", "visa", 11, 2019, "874",
+                      "John", "Doe", "25.00", "USD", "book" };
+
+    String expected;
+
+    try (Scanner scanner
+           = new Scanner(getClass().getResourceAsStream(
+                           "/payment.template.json"), "UTF-8")) {
+      expected = String.format(scanner.useDelimiter("\\A").next(), args);
+    }
+
+    Assert.assertEquals(expected,
+                        new String(template.render(args),
+                                   StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEscape()
+  {
+    PaymentTemplate template
+      = new PaymentTemplate("{\"a\":\"%1$s\",\"b\":%2$d,\"c\":%3$s}");
+
+    String json = new String(template.render("x\"\\\n\u0001\u00e9\ud83d\ude00",
+                                             -12,
+                                             "874"),
+                             StandardCharsets.UTF_8);
+
+    Assert.assertEquals("{\"a\":\"x\\\"\\\\\\n\\u0001\u00e9\ud83d\ude00\","
+                        + "\"b\":-12,\"c\":874}",
+                        json);
+  }
+
+  @Test
+  public void testUnquotedNumber()
+  {
+    PaymentTemplate template = new PaymentTemplate("{\"c\":%1$s}");
+
+    try {
+      template.render("1,\"x\":2");
+
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+    }
+  }
+}
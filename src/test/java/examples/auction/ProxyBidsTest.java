@@ -0,0 +1,149 @@
+package examples.auction;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Proxy bid resolution tests.
+ */
+public class ProxyBidsTest
+{
+  @Test
+  public void testResolve()
+  {
+    ProxyBids proxies = new ProxyBids();
+
+    // first proxy opens one increment over the starting price
+    Assert.assertTrue(proxies.put("kirk", 50, 15));
+    Assert.assertEquals("Bid[kirk, 16]",
+                        String.valueOf(proxies.resolve(null, 15)));
+
+    // leader keeps the price without competition
+    Assert.assertNull(proxies.resolve("kirk", 16));
+
+    // runner-up is outbid by one increment
+    Assert.assertTrue(proxies.put("spock", 40, 16));
+    Assert.assertEquals("Bid[kirk, 41]",
+                        String.valueOf(proxies.resolve("kirk", 16)));
+
+    // a manual bid over the leader's maximum wins
+    Assert.assertNull(proxies.resolve("uhura", 60));
+    Assert.assertEquals(0, proxies.size());
+  }
+
+  @Test
+  public void testTakeover()
+  {
+    ProxyBids proxies = new ProxyBids();
+
+    proxies.put("kirk", 50, 15);
+    proxies.put("spock", 70, 30);
+
+    Assert.assertEquals("Bid[spock, 51]",
+                        String.valueOf(proxies.resolve("kirk", 30)));
+
+    // a manual bid is answered by the leader
+    Assert.assertEquals("Bid[spock, 61]",
+                        String.valueOf(proxies.resolve("uhura", 60)));
+  }
+
+  @Test
+  public void testTie()
+  {
+    ProxyBids proxies = new ProxyBids();
+
+    proxies.put("kirk", 50, 15);
+    proxies.put("spock", 50, 15);
+
+    // the first bidder to reach a maximum wins the tie
+    Assert.assertEquals("Bid[kirk, 50]",
+                        String.valueOf(proxies.resolve(null, 15)));
+
+    Assert.assertFalse(proxies.put("spock", 50, 50));
+    Assert.assertFalse(proxies.put("kirk", 40, 15));
+
+    Assert.assertEquals(50, proxies.getMax("kirk"));
+  }
+
+  @Test
+  public void testRaise()
+  {
+    ProxyBids proxies = new ProxyBids();
+
+    proxies.put("kirk", 50, 15);
+    proxies.put("spock", 60, 15);
+
+    Assert.assertTrue(proxies.put("kirk", 80, 51));
+    Assert.assertEquals(80, proxies.getMax("kirk"));
+
+    Assert.assertEquals("Bid[kirk, 61]",
+                        String.valueOf(proxies.resolve("spock", 51)));
+  }
+
+  /**
+   * Resolution matches a linear scan for the top two maximums.
+   */
+  @Test
+  public void testRandom()
+  {
+    Random random = new Random(17);
+
+    ProxyBids proxies = new ProxyBids();
+    int[] maxes = new int[32];
+
+    String bidder = null;
+    int price = 10;
+
+    for (int i = 0; i < 1000; i++) {
+      int user = random.nextInt(maxes.length);
+      int max = price + random.nextInt(100);
+
+      if (proxies.put("u" + user, max, price))
+        maxes[user] = max;
+
+      int first = -1;
+      int second = 0;
+
+      for (int j = 0; j < maxes.length; j++) {
+        if (first < 0 || maxes[first] < maxes[j]) {
+          if (first >= 0)
+            second = Math.max(second, maxes[first]);
+
+          first = j;
+        }
+        else {
+          second = Math.max(second, maxes[j]);
+        }
+      }
+
+      AuctionBid bid = proxies.resolve(bidder, price);
+
+      if (maxes[first] <= price || maxes[first] == second) {
+        // ties and exhausted proxies are covered by the other tests
+        if (bid != null) {
+          bidder = bid.getUser();
+          price = bid.getBid();
+        }
+
+        continue;
+      }
+
+      String leader = "u" + first;
+
+      if (leader.equals(bidder) && second <= price) {
+        Assert.assertNull(bid);
+        continue;
+      }
+
+      int expected = Math.min(maxes[first], Math.max(second, price) + 1);
+
+      Assert.assertEquals(leader, bid.getUser());
+      Assert.assertEquals(expected, bid.getBid());
+
+      bidder = bid.getUser();
+      price = bid.getBid();
+    }
+  }
+}
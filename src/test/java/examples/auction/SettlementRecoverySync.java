@@ -0,0 +1,8 @@
+package examples.auction;
+
+public interface SettlementRecoverySync extends SettlementRecovery
+{
+  int recover();
+
+  RecoveryStats getStats();
+}
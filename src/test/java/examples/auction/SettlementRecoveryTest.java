@@ -0,0 +1,138 @@
+package examples.auction;
+
+import javax.inject.Inject;
+
+import io.baratine.service.Result;
+import io.baratine.service.Service;
+import io.baratine.service.Services;
+import io.baratine.vault.IdAsset;
+
+import com.caucho.junit.RunnerBaratine;
+import com.caucho.junit.ServiceTest;
+import com.caucho.junit.State;
+
+import examples.auction.SettlementRecovery.RecoveryStats;
+import examples.auction.mock.MockPayPal;
+import examples.auction.mock.MockPayment;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Stuck settlements are found and finished by the recovery scanner.
+ */
+@RunWith(RunnerBaratine.class)
+@ServiceTest(UserVault.class)
+@ServiceTest(AuctionVault.class)
+@ServiceTest(AuctionTitleIndexVault.class)
+@ServiceTest(AuditServiceImpl.class)
+@ServiceTest(AuctionSettlementVault.class)
+@ServiceTest(AuctionSettlementBatcherImpl.class)
+@ServiceTest(SettlementRecoveryImpl.class)
+@ServiceTest(MockPayPal.class)
+public class SettlementRecoveryTest
+{
+  @Inject
+  @Service("public:///User")
+  UserVaultSync _users;
+
+  @Inject
+  @Service("public:///Auction")
+  AuctionVaultSync _auctions;
+
+  @Inject
+  @Service("public:///PayPal")
+  MockPayPal _paypal;
+
+  @Inject
+  @Service("public:///SettlementRecovery")
+  SettlementRecoverySync _recovery;
+
+  @Inject
+  Services _services;
+
+  @Test
+  public void testRecoverPending() throws InterruptedException
+  {
+    UserSync userSpock = createUser("Spock", "test");
+    UserSync userKirk = createUser("Kirk", "test");
+
+    AuctionSync auction = createAuction(userSpock, "book", 1);
+
+    Assert.assertTrue(auction.open());
+
+    Assert.assertTrue(auction.bid(new AuctionBid(userKirk.get().getEncodedId(),
+                                                 2)));
+
+    _paypal.configure(new MockPayment("sale-id", Payment.PaymentState.pending),
+                      0,
+                      Result.ignore());
+
+    Assert.assertTrue(auction.close());
+
+    AuctionSettlementSync settlement = getSettlement(auction);
+
+    State.sleep(100);
+
+    Assert.assertEquals(AuctionSettlement.Status.SETTLING,
+                        settlement.settleStatus());
+
+    _paypal.configure(new MockPayment("sale-id", Payment.PaymentState.approved),
+                      0,
+                      Result.ignore());
+
+    Assert.assertEquals(1, _recovery.recover());
+
+    State.sleep(100);
+
+    Assert.assertEquals(AuctionSettlement.Status.SETTLED,
+                        settlement.settleStatus());
+
+    Assert.assertEquals(Auction.State.SETTLED, auction.get().getState());
+
+    RecoveryStats stats = _recovery.getStats();
+
+    Assert.assertEquals(0, stats.getPending());
+    Assert.assertEquals(1, stats.getRecovered());
+
+    Assert.assertEquals(0, _recovery.recover());
+  }
+
+  @Test
+  public void testBackoff()
+  {
+    Assert.assertEquals(1000, SettlementRecoveryImpl.backoff(0));
+    Assert.assertEquals(2000, SettlementRecoveryImpl.backoff(1));
+    Assert.assertEquals(64000, SettlementRecoveryImpl.backoff(6));
+    Assert.assertEquals(SettlementRecoveryImpl.BACKOFF_MAX,
+                        SettlementRecoveryImpl.backoff(9));
+    Assert.assertEquals(SettlementRecoveryImpl.BACKOFF_MAX,
+                        SettlementRecoveryImpl.backoff(100));
+  }
+
+  UserSync createUser(String name, String password)
+  {
+    IdAsset id
+      = _users.create(new AuctionSession.UserInitData(name, password, false));
+
+    return _services.service(UserSync.class, id.toString());
+  }
+
+  AuctionSync createAuction(UserSync user, String title, int bid)
+  {
+    IdAsset id = _auctions.create(
+      new AuctionDataInit(user.get().getEncodedId(), title, bid));
+
+    return _services.service(AuctionSync.class, id.toString());
+  }
+
+  AuctionSettlementSync getSettlement(AuctionSync auction)
+  {
+    String id = auction.getSettlementId();
+
+    while (id == null)
+      id = auction.getSettlementId();
+
+    return _services.service(AuctionSettlementSync.class, id);
+  }
+}
@@ -0,0 +1,107 @@
+package examples.auction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * TimingWheel expiration tests.
+ */
+public class TimingWheelTest
+{
+  @Test
+  public void testExpire()
+  {
+    TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 3, 0);
+
+    wheel.add("a", 2500);
+    wheel.add("b", 3000);
+    wheel.add("c", 3001);
+
+    Assert.assertEquals(3, wheel.size());
+    Assert.assertEquals(3000, wheel.nextExpiration());
+
+    Assert.assertEquals(0, wheel.advance(2999).size());
+
+    List<String> expired = wheel.advance(3000);
+    Collections.sort(expired);
+
+    Assert.assertEquals("[a, b]", expired.toString());
+    Assert.assertEquals(4000, wheel.nextExpiration());
+
+    Assert.assertEquals("[c]", wheel.advance(10000).toString());
+    Assert.assertEquals(0, wheel.size());
+    Assert.assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+  }
+
+  @Test
+  public void testPastDeadline()
+  {
+    TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 3, 10000);
+
+    wheel.add("a", 5000);
+
+    Assert.assertEquals(10000, wheel.nextExpiration());
+    Assert.assertEquals("[a]", wheel.advance(10000).toString());
+  }
+
+  @Test
+  public void testCascade()
+  {
+    TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 2, 0);
+
+    // level 1 and overflow
+    wheel.add("a", 20000);
+    wheel.add("b", 100000);
+
+    Assert.assertEquals(0, wheel.advance(19999).size());
+    Assert.assertEquals("[a]", wheel.advance(20000).toString());
+
+    Assert.assertEquals(0, wheel.advance(99999).size());
+    Assert.assertEquals("[b]", wheel.advance(100000).toString());
+  }
+
+  @Test
+  public void testRandom()
+  {
+    Random random = new Random(17);
+
+    TimingWheel<Long> wheel = new TimingWheel<>(100, 16, 3, 0);
+
+    ArrayList<Long> pending = new ArrayList<>();
+
+    long now = 0;
+
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < 20; i++) {
+        long deadline = now + random.nextInt(2000000);
+
+        // deadlines are distinct so they identify the item
+        deadline = deadline * 1000 + round * 20 + i;
+
+        wheel.add(deadline, deadline / 1000);
+        pending.add(deadline);
+      }
+
+      now += random.nextInt(50000);
+
+      List<Long> expired = wheel.advance(now);
+
+      for (Long deadline : expired) {
+        Assert.assertTrue(deadline / 1000 <= now);
+        Assert.assertTrue(pending.remove(deadline));
+      }
+
+      for (Long deadline : pending) {
+        // rounded up to a tick, so at most one tick late
+        Assert.assertTrue(now < (deadline / 1000 + 99) / 100 * 100);
+      }
+    }
+
+    Assert.assertEquals(pending.size(), wheel.size());
+  }
+}
@@ -0,0 +1,133 @@
+package examples.auction;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * TitleTrie prefix suggestion tests.
+ */
+public class TitleTrieTest
+{
+  @Test
+  public void testWordPrefix()
+  {
+    TitleTrie trie = createTrie();
+
+    Assert.assertEquals("[2, 1]", ids(trie.suggest("bo", 10)));
+    Assert.assertEquals("[1, 3]", ids(trie.suggest("RE", 10)));
+    Assert.assertEquals("[1]", ids(trie.suggest("red b", 10)));
+    Assert.assertEquals("[]", ids(trie.suggest("x", 10)));
+  }
+
+  @Test
+  public void testWords()
+  {
+    TitleTrie trie = createTrie();
+
+    // leading words match whole words, in any order
+    Assert.assertEquals("[1]", ids(trie.suggest("book re", 10)));
+    Assert.assertEquals("[2, 1]", ids(trie.suggest("book", 10)));
+    Assert.assertEquals("[]", ids(trie.suggest("bo red", 10)));
+    Assert.assertEquals("[3]", ids(trie.suggest("red p", 10)));
+  }
+
+  /**
+   * The trie holds a path per word, not per word-start suffix.
+   */
+  @Test
+  public void testCompact()
+  {
+    TitleTrie trie = new TitleTrie(10);
+
+    trie.put("1", "aaaaa bbbbb ccccc ddddd eeeee", 1);
+
+    Assert.assertEquals(1 + 5 * 5, trie.nodeCount());
+
+    trie.put("2", "aaaaa bbbbb", 2);
+
+    Assert.assertEquals(1 + 5 * 5, trie.nodeCount());
+
+    trie.remove("1");
+
+    Assert.assertEquals(1 + 2 * 5, trie.nodeCount());
+  }
+
+  @Test
+  public void testLimit()
+  {
+    TitleTrie trie = createTrie();
+
+    Assert.assertEquals("[2, 1]", ids(trie.suggest("", 2)));
+  }
+
+  @Test
+  public void testUpdateScore()
+  {
+    TitleTrie trie = createTrie();
+
+    trie.updateScore("3", 50);
+
+    Assert.assertEquals("[3, 1]", ids(trie.suggest("r", 10)));
+    Assert.assertEquals("[3, 2, 1]", ids(trie.suggest("", 10)));
+
+    trie.updateScore("3", 1);
+
+    Assert.assertEquals("[2, 1, 3]", ids(trie.suggest("", 10)));
+  }
+
+  @Test
+  public void testRemove()
+  {
+    TitleTrie trie = createTrie();
+
+    Assert.assertTrue(trie.remove("1"));
+    Assert.assertFalse(trie.remove("1"));
+
+    Assert.assertEquals("[2]", ids(trie.suggest("b", 10)));
+    Assert.assertEquals("[3]", ids(trie.suggest("red", 10)));
+    Assert.assertEquals(2, trie.size());
+  }
+
+  @Test
+  public void testTopSize()
+  {
+    TitleTrie trie = new TitleTrie(2);
+
+    for (int i = 0; i < 5; i++) {
+      trie.put(String.valueOf(i), "lamp " + i, i);
+    }
+
+    Assert.assertEquals("[4, 3]", ids(trie.suggest("la", 10)));
+
+    trie.remove("4");
+
+    Assert.assertEquals("[3, 2]", ids(trie.suggest("la", 10)));
+  }
+
+  private TitleTrie createTrie()
+  {
+    TitleTrie trie = new TitleTrie(10);
+
+    trie.put("1", "Red Book", 10);
+    trie.put("2", "blue book", 20);
+    trie.put("3", "red pen", 5);
+
+    return trie;
+  }
+
+  private String ids(List<TitleTrie.Entry> entries)
+  {
+    StringBuilder sb = new StringBuilder("[");
+
+    for (TitleTrie.Entry entry : entries) {
+      if (sb.length() > 1)
+        sb.append(", ");
+
+      sb.append(entry.getId());
+    }
+
+    return sb.append("]").toString();
+  }
+}
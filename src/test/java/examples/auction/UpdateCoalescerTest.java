@@ -0,0 +1,80 @@
+package examples.auction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * UpdateCoalescer throttling and coalescing tests.
+ */
+public class UpdateCoalescerTest
+{
+  @Test
+  public void testLeadingEdge()
+  {
+    UpdateCoalescer<String> updates = new UpdateCoalescer<>(100, 8);
+
+    Assert.assertEquals(Collections.singletonList("a1"),
+                        updates.offer("a", "a1", 1000));
+
+    Assert.assertNull(updates.offer("a", "a2", 1010));
+    Assert.assertNull(updates.offer("a", "a3", 1020));
+
+    Assert.assertEquals(1, updates.size());
+    Assert.assertEquals(1100, updates.getFlushTime());
+
+    Assert.assertEquals(0, updates.flush(1099).size());
+    Assert.assertEquals(Collections.singletonList("a3"), updates.flush(1100));
+
+    Assert.assertEquals(Long.MAX_VALUE, updates.getFlushTime());
+
+    // within the interval of the flushed frame
+    Assert.assertNull(updates.offer("a", "a4", 1150));
+
+    Assert.assertEquals(Collections.singletonList("a4"), updates.flush(1200));
+
+    // quiet again
+    Assert.assertEquals(Collections.singletonList("a5"),
+                        updates.offer("a", "a5", 2000));
+  }
+
+  @Test
+  public void testBatch()
+  {
+    UpdateCoalescer<String> updates = new UpdateCoalescer<>(100, 2);
+
+    updates.offer("a", "a1", 0);
+
+    Assert.assertNull(updates.offer("b", "b1", 10));
+    Assert.assertNull(updates.offer("c", "c1", 20));
+    Assert.assertNull(updates.offer("a", "a2", 30));
+    Assert.assertNull(updates.offer("b", "b2", 40));
+
+    Assert.assertEquals(3, updates.size());
+
+    List<String> frame = updates.flush(100);
+
+    Assert.assertEquals(Arrays.asList("b2", "c1"), frame);
+
+    Assert.assertEquals(200, updates.getFlushTime());
+
+    Assert.assertEquals(Collections.singletonList("a2"), updates.flush(200));
+  }
+
+  @Test
+  public void testRemove()
+  {
+    UpdateCoalescer<String> updates = new UpdateCoalescer<>(100, 8);
+
+    updates.offer("a", "a1", 0);
+    updates.offer("a", "a2", 10);
+
+    updates.remove("a");
+
+    Assert.assertEquals(0, updates.size());
+    Assert.assertEquals(0, updates.flush(100).size());
+  }
+}
@@ -0,0 +1,71 @@
+package examples.auction;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * UpdateRing replay tests.
+ */
+public class UpdateRingTest
+{
+  @Test
+  public void testSince()
+  {
+    UpdateRing<String> ring = new UpdateRing<>(4);
+
+    Assert.assertNull(ring.since(0));
+
+    for (int i = 1; i <= 3; i++) {
+      ring.add(i, "u" + i);
+    }
+
+    Assert.assertEquals(3, ring.getLastSequence());
+
+    Assert.assertEquals(Arrays.asList("u1", "u2", "u3"), ring.since(0));
+    Assert.assertEquals(Arrays.asList("u3"), ring.since(2));
+    Assert.assertEquals(Collections.emptyList(), ring.since(3));
+    Assert.assertEquals(Collections.emptyList(), ring.since(7));
+  }
+
+  @Test
+  public void testWrap()
+  {
+    UpdateRing<String> ring = new UpdateRing<>(4);
+
+    for (int i = 1; i <= 10; i++) {
+      ring.add(i, "u" + i);
+    }
+
+    Assert.assertEquals(4, ring.size());
+
+    Assert.assertEquals(Arrays.asList("u7", "u8", "u9", "u10"), ring.since(6));
+    Assert.assertEquals(Arrays.asList("u9", "u10"), ring.since(8));
+
+    // u6 was dropped
+    Assert.assertNull(ring.since(5));
+  }
+
+  @Test
+  public void testGap()
+  {
+    UpdateRing<String> ring = new UpdateRing<>(4);
+
+    ring.add(1, "u1");
+    ring.add(2, "u2");
+
+    // duplicate or older updates are ignored
+    ring.add(2, "u2'");
+    ring.add(1, "u1'");
+
+    Assert.assertEquals(Arrays.asList("u2"), ring.since(1));
+
+    ring.add(5, "u5");
+
+    Assert.assertEquals(1, ring.size());
+    Assert.assertNull(ring.since(2));
+    Assert.assertEquals(Arrays.asList("u5"), ring.since(4));
+  }
+}